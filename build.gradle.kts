@@ -4,6 +4,8 @@ plugins {
 	id("io.spring.dependency-management") version "1.1.7"
 	// Add the OWASP plugin
 	id("org.owasp.dependencycheck") version "9.2.0"
+	// JMH micro-benchmarks (src/jmh/java), run with ./gradlew jmh
+	id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.madhu"
@@ -23,6 +25,10 @@ dependencies {
 	// Spring Boot Starter
 	implementation("org.springframework.boot:spring-boot-starter")
 	implementation("org.springframework.boot:spring-boot-starter-web")
+	implementation("org.springframework.boot:spring-boot-starter-actuator")
+	implementation("io.micrometer:micrometer-registry-prometheus")
+	// Pooled HTTP client behind the NER RestTemplate
+	implementation("org.apache.httpcomponents.client5:httpclient5")
 	testImplementation("org.springframework.boot:spring-boot-starter-test")
 	testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 	
@@ -35,6 +41,12 @@ dependencies {
     implementation("com.fasterxml.jackson.core:jackson-databind")
     implementation("jakarta.json:jakarta.json-api:2.1.3") // Updated version
 
+    // Caffeine for in-process caches (W-TinyLFU eviction)
+    implementation("com.github.ben-manes.caffeine:caffeine")
+
+    // Compressed bitmaps for the local engine's filters and facet counts
+    implementation("org.roaringbitmap:RoaringBitmap:1.3.0")
+
     // Apache Commons Text for normalization
     implementation("org.apache.commons:commons-text:1.12.0")
 
@@ -53,6 +65,41 @@ tasks.withType<Test> {
 	useJUnitPlatform()
 }
 
+// End-to-end load tests (src/loadTest/java): Testcontainers Elasticsearch plus a stub NER server,
+// run with ./gradlew loadTest; -Ploadtest.<name>=<value> is passed through as a system property
+val loadTest: SourceSet by sourceSets.creating {
+	compileClasspath += sourceSets.main.get().output
+	runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[loadTest.implementationConfigurationName].extendsFrom(configurations.testImplementation.get())
+configurations[loadTest.runtimeOnlyConfigurationName].extendsFrom(configurations.testRuntimeOnly.get())
+
+dependencies {
+	"loadTestImplementation"("org.hdrhistogram:HdrHistogram:2.2.2")
+}
+
+tasks.register<Test>("loadTest") {
+	description = "Drives /search and /suggest at fixed arrival rates and fails on p99 or throughput regressions."
+	group = "verification"
+	testClassesDirs = loadTest.output.classesDirs
+	classpath = loadTest.runtimeClasspath
+	shouldRunAfter(tasks.test)
+	outputs.upToDateWhen { false }
+	project.properties.filterKeys { it.startsWith("loadtest.") }.forEach { (key, value) -> systemProperty(key, value.toString()) }
+	testLogging {
+		showStandardStreams = true
+	}
+}
+
+jmh {
+	warmupIterations.set(2)
+	iterations.set(3)
+	fork.set(1)
+	profilers.set(listOf("gc"))
+	resultFormat.set("JSON")
+}
+
 tasks.register("generatePatterns") {
     group = "build"
     description = "Regenerate patterns.json from build_patterns.py"
@@ -68,6 +115,25 @@ tasks.register("generatePatterns") {
     }
 }
 
+// Opt-in: downloads the spaCy model; point search.semantic.vectors at the output
+tasks.register("generateVectors") {
+    group = "build"
+    description = "Export word vectors for hybrid search from build_vectors.py"
+    inputs.files("build_vectors.py", "requirements.txt")
+    outputs.file("word_vectors.txt.gz")
+    doLast {
+        project.exec {
+            commandLine("python3", "-m", "pip", "install", "-r", "requirements.txt")
+        }
+        project.exec {
+            commandLine("python3", "-m", "spacy", "download", "en_core_web_md")
+        }
+        project.exec {
+            commandLine("python3", "build_vectors.py")
+        }
+    }
+}
+
 tasks.named("processResources") {
 	dependsOn("generatePatterns")
 }
@@ -1,15 +1,38 @@
 import pandas as pd
 import json
+import re
+import unicodedata
+from collections import Counter
 
 print("Starting pattern generation...")
 
-# --- Define known brands to help with extraction ---
-KNOWN_BRANDS = {
-    "Fage", "Annie's", "Newman's Own", "General Mills", "Blue Diamond",
-    "Bonne Maman", "Philadelphia", "Stacy's", "Kellogg's", "Horizon Organic",
-    "YoBaby", "Chobani", "Udi's", "Earth's Best", "Organic Valley", "Green & Black's",
-    "Adidas"
-}
+# --- Known brands, shared with the Java CatalogDictionary ---
+KNOWN_BRANDS = set(pd.read_csv("src/main/resources/data/brands.csv")['brand'])
+
+# Same product-type rule as CatalogDictionary: a name's last word or last two words, when at
+# least this many names end in it and it ends at least half of the names it occurs in
+MIN_PRODUCT_TYPE_COUNT = 30
+
+def normalize_tokens(text):
+    # Mirrors QueryNormalizer: lower-case, decompose accents and keep [a-z0-9 -] with \s limited
+    # to ASCII whitespace, as in Java. Only a JVM whose default locale is Turkish or Azerbaijani
+    # differs: it folds "I" to a dotless i, which is then dropped.
+    text = unicodedata.normalize("NFD", str(text).lower())
+    return re.sub(r"[^a-z0-9\s-]", "", text, flags=re.ASCII).split()
+
+def product_types(names):
+    ending, containing = Counter(), Counter()
+    for name in names:
+        tokens = normalize_tokens(name)
+        grams = set(tokens) | {" ".join(tokens[i - 1:i + 1]) for i in range(1, len(tokens))}
+        containing.update(grams)
+        if tokens:
+            ending[tokens[-1]] += 1
+        if len(tokens) >= 2:
+            ending[" ".join(tokens[-2:])] += 1
+    return [gram for gram, count in ending.items()
+            if count >= MIN_PRODUCT_TYPE_COUNT and 2 * count >= containing[gram]
+            and all(len(word) >= 3 and word.isalpha() for word in gram.split())]
 
 def extract_brand(product_name):
     product_name_lower = product_name.lower()
@@ -60,6 +83,12 @@ all_patterns.append({"label": "DIETARY_ATTRIBUTE", "pattern": "gluten-free"})
 all_patterns.append({"label": "DIETARY_ATTRIBUTE", "pattern": "vegan"})
 all_patterns.append({"label": "PRODUCT", "pattern": "running shoes"})
 
+# --- 5. Generate patterns for PRODUCT types from the product names ---
+types = product_types(products_df['product_name'])
+for product_type in types:
+    all_patterns.append({"label": "PRODUCT", "pattern": product_type})
+print(f"Generated {len(types)} patterns for product types.")
+
 
 # --- Write the final list to patterns.json ---
 with open('patterns.json', 'w') as f:
@@ -0,0 +1,82 @@
+import gzip
+import re
+import unicodedata
+
+import numpy as np
+import pandas as pd
+import spacy
+
+# Word vectors for hybrid search (search.semantic.vectors), from the same spaCy model the NER
+# service runs. One "word v1 ... v300" line per word, gzipped, for every word of the catalog's
+# product names, aisles and departments plus the most frequent general English words, so query
+# words the catalog never uses ("kids", "snacks", "healthy") still have a vector.
+
+MODEL = "en_core_web_md"
+OUTPUT = "word_vectors.txt.gz"
+GENERAL_WORDS = 20000
+
+# The same folding QueryNormalizer applies to queries and product names
+TOKEN = re.compile(r"[a-z0-9-]+")
+
+
+def tokens(text):
+    folded = unicodedata.normalize("NFD", str(text).lower())
+    return re.sub(r"[^a-z0-9\s-]", "", folded).split()
+
+
+print("Starting word vector export...")
+nlp = spacy.load(MODEL, exclude=["tok2vec", "tagger", "parser", "attribute_ruler", "lemmatizer", "ner", "senter"])
+vectors = nlp.vocab.vectors
+
+
+def vector_of(word):
+    if nlp.vocab.has_vector(word):
+        return nlp.vocab.get_vector(word)
+    # Hyphenated catalog words ("gluten-free") as the mean of their parts
+    parts = [part for part in word.split("-") if part and nlp.vocab.has_vector(part)]
+    if parts:
+        return np.mean([nlp.vocab.get_vector(part) for part in parts], axis=0)
+    return None
+
+
+# --- 1. Catalog vocabulary ---
+try:
+    products_df = pd.read_csv("src/main/resources/data/products.csv")
+    aisles_df = pd.read_csv("src/main/resources/data/aisles.csv")
+    departments_df = pd.read_csv("src/main/resources/data/departments.csv")
+except FileNotFoundError:
+    print("Error: Make sure products.csv, aisles.csv, and departments.csv are in the src/main/resources/data/ directory.")
+    exit()
+
+words = {}
+for text in pd.concat([products_df["product_name"], aisles_df["aisle"], departments_df["department"]]):
+    for word in tokens(text):
+        words.setdefault(word, None)
+catalog_words = len(words)
+
+# --- 2. General vocabulary: vector rows are ordered by frequency ---
+by_row = sorted(vectors.key2row.items(), key=lambda item: item[1])
+general = 0
+for key, _ in by_row:
+    if general >= GENERAL_WORDS:
+        break
+    try:
+        word = nlp.vocab.strings[key]
+    except KeyError:
+        continue
+    if TOKEN.fullmatch(word) and word not in words:
+        words[word] = None
+        general += 1
+
+# --- 3. Export ---
+written = 0
+with gzip.open(OUTPUT, "wt", encoding="utf-8") as f:
+    for word in words:
+        vector = vector_of(word)
+        if vector is None or not np.any(vector):
+            continue
+        f.write(word + " " + " ".join(f"{value:.5g}" for value in vector) + "\n")
+        written += 1
+
+print(f"Exported {written} of {catalog_words} catalog and {general} general words "
+      f"({vectors.shape[1]} dimensions) to {OUTPUT}.")
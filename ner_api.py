@@ -1,7 +1,9 @@
 from fastapi import FastAPI
 from pydantic import BaseModel
+from typing import List
 import spacy
 import json
+import hashlib
 import logging
 
 # --- Setup basic logging ---
@@ -19,9 +21,15 @@ except OSError:
     nlp = spacy.load("en_core_web_md")
     logger.info("Loaded spaCy 'en_core_web_md' model")
 
+# Version string reported with every response. Clients cache results per query and drop
+# their cache when this changes, so it must change whenever the model or patterns change.
+patterns_digest = "none"
+
 try:
-    with open("patterns.json", "r") as f:
-        patterns = json.load(f)
+    with open("patterns.json", "rb") as f:
+        raw_patterns = f.read()
+    patterns_digest = hashlib.sha256(raw_patterns).hexdigest()[:12]
+    patterns = json.loads(raw_patterns)
     ruler = nlp.add_pipe("entity_ruler", after="ner", config={"overwrite_ents": True})
     ruler.add_patterns(patterns)
     logger.info("Successfully loaded custom patterns from patterns.json")
@@ -30,6 +38,9 @@ except FileNotFoundError:
 except Exception as e:
     logger.error(f"Could not load patterns from patterns.json: {e}")
 
+MODEL_VERSION = f"{nlp.meta.get('name', 'unknown')}-{nlp.meta.get('version', '0')}:{patterns_digest}"
+logger.info(f"NER model version: {MODEL_VERSION}")
+
 class TextIn(BaseModel):
     text: str
 
@@ -40,5 +51,20 @@ async def extract_entities(payload: TextIn):
     found by the spaCy pipeline (custom EntityRuler + ML model).
     """
     doc = nlp(payload.text.lower())
-    entities = [{"text": ent.text, "label": ent.label_} for ent in doc.ents]
-    return {"entities": entities}
\ No newline at end of file
+    return {"entities": entities_of(doc), "model_version": MODEL_VERSION}
+
+class BatchIn(BaseModel):
+    texts: List[str]
+
+@app.post("/ent/batch")
+def extract_entities_batch(payload: BatchIn):
+    """
+    Batch variant of /ent used by the Java micro-batching client.
+    Runs all texts through nlp.pipe in one go; results[i] belongs to texts[i].
+    """
+    docs = nlp.pipe(text.lower() for text in payload.texts)
+    results = [{"entities": entities_of(doc)} for doc in docs]
+    return {"results": results, "model_version": MODEL_VERSION}
+
+def entities_of(doc):
+    return [{"text": ent.text, "label": ent.label_} for ent in doc.ents]
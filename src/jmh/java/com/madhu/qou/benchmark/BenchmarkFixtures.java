@@ -0,0 +1,241 @@
+package com.madhu.qou.benchmark;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.Suggestion;
+import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.madhu.qou.client.NerApiClient;
+import com.madhu.qou.dto.domain.Product;
+import com.madhu.qou.dto.ner.NerEntity;
+import com.madhu.qou.dto.ner.NerResponse;
+import com.madhu.qou.service.intent.CatalogEntityRecognizer;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.RFC4180ParserBuilder;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Shared inputs for the pipeline benchmarks: a realistic query corpus and stand-ins for the
+ * NER service and Elasticsearch that answer from memory, so only our own code is measured.
+ */
+public final class BenchmarkFixtures {
+
+    // Head of the grocery query distribution
+    private static final List<String> HEAD_QUERIES = List.of(
+            "organic milk", "greek yogurt", "Organic  Milk", "organic milk!", "bananas",
+            "fage yogurt", "show me products from Philadelphia", "show me items from the yogurt aisle",
+            "gluten-free crackers", "horizon organic whole milk", "annie's mac and cheese",
+            "frozen pizza", "sparkling water", "organc avocodo", "Crème fraîche"
+    );
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Head queries, the {@code rawQuery} values of the JSONL request log named by the
+     * {@code qou.queryLog} system property (when set), and queries
+     * generated from product names: short prefixes, brand/attribute combinations and typos.
+     */
+    public static List<String> queryCorpus(int generatedCount) throws IOException {
+        List<String> queries = new ArrayList<>(HEAD_QUERIES);
+        String queryLog = System.getProperty("qou.queryLog");
+        if (queryLog != null && !queryLog.isBlank()) {
+            queries.addAll(loggedQueries(Path.of(queryLog)));
+        }
+
+        List<String> names = productNames();
+        Random random = new Random(42);
+        for (int i = 0; i < generatedCount; i++) {
+            String[] words = names.get(random.nextInt(names.size())).split("\\s+");
+            String query = switch (i % 4) {
+                case 0 -> String.join(" ", Arrays.copyOf(words, Math.min(2, words.length)));
+                case 1 -> "organic " + words[words.length - 1];
+                case 2 -> words[0] + " " + words[words.length - 1];
+                default -> typo(words[words.length - 1], random);
+            };
+            queries.add(query);
+        }
+        return queries;
+    }
+
+    public static List<String> productNames() throws IOException {
+        List<String> names = new ArrayList<>();
+        try (CSVReader reader = new CSVReaderBuilder(new InputStreamReader(new ClassPathResource("data/products.csv").getInputStream()))
+                .withCSVParser(new RFC4180ParserBuilder().build())
+                .build()) {
+            reader.readNext(); // Skip header
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                names.add(line[1]);
+            }
+        } catch (com.opencsv.exceptions.CsvValidationException e) {
+            throw new IOException(e);
+        }
+        return names;
+    }
+
+    private static List<String> loggedQueries(Path log) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        List<String> queries = new ArrayList<>();
+        for (String line : Files.readAllLines(log)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode rawQuery = mapper.readTree(line).get("rawQuery");
+            if (rawQuery != null && rawQuery.isTextual()) {
+                queries.add(rawQuery.asText());
+            }
+        }
+        return queries;
+    }
+
+    private static String typo(String word, Random random) {
+        if (word.length() < 4) {
+            return word;
+        }
+        int i = 1 + random.nextInt(word.length() - 2);
+        return word.substring(0, i) + word.charAt(i + 1) + word.charAt(i) + word.substring(i + 2);
+    }
+
+    /**
+     * NER stand-in that answers with the entities the catalog recognizer finds, precomputed
+     * per normalized query so no tagging work is included in the measurement.
+     */
+    public static NerApiClient stubNerApiClient(CatalogEntityRecognizer recognizer, Collection<String> normalizedQueries) {
+        Map<String, NerResponse> responses = new HashMap<>();
+        for (String query : normalizedQueries) {
+            List<NerEntity> entities = recognizer.recognize(query).stream()
+                    .map(entity -> new NerEntity(entity.value(), entity.type()))
+                    .toList();
+            responses.put(query, new NerResponse(entities, "benchmark"));
+        }
+        NerResponse empty = new NerResponse(List.of(), "benchmark");
+        return new NerApiClient(null, null, null, null, null) {
+            @Override
+            public NerResponse extractEntities(String text) {
+                return responses.getOrDefault(text, empty);
+            }
+        };
+    }
+
+    /**
+     * Elasticsearch stand-in returning a canned page of ten products with facets, or a zero-hit
+     * response with spell-check suggestions when the query text contains {@code zerohits}.
+     */
+    public static ElasticsearchClient stubElasticsearchClient() throws IOException {
+        CannedSearchResponses responses = new CannedSearchResponses();
+        return new ElasticsearchClient(unusedTransport()) {
+            @Override
+            public <T> SearchResponse<T> search(SearchRequest request, Class<T> documentClass) {
+                return responses.answer(request);
+            }
+        };
+    }
+
+    /**
+     * Async twin of {@link #stubElasticsearchClient()}; futures are already completed.
+     */
+    public static ElasticsearchAsyncClient stubElasticsearchAsyncClient() throws IOException {
+        CannedSearchResponses responses = new CannedSearchResponses();
+        return new ElasticsearchAsyncClient(unusedTransport()) {
+            @Override
+            public <T> CompletableFuture<SearchResponse<T>> search(SearchRequest request, Class<T> documentClass) {
+                return CompletableFuture.completedFuture(responses.answer(request));
+            }
+        };
+    }
+
+    // Never connects: the stubs override every method the pipeline calls
+    private static RestClientTransport unusedTransport() {
+        return new RestClientTransport(RestClient.builder(HttpHost.create("http://localhost:9200")).build(), new JacksonJsonpMapper());
+    }
+
+    private static final class CannedSearchResponses {
+
+        private final SearchResponse<Product> hitsResponse;
+        private final SearchResponse<Product> zeroHitsResponse;
+
+        CannedSearchResponses() throws IOException {
+            List<String> names = productNames();
+            List<Hit<Product>> hits = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                String name = names.get(i * 97);
+                Product product = new Product("instacart-" + i, name, "", "Private Label", List.of("yogurt"), List.of(),
+                        new Product.GroceryAttributes(List.of(), name.toLowerCase().contains("organic"), null),
+                        name.toLowerCase() + " yogurt");
+                hits.add(Hit.of(h -> h.index("products_index").id(product.productId()).score(1.0).source(product)));
+            }
+            hitsResponse = SearchResponse.of(r -> r
+                    .took(3).timedOut(false)
+                    .shards(s -> s.total(1).successful(1).failed(0))
+                    .hits(h -> h.total(t -> t.value(1234).relation(TotalHitsRelation.Eq)).hits(hits))
+                    .aggregations("by_category", termsAggregate("yogurt", "milk", "cream", "butter", "eggs"))
+                    .aggregations("by_brand", termsAggregate("Private Label", "Fage", "Horizon Organic"))
+            );
+            zeroHitsResponse = SearchResponse.of(r -> r
+                    .took(2).timedOut(false)
+                    .shards(s -> s.total(1).successful(1).failed(0))
+                    .hits(h -> h.total(t -> t.value(0).relation(TotalHitsRelation.Eq)).hits(List.of()))
+                    .aggregations("by_category", termsAggregate())
+                    .aggregations("by_brand", termsAggregate())
+                    .suggest("spell-check", List.of(termSuggestion("organc", 0, "organic"), termSuggestion("avocodo", 7, "avocado")))
+            );
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> SearchResponse<T> answer(SearchRequest request) {
+            return (SearchResponse<T>) (queryText(request).contains("zerohits") ? zeroHitsResponse : hitsResponse);
+        }
+
+        // The suggest text of a spell-check request, else the full-text clause of a search
+        private static String queryText(SearchRequest request) {
+            if (request.suggest() != null && request.suggest().text() != null) {
+                return request.suggest().text();
+            }
+            if (request.query() != null && request.query().isBool()) {
+                for (Query must : request.query().bool().must()) {
+                    if (must.isMultiMatch()) {
+                        return must.multiMatch().query();
+                    }
+                }
+            }
+            return "";
+        }
+    }
+
+    private static Aggregate termsAggregate(String... keys) {
+        List<StringTermsBucket> buckets = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            long count = 100L - i * 10;
+            String key = keys[i];
+            buckets.add(StringTermsBucket.of(b -> b.key(FieldValue.of(key)).docCount(count)));
+        }
+        return Aggregate.of(a -> a.sterms(st -> st.buckets(b -> b.array(buckets)).sumOtherDocCount(0L)));
+    }
+
+    private static Suggestion<Product> termSuggestion(String text, int offset, String correction) {
+        return Suggestion.of(s -> s.term(t -> t
+                .text(text).offset(offset).length(text.length())
+                .options(o -> o.text(correction).score(0.8).freq(100))));
+    }
+}
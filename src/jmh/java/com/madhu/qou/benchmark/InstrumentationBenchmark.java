@@ -0,0 +1,90 @@
+package com.madhu.qou.benchmark;
+
+import com.madhu.qou.dto.*;
+import com.madhu.qou.service.PipelineMetrics;
+import com.madhu.qou.service.PipelineMetrics.Stage;
+import com.madhu.qou.service.PipelineTrace;
+import com.madhu.qou.service.QueryLog;
+import com.madhu.qou.service.QueryUnderstandingService;
+import com.madhu.qou.service.SearchResponseCache;
+import com.madhu.qou.service.catalog.CatalogDictionary;
+import com.madhu.qou.service.ingestion.PreprocessingService;
+import com.madhu.qou.service.intent.CatalogEntityRecognizer;
+import com.madhu.qou.service.intent.IntentAndEntityService;
+import com.madhu.qou.service.rewriting.QueryRewriteService;
+import com.madhu.qou.service.suggest.LocalSuggester;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the per-stage pipeline instrumentation. {@code noop} is a registry with no backends,
+ * so every meter is a no-op; the difference to {@code prometheus} is what production pays.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InstrumentationBenchmark {
+
+    @Param({"noop", "prometheus"})
+    public String registry;
+
+    private PipelineMetrics pipelineMetrics;
+    private QueryUnderstandingService queryUnderstandingService;
+    private CustomSearchRequest[] requests;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        MeterRegistry meterRegistry = "noop".equals(registry)
+                ? new CompositeMeterRegistry()
+                : new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        pipelineMetrics = new PipelineMetrics(meterRegistry);
+
+        UserContext userContext = new UserContext("bench-user", "standard");
+        requests = BenchmarkFixtures.queryCorpus(2_000).stream()
+                .map(q -> new CustomSearchRequest(q, userContext))
+                .toArray(CustomSearchRequest[]::new);
+
+        PreprocessingService preprocessingService = new PreprocessingService();
+        CatalogDictionary catalogDictionary = new CatalogDictionary();
+        CatalogEntityRecognizer recognizer = new CatalogEntityRecognizer(preprocessingService, catalogDictionary);
+        List<String> normalized = List.of(requests).stream().map(r -> preprocessingService.normalizeQuery(r.rawQuery())).toList();
+        IntentAndEntityService intentAndEntityService = new IntentAndEntityService(
+                BenchmarkFixtures.stubNerApiClient(recognizer, normalized), recognizer, pipelineMetrics, catalogDictionary);
+        queryUnderstandingService = new QueryUnderstandingService(BenchmarkFixtures.stubElasticsearchClient(),
+                BenchmarkFixtures.stubElasticsearchAsyncClient(), preprocessingService, intentAndEntityService,
+                new QueryRewriteService(catalogDictionary), new LocalSuggester(false, "", 10),
+                new SearchResponseCache(false, DataSize.ofMegabytes(1), Duration.ofSeconds(1), new SimpleMeterRegistry()),
+                pipelineMetrics, new QueryLog(false, 100, Duration.ofMillis(250)), null, null, null);
+    }
+
+    // Everything one request records: a trace, six stage timings and the response block
+    @Benchmark
+    public StageTimings traceOnly() {
+        PipelineTrace trace = pipelineMetrics.startTrace();
+        long start = System.nanoTime();
+        trace.stop(Stage.NORMALIZE, start);
+        trace.stop(Stage.NER, start);
+        trace.stop(Stage.REWRITE, start);
+        trace.stop(Stage.ES_ROUND_TRIP, start);
+        trace.record(Stage.ES_TOOK, 3_000_000);
+        trace.stop(Stage.FACET_PARSE, start);
+        return trace.toTimings();
+    }
+
+    @Benchmark
+    public FacetedSearchResponse endToEnd() {
+        CustomSearchRequest request = requests[next];
+        next = (next + 1) % requests.length;
+        return queryUnderstandingService.processFacetedQuery(request);
+    }
+}
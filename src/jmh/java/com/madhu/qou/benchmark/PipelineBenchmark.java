@@ -0,0 +1,146 @@
+package com.madhu.qou.benchmark;
+
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import com.madhu.qou.dto.*;
+import com.madhu.qou.service.PipelineMetrics;
+import com.madhu.qou.service.QueryLog;
+import com.madhu.qou.service.QueryUnderstandingService;
+import com.madhu.qou.service.SearchResponseCache;
+import com.madhu.qou.service.catalog.CatalogDictionary;
+import com.madhu.qou.service.ingestion.PreprocessingService;
+import com.madhu.qou.service.intent.CatalogEntityRecognizer;
+import com.madhu.qou.service.intent.IntentAndEntityService;
+import com.madhu.qou.service.rewriting.QueryRewriteService;
+import com.madhu.qou.service.suggest.LocalSuggester;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-stage and end-to-end benchmarks of the query-understanding pipeline over
+ * {@link BenchmarkFixtures#queryCorpus}, with the NER service and Elasticsearch stubbed out.
+ * Each invocation takes the next query from the corpus, so the measurement covers the mix.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PipelineBenchmark {
+
+    private PreprocessingService preprocessingService;
+    private CatalogEntityRecognizer catalogEntityRecognizer;
+    private IntentAndEntityService intentAndEntityService;
+    private QueryRewriteService queryRewriteService;
+    private QueryUnderstandingService queryUnderstandingService;
+    private QueryUnderstandingService cachedQueryUnderstandingService;
+
+    private CustomSearchRequest[] requests;
+    private PreprocessedQuery[] preprocessedQueries;
+    private UnderstoodQuery[] understoodQueries;
+    private CustomSearchRequest zeroHitRequest;
+    private String[] typeAheadPrefixes;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<String> corpus = BenchmarkFixtures.queryCorpus(2_000);
+        UserContext userContext = new UserContext("bench-user", "standard");
+
+        preprocessingService = new PreprocessingService();
+        CatalogDictionary catalogDictionary = new CatalogDictionary();
+        catalogEntityRecognizer = new CatalogEntityRecognizer(preprocessingService, catalogDictionary);
+        requests = corpus.stream().map(q -> new CustomSearchRequest(q, userContext)).toArray(CustomSearchRequest[]::new);
+        preprocessedQueries = new PreprocessedQuery[requests.length];
+        for (int i = 0; i < requests.length; i++) {
+            preprocessedQueries[i] = preprocessingService.process(requests[i]);
+        }
+
+        // Metrics recorded into the same registry type production scrapes
+        PipelineMetrics pipelineMetrics = new PipelineMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+        var nerApiClient = BenchmarkFixtures.stubNerApiClient(catalogEntityRecognizer,
+                List.of(preprocessedQueries).stream().map(PreprocessedQuery::normalizedQuery).toList());
+        intentAndEntityService = new IntentAndEntityService(nerApiClient, catalogEntityRecognizer, pipelineMetrics, catalogDictionary);
+        queryRewriteService = new QueryRewriteService(catalogDictionary);
+        LocalSuggester localSuggester = new LocalSuggester(true, "", 10);
+        localSuggester.rebuild();
+        queryUnderstandingService = new QueryUnderstandingService(BenchmarkFixtures.stubElasticsearchClient(),
+                BenchmarkFixtures.stubElasticsearchAsyncClient(), preprocessingService, intentAndEntityService, queryRewriteService, localSuggester,
+                searchResponseCache(false), pipelineMetrics, queryLog(), null, null, null);
+        cachedQueryUnderstandingService = new QueryUnderstandingService(BenchmarkFixtures.stubElasticsearchClient(),
+                BenchmarkFixtures.stubElasticsearchAsyncClient(), preprocessingService, intentAndEntityService, queryRewriteService, localSuggester,
+                searchResponseCache(true), pipelineMetrics, queryLog(), null, null, null);
+
+        understoodQueries = new UnderstoodQuery[requests.length];
+        for (int i = 0; i < requests.length; i++) {
+            understoodQueries[i] = intentAndEntityService.process(preprocessedQueries[i]);
+        }
+        zeroHitRequest = new CustomSearchRequest("organc avocodo zerohits", userContext);
+        // What a type-ahead client sends while the query is being typed: 1..n leading characters
+        typeAheadPrefixes = new String[requests.length];
+        for (int i = 0; i < requests.length; i++) {
+            String query = requests[i].rawQuery();
+            typeAheadPrefixes[i] = query.substring(0, 1 + i % query.length());
+        }
+    }
+
+    private static SearchResponseCache searchResponseCache(boolean enabled) {
+        return new SearchResponseCache(enabled, DataSize.ofMegabytes(64), Duration.ofMinutes(10), new SimpleMeterRegistry());
+    }
+
+    // Production sampling; events go to the NOP appender in src/jmh/resources/logback.xml
+    private static QueryLog queryLog() {
+        return new QueryLog(true, 100, Duration.ofMillis(250));
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (next + 1) % requests.length;
+        return index;
+    }
+
+    @Benchmark
+    public PreprocessedQuery preprocess() {
+        return preprocessingService.process(requests[nextIndex()]);
+    }
+
+    @Benchmark
+    public UnderstoodQuery intentAndEntities() {
+        return intentAndEntityService.process(preprocessedQueries[nextIndex()]);
+    }
+
+    @Benchmark
+    public List<Entity> catalogEntityRecognition() {
+        return catalogEntityRecognizer.recognize(preprocessedQueries[nextIndex()].normalizedQuery());
+    }
+
+    @Benchmark
+    public SearchRequest rewrite() {
+        return queryRewriteService.buildEsQuery(understoodQueries[nextIndex()]);
+    }
+
+    @Benchmark
+    public List<String> suggest() {
+        return queryUnderstandingService.getSuggestions(typeAheadPrefixes[nextIndex()]);
+    }
+
+    @Benchmark
+    public FacetedSearchResponse endToEnd() {
+        return queryUnderstandingService.processFacetedQuery(requests[nextIndex()]);
+    }
+
+    // Same mix with the search response cache on: after the first pass every rewrite is a hit
+    @Benchmark
+    public FacetedSearchResponse endToEndCached() {
+        return cachedQueryUnderstandingService.processFacetedQuery(requests[nextIndex()]);
+    }
+
+    @Benchmark
+    public FacetedSearchResponse endToEndZeroHits() {
+        return queryUnderstandingService.processFacetedQuery(zeroHitRequest);
+    }
+}
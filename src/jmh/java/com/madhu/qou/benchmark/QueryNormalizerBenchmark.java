@@ -0,0 +1,61 @@
+package com.madhu.qou.benchmark;
+
+import com.madhu.qou.service.ingestion.QueryNormalizer;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.RFC4180ParserBuilder;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.InputStreamReader;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-pass {@link QueryNormalizer} against the original regex-based normalization,
+ * over product names shaped like user queries (mixed case, punctuation, some accents).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryNormalizerBenchmark {
+
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void loadQueries() throws Exception {
+        List<String> names = new ArrayList<>();
+        try (CSVReader reader = new CSVReaderBuilder(new InputStreamReader(new ClassPathResource("data/products.csv").getInputStream()))
+                .withCSVParser(new RFC4180ParserBuilder().build())
+                .build()) {
+            reader.readNext(); // Skip header
+            String[] line;
+            while ((line = reader.readNext()) != null && names.size() < 10_000) {
+                names.add(line[1]);
+            }
+        }
+        queries = names.toArray(String[]::new);
+    }
+
+    private String nextQuery() {
+        String query = queries[next];
+        next = (next + 1) % queries.length;
+        return query;
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return QueryNormalizer.normalize(nextQuery());
+    }
+
+    @Benchmark
+    public String legacyRegex() {
+        String processedQuery = nextQuery().trim().toLowerCase();
+        processedQuery = Normalizer.normalize(processedQuery, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "");
+        return processedQuery.replaceAll("[^a-z0-9\\s-]", "");
+    }
+}
@@ -0,0 +1,123 @@
+package com.madhu.qou.benchmark;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.madhu.qou.config.ElasticsearchConfig;
+import com.madhu.qou.config.HttpClientSettings;
+import com.madhu.qou.config.NerClientConfig;
+import com.madhu.qou.dto.domain.Product;
+import com.madhu.qou.dto.ner.NerResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the HTTP transports: 64 concurrent callers against a local server that answers
+ * NER and search requests after a fixed 20 ms service time. With {@code default} clients
+ * throughput is capped by the connection pools (RestClient: 10 per route; HttpURLConnection:
+ * 5 kept-alive per host, new connections beyond that); {@code pooled} uses the application's
+ * transports, so the ceiling moves to the server's concurrency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(64)
+public class TransportBenchmark {
+
+    // Roughly a real search or NER call; long enough that the client pools, not the CPU, set the ceiling
+    private static final long SERVICE_TIME_MILLIS = 20;
+
+    private static final String NER_BODY = "{\"entities\":[{\"text\":\"fage\",\"label\":\"ORG\"}],\"model_version\":\"bench\"}";
+    private static final String SEARCH_BODY = """
+            {"took":1,"timed_out":false,"_shards":{"total":1,"successful":1,"skipped":0,"failed":0},
+             "hits":{"total":{"value":1,"relation":"eq"},"max_score":1.0,
+                     "hits":[{"_index":"products_index","_id":"instacart-1","_score":1.0,
+                              "_source":{"product_id":"instacart-1","name":"Fage Total 0% Greek Yogurt","brand":"Fage"}}]}}
+            """;
+
+    @Param({"default", "pooled"})
+    public String transport;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private RestTemplate nerRestTemplate;
+    private RestClient restClient;
+    private ElasticsearchClient esClient;
+    private String nerUrl;
+    private final SearchRequest searchRequest = SearchRequest.of(s -> s.index("products_index").query(q -> q.match(m -> m.field("name").query("fage"))));
+
+    @Setup
+    public void setUp() throws IOException {
+        // Without TCP_NODELAY, delayed ACKs add ~40 ms per response and hide the client pools
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        serverExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.setExecutor(serverExecutor);
+        server.createContext("/ent", exchange -> respond(exchange, NER_BODY));
+        server.createContext("/products_index/_search", exchange -> respond(exchange, SEARCH_BODY));
+        server.start();
+
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        nerUrl = baseUrl + "/ent";
+        if ("pooled".equals(transport)) {
+            HttpClientSettings settings = new HttpClientSettings(64, 128, Duration.ofSeconds(60),
+                    Duration.ofSeconds(1), Duration.ofSeconds(5), Duration.ofSeconds(1));
+            nerRestTemplate = NerClientConfig.restTemplate(settings, new SimpleMeterRegistry());
+            restClient = ElasticsearchConfig.restClient(baseUrl, settings, false, new SimpleMeterRegistry());
+        } else {
+            nerRestTemplate = new RestTemplate();
+            restClient = RestClient.builder(HttpHost.create(baseUrl)).build();
+        }
+        esClient = new ElasticsearchClient(new RestClientTransport(restClient, new JacksonJsonpMapper()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        restClient.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        try {
+            Thread.sleep(SERVICE_TIME_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("X-Elastic-Product", "Elasticsearch");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Benchmark
+    public NerResponse nerCall() {
+        return nerRestTemplate.postForObject(nerUrl, Map.of("text", "fage yogurt"), NerResponse.class);
+    }
+
+    @Benchmark
+    public SearchResponse<Product> esSearch() throws IOException {
+        return esClient.search(searchRequest, Product.class);
+    }
+}
@@ -0,0 +1,118 @@
+package com.madhu.qou.service;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.madhu.qou.benchmark.BenchmarkFixtures;
+import com.madhu.qou.dto.FacetedSearchResponse;
+import com.madhu.qou.dto.domain.Product;
+import com.madhu.qou.service.catalog.CatalogDictionary;
+import com.madhu.qou.service.ingestion.PreprocessingService;
+import com.madhu.qou.service.rewriting.QueryRewriteService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * From a 10-hit Elasticsearch response body to the /search response bytes. {@code full} reads
+ * the whole {@code _source} (with {@code search_aid} and {@code content_hash}) into a typed
+ * SearchResponse of {@link Product}s, as before _source filtering; {@code filtered} does the same
+ * without those fields; {@code stream} transcodes the filtered body token by token
+ * ({@link SearchResponseTranscoder}). Body and response sizes are printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HitSerializationBenchmark {
+
+    @Param({"full", "filtered", "stream"})
+    public String source;
+
+    private final JacksonJsonpMapper jsonpMapper = new JacksonJsonpMapper();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final JsonpDeserializer<SearchResponse<Product>> deserializer =
+            SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.of(Product.class));
+    private QueryUnderstandingService queryUnderstandingService;
+    private byte[] esBody;
+
+    @Setup
+    public void setUp() throws IOException {
+        queryUnderstandingService = new QueryUnderstandingService(null, null, new PreprocessingService(), null, new QueryRewriteService(new CatalogDictionary()), null, null, null, null, null, null, null);
+        List<String> names = BenchmarkFixtures.productNames();
+        ArrayNode hits = objectMapper.createArrayNode();
+        for (int i = 0; i < 10; i++) {
+            String name = names.get(i * 97);
+            ObjectNode doc = objectMapper.createObjectNode()
+                    .put("product_id", "instacart-" + i)
+                    .put("name", name)
+                    .put("description", "")
+                    .put("brand", "Private Label");
+            doc.putArray("categories").add("yogurt");
+            doc.putArray("attributes");
+            doc.putObject("grocery_attributes").put("is_organic", name.toLowerCase().contains("organic")).putArray("dietary");
+            if ("full".equals(source)) {
+                doc.put("search_aid", (name + " yogurt dairy eggs ").repeat(3).toLowerCase());
+                doc.put("content_hash", "6f1c2a9b0d4e7f3a8c5b2e1d0a9f8e7d");
+            }
+            double score = 3.2 - i * 0.1;
+            ObjectNode hit = hits.addObject().put("_index", "products_index").put("_id", "instacart-" + i).putNull("_score");
+            hit.set("_source", doc);
+            hit.putArray("sort").add(score).add("instacart-" + i);
+        }
+        ObjectNode body = objectMapper.createObjectNode().put("took", 3).put("timed_out", false);
+        body.putObject("_shards").put("total", 1).put("successful", 1).put("skipped", 0).put("failed", 0);
+        ObjectNode hitsNode = body.putObject("hits");
+        hitsNode.putObject("total").put("value", 1000).put("relation", "gte");
+        hitsNode.putNull("max_score");
+        hitsNode.set("hits", hits);
+        // The typed client asks for typed_keys (sterms#by_brand); the streaming request does not
+        String prefix = "stream".equals(source) ? "" : "sterms#";
+        ObjectNode aggregations = body.putObject("aggregations");
+        termsAggregation(aggregations.putObject(prefix + "by_category"), "yogurt", "milk", "cream", "butter", "eggs");
+        termsAggregation(aggregations.putObject(prefix + "by_brand"), "Private Label", "Fage", "Horizon Organic");
+        esBody = objectMapper.writeValueAsBytes(body);
+
+        System.out.printf("%n[%s] Elasticsearch body %d bytes, /search response %d bytes%n", source, esBody.length, readAndWrite().length);
+    }
+
+    private static void termsAggregation(ObjectNode aggregation, String... keys) {
+        aggregation.put("doc_count_error_upper_bound", 0).put("sum_other_doc_count", 0);
+        ArrayNode buckets = aggregation.putArray("buckets");
+        for (int i = 0; i < keys.length; i++) {
+            buckets.addObject().put("key", keys[i]).put("doc_count", 100 - i * 10);
+        }
+    }
+
+    @Benchmark
+    public byte[] readAndWrite() throws IOException {
+        if ("stream".equals(source)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+            try (JsonParser in = jsonFactory.createParser(new ByteArrayInputStream(esBody));
+                 JsonGenerator generator = jsonFactory.createGenerator(out)) {
+                generator.writeStartObject();
+                SearchResponseTranscoder.Result result = SearchResponseTranscoder.transcode(in, generator, 10);
+                if (result.nextCursor() != null) {
+                    generator.writeStringField("nextCursor", result.nextCursor());
+                }
+                QueryUnderstandingService.writeFacets(generator, result.buckets());
+                generator.writeEndObject();
+            }
+            return out.toByteArray();
+        }
+        SearchResponse<Product> response = deserializer.deserialize(jsonpMapper.jsonProvider().createParser(new ByteArrayInputStream(esBody)), jsonpMapper);
+        List<Product> products = response.hits().hits().stream().map(hit -> hit.source()).toList();
+        return objectMapper.writeValueAsBytes(new FacetedSearchResponse(products, null,
+                queryUnderstandingService.parseFacets(response.aggregations()), null, null, null));
+    }
+}
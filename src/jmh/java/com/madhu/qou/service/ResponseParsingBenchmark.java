@@ -0,0 +1,50 @@
+package com.madhu.qou.service;
+
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Suggestion;
+import com.madhu.qou.benchmark.BenchmarkFixtures;
+import com.madhu.qou.dto.Entity;
+import com.madhu.qou.dto.Facet;
+import com.madhu.qou.dto.domain.Product;
+import com.madhu.qou.service.catalog.CatalogDictionary;
+import com.madhu.qou.service.ingestion.PreprocessingService;
+import com.madhu.qou.service.rewriting.QueryRewriteService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Facet parsing and "did you mean" assembly on canned Elasticsearch responses. Lives in the
+ * service package because both methods are package-private in {@link QueryUnderstandingService}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResponseParsingBenchmark {
+
+    private QueryUnderstandingService queryUnderstandingService;
+    private SearchResponse<Product> hitsResponse;
+    private List<Suggestion<Product>> spellCheckSuggestions;
+    private final List<Entity> entities = List.of(new Entity("avocado", "PRODUCT_TYPE", 7, 14));
+
+    @Setup
+    public void setUp() throws Exception {
+        var esClient = BenchmarkFixtures.stubElasticsearchClient();
+        queryUnderstandingService = new QueryUnderstandingService(esClient, null, new PreprocessingService(), null, new QueryRewriteService(new CatalogDictionary()), null, null, null, null, null, null, null);
+        hitsResponse = esClient.search(SearchRequest.of(s -> s.index("products_index")), Product.class);
+        spellCheckSuggestions = esClient.search(SearchRequest.of(s -> s.index("products_index")
+                .suggest(sug -> sug.text("zerohits"))), Product.class).suggest().get("spell-check");
+    }
+
+    @Benchmark
+    public List<Facet> parseFacets() {
+        return queryUnderstandingService.parseFacets(hitsResponse.aggregations());
+    }
+
+    @Benchmark
+    public String buildSuggestionString() {
+        return queryUnderstandingService.buildSuggestionString(spellCheckSuggestions, entities);
+    }
+}
@@ -0,0 +1,78 @@
+package com.madhu.qou.service.vector;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One kNN lookup (k = 50, the hybrid fusion window) over catalog-sized int8 vectors of the
+ * dimension of the spaCy model's word vectors: the HNSW graph at several {@code ef} against an
+ * exact scan. Sampled, so the JMH report carries p99. Random vectors have no cluster structure
+ * and are the hard case for a graph index; the recall@50 of each {@code ef} against the exact
+ * scan is printed at setup. Embedded catalog queries are compared with the lexical path in the
+ * loadTest HybridSearchComparisonTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VectorSearchBenchmark {
+
+    private static final int PRODUCTS = 20_000;
+    private static final int DIMENSIONS = 300;
+    private static final int K = 50;
+    private static final int QUERIES = 256;
+
+    @Param({"50", "100", "200"})
+    public int ef;
+
+    private HnswIndex index;
+    private float[][] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        float[][] vectors = new float[PRODUCTS][];
+        for (int i = 0; i < PRODUCTS; i++) {
+            vectors[i] = unitGaussian(random);
+        }
+        long start = System.nanoTime();
+        index = HnswIndex.build(vectors, 16, 64, 42);
+        queries = new float[QUERIES][];
+        double recall = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = unitGaussian(random);
+            int[] exact = index.exactSearch(queries[i], K);
+            int[] approximate = index.search(queries[i], K, ef);
+            recall += Arrays.stream(approximate).filter(node -> Arrays.stream(exact).anyMatch(e -> e == node)).count() / (double) K;
+        }
+        System.out.printf("%nHNSW over %d x %d: built in %d ms, %d KB; recall@%d at ef %d: %.3f%n", PRODUCTS, DIMENSIONS,
+                (System.nanoTime() - start) / 1_000_000, index.bytes() / 1024, K, ef, recall / QUERIES);
+    }
+
+    @Benchmark
+    public int[] graph() {
+        return index.search(queries[next++ & (QUERIES - 1)], K, ef);
+    }
+
+    @Benchmark
+    public int[] exactScan() {
+        return index.exactSearch(queries[next++ & (QUERIES - 1)], K);
+    }
+
+    private static float[] unitGaussian(SplittableRandom random) {
+        float[] vector = new float[DIMENSIONS];
+        double norm = 0;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            double u = random.nextDouble(), v = random.nextDouble();
+            vector[i] = (float) (Math.sqrt(-2 * Math.log(1 - u)) * Math.cos(2 * Math.PI * v));
+            norm += vector[i] * vector[i];
+        }
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] /= (float) Math.sqrt(norm);
+        }
+        return vector;
+    }
+}
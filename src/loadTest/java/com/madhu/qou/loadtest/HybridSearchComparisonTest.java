@@ -0,0 +1,129 @@
+package com.madhu.qou.loadtest;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.madhu.qou.dto.*;
+import com.madhu.qou.dto.domain.Product;
+import com.madhu.qou.service.DataSeeder;
+import com.madhu.qou.service.SearchEngine;
+import com.madhu.qou.service.catalog.CatalogDictionary;
+import com.madhu.qou.service.ingestion.PreprocessingService;
+import com.madhu.qou.service.intent.CatalogEntityRecognizer;
+import com.madhu.qou.service.local.LocalSearchEngine;
+import com.madhu.qou.service.rewriting.QueryRewriteService;
+import com.madhu.qou.service.vector.ReciprocalRankFusion;
+import com.madhu.qou.service.vector.SemanticRetriever;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Lexical against hybrid retrieval ({@code search.semantic.enabled}) over the same in-process
+ * index, without Elasticsearch: how often each finds nothing, how much their first pages
+ * overlap, the recall of the HNSW graph against exact kNN, and p50/p99 latency of each path.
+ * The hybrid time includes the kNN lookup, which the service runs in parallel with NER, so it is
+ * an upper bound. Needs word vectors (see build_vectors.py):
+ * {@code ./gradlew loadTest --tests '*HybridSearchComparisonTest' -Ploadtest.vectors=file:word_vectors.txt.gz};
+ * skipped without them.
+ */
+class HybridSearchComparisonTest {
+
+    private static final int QUERIES = 500;
+    private static final int TIMED_ROUNDS = 20;
+    private static final int WINDOW = 50;
+    private static final int EF_SEARCH = 100;
+    private static final double MIN_GRAPH_RECALL = 0.9;
+
+    private record Timed(List<String> ids, long micros) {}
+
+    @Test
+    void hybridAgainstLexical() throws Exception {
+        String vectors = System.getProperty("loadtest.vectors", "");
+        assumeTrue(!vectors.isBlank(), "-Ploadtest.vectors=<word vectors> is not set");
+
+        CatalogDictionary catalogDictionary = new CatalogDictionary();
+        DataSeeder dataSeeder = new DataSeeder(null, null, catalogDictionary);
+        LocalSearchEngine engine = new LocalSearchEngine(dataSeeder, SearchEngine.LOCAL);
+        engine.build();
+        SemanticRetriever retriever = new SemanticRetriever(dataSeeder, true, vectors, EF_SEARCH);
+        retriever.rebuild();
+        assertThat(retriever.isReady()).isTrue();
+
+        PreprocessingService preprocessingService = new PreprocessingService();
+        CatalogEntityRecognizer recognizer = new CatalogEntityRecognizer(preprocessingService, catalogDictionary);
+        QueryRewriteService queryRewriteService = new QueryRewriteService(catalogDictionary);
+        List<UnderstoodQuery> queries = QueryMix.build(QueryMix.requestLog(), QUERIES, 1.0, 42)
+                .queries().stream()
+                .map(query -> preprocessingService.process(new CustomSearchRequest(query, new UserContext("hybrid", "hybrid"))))
+                .map(preprocessed -> new UnderstoodQuery(preprocessed, new Intent("find_product"), recognizer.recognize(preprocessed.normalizedQuery())))
+                .toList();
+
+        int lexicalZeroHits = 0;
+        int hybridZeroHits = 0;
+        double overlap = 0;
+        double graphRecall = 0;
+        int withNeighbours = 0;
+        for (UnderstoodQuery query : queries) {
+            List<String> lexical = lexical(engine, queryRewriteService, query).ids();
+            List<String> hybrid = hybrid(engine, queryRewriteService, retriever, query).ids();
+            lexicalZeroHits += lexical.isEmpty() ? 1 : 0;
+            hybridZeroHits += hybrid.isEmpty() ? 1 : 0;
+            Set<String> hybridIds = new HashSet<>(hybrid);
+            overlap += lexical.isEmpty() ? 0 : lexical.stream().filter(hybridIds::contains).count() / (double) lexical.size();
+
+            String normalized = query.preprocessedQuery().normalizedQuery();
+            List<String> exact = retriever.exactNearest(normalized, WINDOW);
+            if (!exact.isEmpty()) {
+                Set<String> approximate = new HashSet<>(retriever.nearest(normalized, WINDOW));
+                graphRecall += exact.stream().filter(approximate::contains).count() / (double) exact.size();
+                withNeighbours++;
+            }
+        }
+
+        Histogram lexicalMicros = new Histogram(3);
+        Histogram hybridMicros = new Histogram(3);
+        for (int round = -2; round < TIMED_ROUNDS; round++) {  // two untimed warm-up rounds
+            for (UnderstoodQuery query : queries) {
+                long lexical = lexical(engine, queryRewriteService, query).micros();
+                long hybrid = hybrid(engine, queryRewriteService, retriever, query).micros();
+                if (round >= 0) {
+                    lexicalMicros.recordValue(lexical);
+                    hybridMicros.recordValue(hybrid);
+                }
+            }
+        }
+
+        double meanGraphRecall = graphRecall / Math.max(1, withNeighbours);
+        System.out.printf("Hybrid vs lexical over %d queries: zero hits %d -> %d, mean top-10 overlap %.3f, "
+                        + "graph recall@%d %.3f (%d queries with neighbours)%n",
+                queries.size(), lexicalZeroHits, hybridZeroHits, overlap / queries.size(), WINDOW, meanGraphRecall, withNeighbours);
+        System.out.printf("  lexical p50 %.3f ms, p99 %.3f ms; hybrid p50 %.3f ms, p99 %.3f ms%n",
+                lexicalMicros.getValueAtPercentile(50) / 1000.0, lexicalMicros.getValueAtPercentile(99) / 1000.0,
+                hybridMicros.getValueAtPercentile(50) / 1000.0, hybridMicros.getValueAtPercentile(99) / 1000.0);
+        assertThat(meanGraphRecall).isGreaterThanOrEqualTo(MIN_GRAPH_RECALL);
+        assertThat(hybridZeroHits).isLessThanOrEqualTo(lexicalZeroHits);
+    }
+
+    private static Timed lexical(LocalSearchEngine engine, QueryRewriteService queryRewriteService, UnderstoodQuery query) {
+        long start = System.nanoTime();
+        SearchResponse<Product> response = engine.search(queryRewriteService.buildEsQuery(query));
+        return new Timed(response.hits().hits().stream().map(Hit::id).toList(), (System.nanoTime() - start) / 1000);
+    }
+
+    private static Timed hybrid(LocalSearchEngine engine, QueryRewriteService queryRewriteService,
+                                SemanticRetriever retriever, UnderstoodQuery query) {
+        long start = System.nanoTime();
+        List<String> neighbours = retriever.nearest(query.preprocessedQuery().normalizedQuery(), WINDOW);
+        List<Hit<Product>> hits = neighbours.isEmpty()
+                ? engine.search(queryRewriteService.buildEsQuery(query)).hits().hits()
+                : ReciprocalRankFusion.fuse(engine.search(queryRewriteService.buildHybridQuery(query, SearchOptions.DEFAULT, neighbours, WINDOW)).hits().hits(),
+                        neighbours, 0, SearchOptions.DEFAULT.size());
+        return new Timed(hits.stream().map(Hit::id).toList(), (System.nanoTime() - start) / 1000);
+    }
+}
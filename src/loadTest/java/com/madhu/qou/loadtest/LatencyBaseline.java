@@ -0,0 +1,72 @@
+package com.madhu.qou.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * p99 latency and throughput per endpoint, stored as JSON next to the load tests. A run regresses
+ * when its p99 is more than {@code tolerance} above the baseline or its throughput more than
+ * {@code tolerance} below it.
+ */
+final class LatencyBaseline {
+
+    record Entry(double p99Millis, double throughput) {}
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final Path path;
+    private final Map<String, Entry> entries;
+
+    private LatencyBaseline(Path path, Map<String, Entry> entries) {
+        this.path = path;
+        this.entries = entries;
+    }
+
+    static LatencyBaseline load(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return new LatencyBaseline(path, new TreeMap<>());
+        }
+        return new LatencyBaseline(path, OBJECT_MAPPER.readValue(path.toFile(), new TypeReference<TreeMap<String, Entry>>() {}));
+    }
+
+    /** Regression messages for the result; empty when it holds the baseline (see {@link #has}). */
+    List<String> regressions(OpenModelLoad.Result result, double tolerance) {
+        Entry baseline = entries.get(result.name());
+        List<String> regressions = new ArrayList<>();
+        if (baseline == null) {
+            return regressions;
+        }
+        double p99 = result.percentileMillis(99.0);
+        if (p99 > baseline.p99Millis() * (1 + tolerance)) {
+            regressions.add("%s p99 %.1f ms exceeds baseline %.1f ms by more than %.0f%%"
+                    .formatted(result.name(), p99, baseline.p99Millis(), tolerance * 100));
+        }
+        if (result.throughput() < baseline.throughput() * (1 - tolerance)) {
+            regressions.add("%s throughput %.1f/s is below baseline %.1f/s by more than %.0f%%"
+                    .formatted(result.name(), result.throughput(), baseline.throughput(), tolerance * 100));
+        }
+        return regressions;
+    }
+
+    boolean has(String name) {
+        return entries.containsKey(name);
+    }
+
+    void record(OpenModelLoad.Result result) {
+        entries.put(result.name(), new Entry(result.percentileMillis(99.0), result.throughput()));
+    }
+
+    void save() throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        OBJECT_MAPPER.writeValue(path.toFile(), entries);
+    }
+}
@@ -0,0 +1,107 @@
+package com.madhu.qou.loadtest;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.madhu.qou.dto.CustomSearchRequest;
+import com.madhu.qou.dto.UnderstoodQuery;
+import com.madhu.qou.dto.UserContext;
+import com.madhu.qou.dto.domain.Product;
+import com.madhu.qou.service.DataSeeder;
+import com.madhu.qou.service.SearchEngine;
+import com.madhu.qou.service.ingestion.PreprocessingService;
+import com.madhu.qou.service.intent.IntentAndEntityService;
+import com.madhu.qou.service.local.LocalSearchEngine;
+import com.madhu.qou.service.rewriting.QueryRewriteService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.elasticsearch.ElasticsearchContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the same rewritten requests against Elasticsearch and against {@link LocalSearchEngine}
+ * built from the same products, and checks that the local engine finds the same number of
+ * products and (nearly) the same first page. The analyzer is an approximation of the standard
+ * analyzer, so a small share of queries may differ; the mismatches are printed.
+ * Run with {@code ./gradlew loadTest --tests '*LocalSearchParityTest'}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Testcontainers
+class LocalSearchParityTest {
+
+    private static final int QUERIES = 500;
+    private static final double MIN_TOTAL_AGREEMENT = 0.95;
+    private static final double MIN_TOP_HITS_OVERLAP = 0.9;
+
+    @Container
+    static final ElasticsearchContainer elasticsearch = new ElasticsearchContainer(
+            "docker.elastic.co/elasticsearch/elasticsearch:8.14.0")
+            .withEnv("xpack.security.enabled", "false");
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.elasticsearch.uris", elasticsearch::getHttpHostAddress);
+        registry.add("ner.mode", () -> "local");
+        registry.add("ner.store.enabled", () -> "false");
+        registry.add("search.query-log.enabled", () -> "false");
+    }
+
+    @Autowired
+    private ElasticsearchClient esClient;
+    @Autowired
+    private DataSeeder dataSeeder;
+    @Autowired
+    private PreprocessingService preprocessingService;
+    @Autowired
+    private IntentAndEntityService intentAndEntityService;
+    @Autowired
+    private QueryRewriteService queryRewriteService;
+
+    @Test
+    void localEngineAgreesWithElasticsearch() throws Exception {
+        LocalSearchEngine localSearchEngine = new LocalSearchEngine(dataSeeder, SearchEngine.LOCAL);
+        localSearchEngine.build();
+        List<String> queries = QueryMix.build(QueryMix.requestLog(), QUERIES, 1.0, 42).queries();
+
+        int sameTotals = 0;
+        double overlap = 0;
+        List<String> mismatches = new ArrayList<>();
+        for (String query : queries) {
+            UnderstoodQuery understoodQuery = intentAndEntityService.process(
+                    preprocessingService.process(new CustomSearchRequest(query, new UserContext("parity", "parity"))));
+            SearchRequest request = queryRewriteService.buildEsQuery(understoodQuery);
+            SearchResponse<Product> expected = esClient.search(request, Product.class);
+            SearchResponse<Product> actual = localSearchEngine.search(request);
+
+            List<String> expectedIds = expected.hits().hits().stream().map(Hit::id).toList();
+            Set<String> actualIds = new HashSet<>(actual.hits().hits().stream().map(Hit::id).toList());
+            long shared = expectedIds.stream().filter(actualIds::contains).count();
+            overlap += expectedIds.isEmpty() ? (actualIds.isEmpty() ? 1 : 0) : shared / (double) expectedIds.size();
+            if (expected.hits().total().value() == actual.hits().total().value()) {
+                sameTotals++;
+            } else {
+                mismatches.add("'%s': %d vs %d hits".formatted(query, expected.hits().total().value(), actual.hits().total().value()));
+            }
+        }
+
+        double totalAgreement = sameTotals / (double) queries.size();
+        double meanOverlap = overlap / queries.size();
+        System.out.printf("Local engine parity over %d queries: totals agree for %.1f%%, mean top-%d overlap %.3f%n",
+                queries.size(), totalAgreement * 100, 10, meanOverlap);
+        mismatches.stream().limit(20).forEach(mismatch -> System.out.println("  " + mismatch));
+        assertThat(totalAgreement).isGreaterThanOrEqualTo(MIN_TOTAL_AGREEMENT);
+        assertThat(meanOverlap).isGreaterThanOrEqualTo(MIN_TOP_HITS_OVERLAP);
+    }
+}
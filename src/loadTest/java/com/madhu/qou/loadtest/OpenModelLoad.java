@@ -0,0 +1,108 @@
+package com.madhu.qou.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Open-model load: requests are sent at a fixed arrival rate whether or not earlier ones have
+ * answered, and each latency is measured from the request's <em>intended</em> send time. A stall
+ * in the server therefore shows up in the percentiles instead of silently slowing the generator
+ * down (coordinated omission).
+ */
+final class OpenModelLoad {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    record Result(String name, double targetRate, long sent, long errors, double throughput, Histogram latencyMicros) {
+
+        double percentileMillis(double percentile) {
+            return latencyMicros.getValueAtPercentile(percentile) / 1000.0;
+        }
+    }
+
+    private final HttpClient client;
+    private final int maxInFlight;
+
+    OpenModelLoad(HttpClient client, int maxInFlight) {
+        this.client = client;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Sends {@code ratePerSecond} requests per second for {@code warmUp + duration}; only requests
+     * intended to start after the warm-up are measured. A request that would exceed
+     * {@code maxInFlight} is not sent and counts as an error.
+     */
+    Result run(String name, double ratePerSecond, Duration warmUp, Duration duration, long seed,
+               Function<Random, HttpRequest> requests) {
+        Random random = new Random(seed);
+        Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong lastCompletion = new AtomicLong();
+
+        long intervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        long start = System.nanoTime();
+        long measureFrom = start + warmUp.toNanos();
+        long end = measureFrom + duration.toNanos();
+        long sent = 0;
+
+        try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long intended = start + i * intervalNanos;
+                if (intended >= end) {
+                    break;
+                }
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                boolean measured = intended >= measureFrom;
+                HttpRequest request = requests.apply(random);
+                if (measured) {
+                    sent++;
+                }
+                if (inFlight.incrementAndGet() > maxInFlight) {
+                    inFlight.decrementAndGet();
+                    if (measured) {
+                        errors.incrementAndGet();
+                    }
+                    continue;
+                }
+                senders.execute(() -> {
+                    boolean ok;
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        ok = response.statusCode() / 100 == 2;
+                    } catch (Exception e) {
+                        ok = false;
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                    long now = System.nanoTime();
+                    if (measured) {
+                        latencies.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, (now - intended) / 1_000));
+                        (ok ? succeeded : errors).incrementAndGet();
+                        lastCompletion.accumulateAndGet(now, Math::max);
+                    }
+                });
+            }
+        }
+        double measuredSeconds = (Math.max(end, lastCompletion.get()) - measureFrom) / 1e9;
+        return new Result(name, ratePerSecond, sent, errors.get(), succeeded.get() / measuredSeconds, latencies);
+    }
+}
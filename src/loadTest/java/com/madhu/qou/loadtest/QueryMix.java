@@ -0,0 +1,143 @@
+package com.madhu.qou.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.RFC4180ParserBuilder;
+import com.opencsv.exceptions.CsvValidationException;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Skewed, reproducible mix of search queries and type-ahead prefixes.
+ * <p>
+ * Queries come from a request log and products.csv and are drawn from a Zipf distribution over
+ * their rank, so a small head of queries dominates as it does in production traffic.
+ */
+final class QueryMix {
+
+    private final List<String> queries;
+    private final List<String> prefixes;
+    private final double[] queryWeights;
+    private final double[] prefixWeights;
+
+    private QueryMix(List<String> queries, List<String> prefixes, double zipfExponent) {
+        this.queries = queries;
+        this.prefixes = prefixes;
+        this.queryWeights = cumulativeZipf(queries.size(), zipfExponent);
+        this.prefixWeights = cumulativeZipf(prefixes.size(), zipfExponent);
+    }
+
+    private static double[] cumulativeZipf(int size, double exponent) {
+        double[] cumulative = new double[size];
+        double total = 0;
+        for (int rank = 0; rank < size; rank++) {
+            total += 1.0 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = total;
+        }
+        for (int rank = 0; rank < size; rank++) {
+            cumulative[rank] /= total;
+        }
+        return cumulative;
+    }
+
+    /** The JSON-lines log named by {@code -Ploadtest.queries}; null, so only catalog queries are used, when unset. */
+    static Path requestLog() {
+        String location = System.getProperty("loadtest.queries");
+        return location == null || location.isBlank() ? null : Path.of(location);
+    }
+
+    /**
+     * Logged queries first ({@code rawQuery} request bodies or {@code query} log events from a
+     * JSON-lines file, when one is given), then queries made from the first two or three words of
+     * product names in products.csv, shuffled with the seed. A given log must exist and hold queries.
+     */
+    static QueryMix build(Path requestLog, int distinctQueries, double zipfExponent, long seed) throws IOException {
+        Set<String> queries = new LinkedHashSet<>(loggedQueries(requestLog));
+        List<String> catalog = catalogQueries();
+        Collections.shuffle(catalog, new Random(seed));
+        queries.addAll(catalog);
+        List<String> head = List.copyOf(queries).subList(0, Math.min(distinctQueries, queries.size()));
+        Set<String> prefixes = new LinkedHashSet<>();
+        for (String query : head) {
+            for (int length = 2; length <= Math.min(5, query.length()); length++) {
+                prefixes.add(query.substring(0, length));
+            }
+        }
+        return new QueryMix(head, List.copyOf(prefixes), zipfExponent);
+    }
+
+    private static List<String> loggedQueries(Path requestLog) throws IOException {
+        List<String> queries = new ArrayList<>();
+        if (requestLog == null) {
+            return queries;
+        }
+        ObjectMapper objectMapper = new ObjectMapper();
+        try (BufferedReader reader = Files.newBufferedReader(requestLog)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    JsonNode event = objectMapper.readTree(line);
+                    JsonNode query = event.has("rawQuery") ? event.path("rawQuery") : event.path("query");
+                    if (query.isTextual() && !query.asText().isBlank()) {
+                        queries.add(query.asText().trim());
+                    }
+                } catch (IOException e) {
+                    // Not a request or query log line
+                }
+            }
+        }
+        if (queries.isEmpty()) {
+            throw new IOException(requestLog + " has no rawQuery or query lines");
+        }
+        return queries;
+    }
+
+    private static List<String> catalogQueries() throws IOException {
+        Set<String> queries = new LinkedHashSet<>();
+        // RFC 4180, as in DataSeeder: the default parser's backslash escapes merge thousands of rows
+        try (CSVReader reader = new CSVReaderBuilder(new InputStreamReader(new ClassPathResource("data/products.csv").getInputStream(), StandardCharsets.UTF_8))
+                .withCSVParser(new RFC4180ParserBuilder().build())
+                .build()) {
+            reader.readNext();
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                String[] words = line[1].toLowerCase(Locale.ROOT).split("\\s+");
+                queries.add(String.join(" ", Arrays.copyOf(words, Math.min(words.length, 2 + (line[0].hashCode() & 1)))));
+            }
+        } catch (CsvValidationException e) {
+            throw new IOException("products.csv is malformed", e);
+        }
+        return new ArrayList<>(queries);
+    }
+
+    /** The distinct queries, most frequent rank first. */
+    List<String> queries() {
+        return queries;
+    }
+
+    String nextQuery(Random random) {
+        return queries.get(rank(random, queryWeights));
+    }
+
+    String nextPrefix(Random random) {
+        return prefixes.get(rank(random, prefixWeights));
+    }
+
+    private static int rank(Random random, double[] cumulativeWeights) {
+        int rank = Arrays.binarySearch(cumulativeWeights, random.nextDouble());
+        return Math.min(rank >= 0 ? rank : -rank - 1, cumulativeWeights.length - 1);
+    }
+
+    int distinctQueries() {
+        return queries.size();
+    }
+}
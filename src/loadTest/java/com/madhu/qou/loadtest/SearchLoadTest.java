@@ -0,0 +1,164 @@
+package com.madhu.qou.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.madhu.qou.service.catalog.CatalogDictionary;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.elasticsearch.ElasticsearchContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * End-to-end load test of {@code /api/v1/search} and {@code /api/v1/suggest} against a
+ * Testcontainers Elasticsearch and an in-process stub NER server. Run with {@code ./gradlew loadTest};
+ * rates, durations and the injected NER latency are {@code -Ploadtest.*} properties (see
+ * build.gradle.kts). Fails when p99 or throughput regress against load-baseline.json, or when an
+ * endpoint has no baseline yet; {@code -Ploadtest.update-baseline=true} records the run instead.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Testcontainers
+class SearchLoadTest {
+
+    @Container
+    static final ElasticsearchContainer elasticsearch = new ElasticsearchContainer(
+            "docker.elastic.co/elasticsearch/elasticsearch:8.14.0")
+            .withEnv("xpack.security.enabled", "false");
+
+    private static final StubNerServer ner = startNer();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.elasticsearch.uris", elasticsearch::getHttpHostAddress);
+        registry.add("ner.api.url", ner::url);
+        registry.add("ner.store.enabled", () -> "false");
+        registry.add("search.query-log.enabled", () -> "false");
+    }
+
+    @LocalServerPort
+    private int port;
+
+    private static StubNerServer startNer() {
+        try {
+            // Same brands the app falls back to, so the stub tags a realistic share of queries
+            Set<String> brands = new CatalogDictionary().knownBrands().stream()
+                    .map(brand -> brand.toLowerCase(Locale.ROOT))
+                    .collect(Collectors.toSet());
+            return new StubNerServer(brands, setting("ner.latency", Duration.ofMillis(20)), setting("ner.jitter", Duration.ofMillis(10)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @AfterAll
+    static void stopNer() {
+        ner.close();
+    }
+
+    @Test
+    void searchAndSuggestHoldTheirBaseline() throws IOException {
+        QueryMix mix = QueryMix.build(QueryMix.requestLog(),
+                intSetting("distinct-queries", 2_000), doubleSetting("zipf-exponent", 1.0), 42);
+        Duration warmUp = setting("warmup", Duration.ofSeconds(15));
+        Duration duration = setting("duration", Duration.ofSeconds(60));
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        OpenModelLoad load = new OpenModelLoad(client, intSetting("max-in-flight", 512));
+        String base = "http://localhost:" + port + "/api/v1";
+
+        List<OpenModelLoad.Result> results = List.of(
+                load.run("search", doubleSetting("search.rate", 50), warmUp, duration, 1, random -> HttpRequest.newBuilder(URI.create(base + "/search"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(searchBody(mix.nextQuery(random))))
+                        .build()),
+                load.run("suggest", doubleSetting("suggest.rate", 200), warmUp, duration, 2, random -> HttpRequest.newBuilder(
+                                URI.create(base + "/suggest?prefix=" + URLEncoder.encode(mix.nextPrefix(random), StandardCharsets.UTF_8)))
+                        .GET()
+                        .build()));
+
+        Path reportDir = Path.of(System.getProperty("loadtest.report-dir", "build/load-test"));
+        Files.createDirectories(reportDir);
+        LatencyBaseline baseline = LatencyBaseline.load(Path.of(System.getProperty("loadtest.baseline", "src/loadTest/resources/load-baseline.json")));
+        double tolerance = doubleSetting("tolerance", 0.2);
+        boolean updateBaseline = Boolean.getBoolean("loadtest.update-baseline");
+        List<String> regressions = new ArrayList<>();
+        for (OpenModelLoad.Result result : results) {
+            report(result, reportDir);
+            if (updateBaseline) {
+                baseline.record(result);
+            } else if (!baseline.has(result.name())) {
+                regressions.add("No baseline for %s; run with -Ploadtest.update-baseline=true to record one".formatted(result.name()));
+            } else {
+                regressions.addAll(baseline.regressions(result, tolerance));
+            }
+        }
+        if (updateBaseline) {
+            baseline.save();
+        }
+        assertThat(regressions).isEmpty();
+    }
+
+    // Serialized, not concatenated: a backslash or control character in a query must not turn the
+    // request into a 400 that counts as an error
+    private static String searchBody(String query) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(Map.of("rawQuery", query));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void report(OpenModelLoad.Result result, Path reportDir) throws IOException {
+        System.out.printf("%s: %.0f/s target, %d sent, %d errors, %.1f/s ok, p50 %.1f ms, p99 %.1f ms, p99.9 %.1f ms, max %.1f ms%n",
+                result.name(), result.targetRate(), result.sent(), result.errors(), result.throughput(),
+                result.percentileMillis(50), result.percentileMillis(99), result.percentileMillis(99.9),
+                result.latencyMicros().getMaxValue() / 1000.0);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(reportDir.resolve(result.name() + ".hgrm")), false, StandardCharsets.UTF_8)) {
+            result.latencyMicros().outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static Duration setting(String name, Duration defaultValue) {
+        String value = System.getProperty("loadtest." + name);
+        return value == null || value.isBlank() ? defaultValue : DurationStyle.detectAndParse(value);
+    }
+
+    private static int intSetting(String name, int defaultValue) {
+        return Integer.getInteger("loadtest." + name, defaultValue);
+    }
+
+    private static double doubleSetting(String name, double defaultValue) {
+        String value = System.getProperty("loadtest." + name);
+        return value == null || value.isBlank() ? defaultValue : Double.parseDouble(value);
+    }
+}
@@ -0,0 +1,98 @@
+package com.madhu.qou.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stand-in for the spaCy NER service: answers {@code /ent} and {@code /ent/batch} in the same
+ * JSON shape, tagging known brands as ORG, after an injected latency of {@code base} plus a
+ * uniformly distributed {@code jitter}. Runs in-process on an ephemeral port.
+ */
+final class StubNerServer implements AutoCloseable {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Set<String> brands;
+    private final long baseNanos;
+    private final long jitterNanos;
+    private final HttpServer server;
+
+    StubNerServer(Set<String> brands, Duration base, Duration jitter) throws IOException {
+        this.brands = brands;
+        this.baseNanos = base.toNanos();
+        this.jitterNanos = jitter.toNanos();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/ent", this::handle);
+        server.start();
+    }
+
+    /** The single-text endpoint; {@code /batch} is appended for the batch endpoint. */
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/ent";
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            injectLatency();
+            ObjectNode response = objectMapper.createObjectNode();
+            if (exchange.getRequestURI().getPath().endsWith("/batch")) {
+                ArrayNode results = response.putArray("results");
+                request.path("texts").forEach(text -> results.addObject().set("entities", entities(text.asText())));
+            } else {
+                response.set("entities", entities(request.path("text").asText()));
+            }
+            response.put("model_version", "stub");
+            byte[] body = objectMapper.writeValueAsBytes(response);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private ArrayNode entities(String text) {
+        ArrayNode entities = objectMapper.createArrayNode();
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (String brand : brands) {
+            if (lower.contains(brand)) {
+                entities.addObject().put("text", brand).put("label", "ORG");
+            }
+        }
+        return entities;
+    }
+
+    private void injectLatency() {
+        long nanos = baseNanos + (jitterNanos > 0 ? ThreadLocalRandom.current().nextLong(jitterNanos) : 0);
+        if (nanos > 0) {
+            try {
+                Thread.sleep(Duration.ofNanos(nanos));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -4,9 +4,13 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.annotation.Order;
 import com.opencsv.exceptions.CsvValidationException;
 import java.io.IOException;
+import com.madhu.qou.service.CacheWarmer;
 import com.madhu.qou.service.DataSeeder;
+import com.madhu.qou.service.SearchEngine;
+import org.springframework.beans.factory.annotation.Value;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.info.Info;
 
@@ -25,14 +29,27 @@ public class QoUSystemApplication {
    }
 
    /**
-    * On application startup, seed Elasticsearch indices if they do not already exist.
+    * On application startup, seed Elasticsearch indices if they do not already exist. The local
+    * search engine builds its own index, so nothing is seeded when it is selected.
     */
    @Bean
-   public CommandLineRunner seedDataRunner(DataSeeder dataSeeder) {
+   @Order(1)
+   public CommandLineRunner seedDataRunner(DataSeeder dataSeeder, @Value("${search.engine:elasticsearch}") SearchEngine searchEngine) {
        return args -> {
-           dataSeeder.seedProductIndex();
-           dataSeeder.seedSuggestionIndex();
+           if (searchEngine == SearchEngine.ELASTICSEARCH) {
+               dataSeeder.seedIndices();
+           }
        };
    }
 
+   /**
+    * After seeding, replay the most frequent logged queries to warm the caches. Runners finish
+    * before the readiness probe reports ACCEPTING_TRAFFIC, so the pod only takes traffic once warm.
+    */
+   @Bean
+   @Order(2)
+   public CommandLineRunner warmUpRunner(CacheWarmer cacheWarmer) {
+       return args -> cacheWarmer.warmUp();
+   }
+
 }
@@ -0,0 +1,53 @@
+package com.madhu.qou.client;
+
+import java.util.Arrays;
+
+/**
+ * The most recent call latencies in a fixed ring, with a percentile that is recomputed at most
+ * once per refresh interval so reading it on every call stays cheap.
+ */
+final class LatencyWindow {
+
+    private static final long REFRESH_NANOS = 1_000_000_000L;
+
+    private final long[] samples;
+    private final int minimumSamples;
+    private int next;
+    private int count;
+
+    private long percentileNanos = -1;
+    private double percentileFor = -1;
+    private long computedAtNanos;
+
+    LatencyWindow(int size, int minimumSamples) {
+        this.samples = new long[size];
+        this.minimumSamples = minimumSamples;
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    /**
+     * The given percentile of the recorded latencies, or -1 while fewer than the minimum
+     * number of samples have been seen.
+     */
+    synchronized long percentile(double percentile) {
+        if (count < minimumSamples) {
+            return -1;
+        }
+        long now = System.nanoTime();
+        if (percentileFor != percentile || percentileNanos < 0 || now - computedAtNanos >= REFRESH_NANOS) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            percentileNanos = sorted[Math.min(count - 1, (int) Math.ceil(percentile * count) - 1)];
+            percentileFor = percentile;
+            computedAtNanos = now;
+        }
+        return percentileNanos;
+    }
+}
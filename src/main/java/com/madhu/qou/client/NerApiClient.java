@@ -1,30 +1,197 @@
 package com.madhu.qou.client;
 
 import com.madhu.qou.dto.ner.NerResponse;
+import com.madhu.qou.service.PipelineMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value; // <-- Import
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
+@RequiredArgsConstructor
+@Slf4j
 public class NerApiClient {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private static final NerResponse NO_ENTITIES = new NerResponse(Collections.emptyList());
+
+    // Pooled client from NerClientConfig
+    private final RestTemplate restTemplate;
+    private final NerResultCache nerResultCache;
+    private final NerBatcher nerBatcher;
+    private final PipelineMetrics pipelineMetrics;
+    private final NerCircuitBreaker circuitBreaker;
+
+    private static final int DEFAULT_MAX_CONCURRENT_CALLS = 64;
+
+    // Cache loads run here so the caller can stop waiting when the deadline passes. Platform
+    // threads on purpose: a Caffeine load blocks inside ConcurrentHashMap.compute, which would
+    // pin a virtual thread's carrier for the whole call. A call the caller gave up on still holds
+    // its thread until the HTTP read timeout, so the pool is bounded and hands off directly:
+    // when every thread is busy the call is rejected rather than queued.
+    private final ThreadPoolExecutor loadExecutor = new ThreadPoolExecutor(0, DEFAULT_MAX_CONCURRENT_CALLS,
+            60, TimeUnit.SECONDS, new SynchronousQueue<>(), Thread.ofPlatform().daemon().name("ner-call-", 0).factory());
+    // Individual HTTP attempts (primary and hedge) are plain blocking calls
+    private final ExecutorService attemptExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final LatencyWindow latencies = new LatencyWindow(1024, 50);
 
     // Inject the URL from application properties
     @Value("${ner.api.url}")
     private String nerApiUrl;
 
+    // Latency budget of the whole NER stage, cache miss included
+    @Value("${ner.deadline:150ms}")
+    private Duration deadline = Duration.ofMillis(150);
+
+    @Value("${ner.max-concurrent-calls:" + DEFAULT_MAX_CONCURRENT_CALLS + "}")
+    void setMaxConcurrentCalls(int maxConcurrentCalls) {
+        loadExecutor.setMaximumPoolSize(maxConcurrentCalls);
+    }
+
+    @Value("${ner.hedging.enabled:false}")
+    private boolean hedgingEnabled;
+
+    // Second replica for hedged requests; defaults to the primary URL (another replica behind the load balancer)
+    @Value("${ner.hedging.url:${ner.api.url}}")
+    private String hedgeUrl;
+
+    // Hedge delay until enough latencies are seen to use their p95
+    @Value("${ner.hedging.min-delay:10ms}")
+    private Duration minHedgeDelay = Duration.ofMillis(10);
+
+    /**
+     * Returns the entities for an already-normalized query, never taking longer than
+     * {@code ner.deadline}. Hot queries are answered from {@link NerResultCache}; misses go to the
+     * NER service (coalesced by {@link NerBatcher} when batching is enabled, hedged to a second
+     * replica when hedging is enabled). When the deadline passes, the call fails, the circuit
+     * breaker is open or all {@code ner.max-concurrent-calls} call threads are busy, the result
+     * is empty and the caller proceeds with its own fallbacks. A call that outlives the deadline
+     * keeps running and still fills the cache.
+     */
     public NerResponse extractEntities(String text) {
+        NerResponse cached = nerResultCache.getIfPresent(text);
+        if (cached != null) {
+            return cached;
+        }
+        if (!circuitBreaker.isCallPermitted()) {
+            pipelineMetrics.nerCircuitOpenFallback();
+            return NO_ENTITIES;
+        }
+        CompletableFuture<NerResponse> call;
+        try {
+            call = CompletableFuture.supplyAsync(() -> nerResultCache.get(text, this::callNerApi), loadExecutor);
+        } catch (RejectedExecutionException e) {
+            // As good as a passed deadline: the caller would only wait for a thread to free up
+            log.debug("All {} NER call threads busy for '{}', continuing without remote entities",
+                    loadExecutor.getMaximumPoolSize(), text);
+            pipelineMetrics.nerSaturatedFallback();
+            return NO_ENTITIES;
+        }
         try {
-            // The record NerRequest is not defined. We can simply pass the map.
-            Map<String, String> requestPayload = Collections.singletonMap("text", text);
-            return restTemplate.postForObject(nerApiUrl, requestPayload, NerResponse.class);
-        } catch (Exception e) {
-            System.err.println("ERROR calling NER API: " + e.getMessage());
-            return new NerResponse(Collections.emptyList());
+            return call.get(deadline.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.debug("NER deadline of {} passed for '{}', continuing without remote entities", deadline, text);
+            pipelineMetrics.nerDeadlineFallback();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CircuitOpenException) {
+                pipelineMetrics.nerCircuitOpenFallback();
+            } else {
+                log.warn("NER API call failed, continuing without remote entities: {}", e.getCause().getMessage());
+                pipelineMetrics.nerErrorFallback();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return NO_ENTITIES;
+    }
+
+    private NerResponse callNerApi(String text) {
+        long permit = circuitBreaker.tryAcquirePermission();
+        if (permit == NerCircuitBreaker.NO_PERMIT) {
+            throw new CircuitOpenException();
+        }
+        long start = System.nanoTime();
+        try {
+            NerResponse response;
+            if (nerBatcher.isEnabled()) {
+                response = nerBatcher.submit(text).join();
+            } else if (hedgingEnabled) {
+                response = hedged(text);
+            } else {
+                response = post(nerApiUrl, text);
+            }
+            long elapsed = System.nanoTime() - start;
+            latencies.record(elapsed);
+            // A call slower than the budget is as bad as a failed one for our callers
+            if (elapsed > deadline.toNanos()) {
+                circuitBreaker.recordFailure(permit);
+            } else {
+                circuitBreaker.recordSuccess(permit);
+            }
+            return response;
+        } catch (RuntimeException e) {
+            circuitBreaker.recordFailure(permit);
+            throw e;
+        }
+    }
+
+    // Sends to the primary and, if it has not answered after the observed p95, also to the hedge URL
+    private NerResponse hedged(String text) {
+        CompletableFuture<NerResponse> primary = CompletableFuture.supplyAsync(() -> post(nerApiUrl, text), attemptExecutor);
+        try {
+            return primary.get(hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Still waiting, or already failed: either way the hedge goes out now
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+        pipelineMetrics.nerHedgeSent();
+        CompletableFuture<NerResponse> hedge = CompletableFuture.supplyAsync(() -> post(hedgeUrl, text), attemptExecutor);
+
+        CompletableFuture<NerResponse> first = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(2);
+        for (CompletableFuture<NerResponse> attempt : List.of(primary, hedge)) {
+            attempt.whenComplete((response, error) -> {
+                if (error == null) {
+                    first.complete(response);
+                } else if (pending.decrementAndGet() == 0) {
+                    first.completeExceptionally(error);
+                }
+            });
+        }
+        NerResponse response = first.join();
+        if (hedge.isDone() && !hedge.isCompletedExceptionally() && hedge.join() == response) {
+            pipelineMetrics.nerHedgeWon();
+        }
+        return response;
+    }
+
+    private long hedgeDelayNanos() {
+        return Math.max(minHedgeDelay.toNanos(), latencies.percentile(0.95));
+    }
+
+    private NerResponse post(String url, String text) {
+        // The record NerRequest is not defined. We can simply pass the map.
+        Map<String, String> requestPayload = Collections.singletonMap("text", text);
+        NerResponse response = restTemplate.postForObject(url, requestPayload, NerResponse.class);
+        if (response == null || response.entities() == null) {
+            throw new IllegalStateException("NER API returned an empty body");
+        }
+        return response;
+    }
+
+    // Thrown inside a cache load so an open breaker is never cached as a result
+    static final class CircuitOpenException extends RuntimeException {
+        CircuitOpenException() {
+            super("NER circuit breaker is open", null, false, false);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,158 @@
+package com.madhu.qou.client;
+
+import com.madhu.qou.dto.ner.NerBatchRequest;
+import com.madhu.qou.dto.ner.NerBatchResponse;
+import com.madhu.qou.dto.ner.NerResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Coalesces concurrent NER lookups into one call to the batch endpoint.
+ * <p>
+ * Callers enqueue a text and get a future. A single flusher thread collects pending texts until
+ * either {@code max-batch-size} is reached or {@code max-wait} has passed since the first one,
+ * deduplicates identical texts and hands the batch to a small sender pool, which completes every
+ * caller's future from the matching result slot. The NER service runs the whole batch through
+ * {@code nlp.pipe}, which is far cheaper than one {@code nlp(text)} per request.
+ */
+@Component
+@Slf4j
+public class NerBatcher {
+
+    private record PendingRequest(String text, CompletableFuture<NerResponse> future, long enqueuedAtNanos) {}
+
+    private final RestTemplate restTemplate;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final String batchUrl;
+
+    private final BlockingQueue<PendingRequest> queue = new LinkedBlockingQueue<>();
+    private final DistributionSummary batchSizes;
+    private final DistributionSummary uniqueTextsPerBatch;
+    private final Timer queueWait;
+    private final ExecutorService senders;
+    private final Thread flusher;
+
+    public NerBatcher(@Value("${ner.batching.enabled:false}") boolean enabled,
+                      @Value("${ner.batching.max-batch-size:32}") int maxBatchSize,
+                      @Value("${ner.batching.max-wait:5ms}") Duration maxWait,
+                      @Value("${ner.batching.max-in-flight:4}") int maxInFlight,
+                      @Value("${ner.api.batch-url:${ner.api.url}/batch}") String batchUrl,
+                      RestTemplate restTemplate,
+                      MeterRegistry meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.batchUrl = batchUrl;
+        this.batchSizes = DistributionSummary.builder("ner.batch.size")
+                .description("Requests coalesced into one NER batch call")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.uniqueTextsPerBatch = DistributionSummary.builder("ner.batch.unique.texts")
+                .description("Distinct texts sent per NER batch call after deduplication")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("ner.batch.queue.wait")
+                .description("Time a NER request waited in the batching queue")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        if (enabled) {
+            this.senders = Executors.newFixedThreadPool(maxInFlight, Thread.ofPlatform().daemon().name("ner-batch-sender-", 0).factory());
+            this.flusher = Thread.ofPlatform().daemon().name("ner-batch-flusher").start(this::flushLoop);
+            log.info("NER micro-batching enabled (max batch size {}, max wait {}, {} in flight)", maxBatchSize, maxWait, maxInFlight);
+        } else {
+            this.senders = null;
+            this.flusher = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CompletableFuture<NerResponse> submit(String text) {
+        if (!enabled) {
+            throw new IllegalStateException("NER batching is disabled");
+        }
+        CompletableFuture<NerResponse> future = new CompletableFuture<>();
+        queue.add(new PendingRequest(text, future, System.nanoTime()));
+        return future;
+    }
+
+    private void flushLoop() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                PendingRequest first = queue.take();
+                List<PendingRequest> batch = new ArrayList<>(maxBatchSize);
+                batch.add(first);
+                long deadline = first.enqueuedAtNanos() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingRequest next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                senders.execute(() -> dispatch(batch));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RejectedExecutionException e) {
+            log.debug("NER batch sender pool shut down; flusher exiting");
+        }
+    }
+
+    private void dispatch(List<PendingRequest> batch) {
+        long now = System.nanoTime();
+        // Deduplicate: every distinct text is sent once and fans out to all of its waiters
+        Map<String, List<CompletableFuture<NerResponse>>> waitersByText = new LinkedHashMap<>();
+        for (PendingRequest request : batch) {
+            queueWait.record(now - request.enqueuedAtNanos(), TimeUnit.NANOSECONDS);
+            waitersByText.computeIfAbsent(request.text(), k -> new ArrayList<>(1)).add(request.future());
+        }
+        batchSizes.record(batch.size());
+        uniqueTextsPerBatch.record(waitersByText.size());
+
+        List<String> texts = new ArrayList<>(waitersByText.keySet());
+        try {
+            NerBatchResponse response = sendBatch(texts);
+            if (response == null || response.results() == null || response.results().size() != texts.size()) {
+                throw new IllegalStateException("NER batch response does not match the " + texts.size() + " texts sent");
+            }
+            for (int i = 0; i < texts.size(); i++) {
+                NerResponse result = new NerResponse(response.results().get(i).entities(), response.modelVersion());
+                waitersByText.get(texts.get(i)).forEach(future -> future.complete(result));
+            }
+        } catch (Exception e) {
+            waitersByText.values().forEach(futures -> futures.forEach(future -> future.completeExceptionally(e)));
+        }
+    }
+
+    // Package-private so tests can stand in for the NER service
+    NerBatchResponse sendBatch(List<String> texts) {
+        return restTemplate.postForObject(batchUrl, new NerBatchRequest(texts), NerBatchResponse.class);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (enabled) {
+            flusher.interrupt();
+            senders.shutdown();
+            queue.forEach(pending -> pending.future().completeExceptionally(new CancellationException("NER batcher shut down")));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.madhu.qou.client;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Count-based circuit breaker in front of the NER service.
+ * <p>
+ * Outcomes of the last {@code window-size} calls are kept in a ring; once at least
+ * {@code minimum-calls} are recorded and the failure rate reaches the threshold, the breaker
+ * opens and callers skip NER entirely for {@code open-duration}. After that a single probe call
+ * is let through (half-open): success closes the breaker, failure opens it again. Calls slower
+ * than the NER deadline are reported as failures by {@link NerApiClient}.
+ * <p>
+ * A permit carries the generation of the state it was granted in, and an outcome only counts
+ * while that state lasts: a straggler admitted before the breaker opened can neither close nor
+ * reopen it, and only the probe decides the half-open state.
+ */
+@Component
+@Slf4j
+public class NerCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** Returned by {@link #tryAcquirePermission()} when the call must not be made. */
+    public static final long NO_PERMIT = -1;
+
+    private final boolean enabled;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationNanos;
+
+    // true = failure
+    private final boolean[] outcomes;
+    private int next;
+    private int recorded;
+    private int failures;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openedAtNanos;
+    private boolean probeInFlight;
+    // Bumped on every state change; permits of an earlier generation no longer count
+    private long generation;
+
+    public NerCircuitBreaker(@Value("${ner.circuit-breaker.enabled:true}") boolean enabled,
+                             @Value("${ner.circuit-breaker.window-size:50}") int windowSize,
+                             @Value("${ner.circuit-breaker.minimum-calls:20}") int minimumCalls,
+                             @Value("${ner.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                             @Value("${ner.circuit-breaker.open-duration:10s}") Duration openDuration,
+                             MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.outcomes = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        Gauge.builder("qou.ner.circuit.state", this, breaker -> breaker.state.ordinal())
+                .description("NER circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cheap, lock-free check used to skip work while the breaker is open. Does not take the
+     * half-open probe permit; {@link #tryAcquirePermission()} is the authoritative check.
+     */
+    public boolean isCallPermitted() {
+        return !enabled || state != State.OPEN || System.nanoTime() - openedAtNanos >= openDurationNanos;
+    }
+
+    /**
+     * A permit to pass to {@link #recordSuccess(long)} or {@link #recordFailure(long)} once the
+     * call is done, or {@link #NO_PERMIT}.
+     */
+    public synchronized long tryAcquirePermission() {
+        if (!enabled) {
+            return generation;
+        }
+        switch (state) {
+            case CLOSED:
+                return generation;
+            case OPEN:
+                if (System.nanoTime() - openedAtNanos < openDurationNanos) {
+                    return NO_PERMIT;
+                }
+                state = State.HALF_OPEN;
+                generation++;
+                probeInFlight = true;
+                return generation;
+            default:
+                if (probeInFlight) {
+                    return NO_PERMIT;
+                }
+                probeInFlight = true;
+                return generation;
+        }
+    }
+
+    public synchronized void recordSuccess(long permit) {
+        if (permit != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            log.info("NER circuit breaker closed after a successful probe.");
+            state = State.CLOSED;
+            generation++;
+            probeInFlight = false;
+            resetWindow();
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void recordFailure(long permit) {
+        if (permit != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            open("probe failed");
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && failures >= failureRateThreshold * recorded) {
+                open(failures + " of the last " + recorded + " calls failed");
+            }
+        }
+    }
+
+    public State state() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void open(String reason) {
+        log.warn("NER circuit breaker opened ({}); skipping NER for {} ms.", reason, openDurationNanos / 1_000_000);
+        state = State.OPEN;
+        generation++;
+        openedAtNanos = System.nanoTime();
+        probeInFlight = false;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        next = 0;
+        recorded = 0;
+        failures = 0;
+    }
+}
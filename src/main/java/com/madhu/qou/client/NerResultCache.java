@@ -0,0 +1,135 @@
+package com.madhu.qou.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.madhu.qou.dto.ner.NerResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * In-process cache of NER results keyed on the normalized query.
+ * <p>
+ * Backed by Caffeine (W-TinyLFU eviction), so the head of the query distribution stays
+ * resident and one-off queries do not flush it. Entries expire after a fixed TTL and the
+ * whole cache is dropped whenever the NER service reports a different model/patterns version.
+ * Fresh results are also appended to {@link NerResultStore}, which is replayed into the cache in
+ * the background at startup.
+ */
+@Component
+@Slf4j
+public class NerResultCache {
+
+    private final Cache<String, NerResponse> cache;
+    private final NerResultStore store;
+    private final CompletableFuture<Integer> restored;
+    // Written under versionLock so a restored version can never replace one set by a live response
+    private final Object versionLock = new Object();
+    private volatile String modelVersion;
+
+    @Autowired
+    public NerResultCache(@Value("${ner.cache.max-size:100000}") long maxSize,
+                          @Value("${ner.cache.ttl:PT10M}") Duration ttl,
+                          MeterRegistry meterRegistry,
+                          NerResultStore store) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "ner-results");
+        this.store = store;
+        // Startup does not wait for the replay; queries that arrive first simply miss
+        this.restored = store.isEnabled()
+                ? CompletableFuture.supplyAsync(() -> store.restore(this::restore),
+                        runnable -> Thread.ofPlatform().daemon().name("ner-store-restore").start(runnable))
+                : CompletableFuture.completedFuture(0);
+    }
+
+    public NerResultCache(long maxSize, Duration ttl, MeterRegistry meterRegistry) {
+        this(maxSize, ttl, meterRegistry, NerResultStore.disabled());
+    }
+
+    /**
+     * Returns the cached response for the query, or invokes the loader once (concurrent misses
+     * on the same key wait for the same load). Exceptions thrown by the loader propagate and
+     * nothing is cached, so a failing NER call never poisons the cache.
+     */
+    public NerResponse get(String normalizedQuery, Function<String, NerResponse> loader) {
+        boolean[] loaded = new boolean[1];
+        NerResponse response = cache.get(normalizedQuery, key -> {
+            loaded[0] = true;
+            return loader.apply(key);
+        });
+        // Only fresh responses carry news about the model version; invalidating from inside
+        // the cache's compute would deadlock, so it happens after the load completes.
+        if (loaded[0]) {
+            observeModelVersion(response.modelVersion());
+            store.append(normalizedQuery, response);
+        }
+        return response;
+    }
+
+    // A persisted result never replaces a live one, nor one cached under a different model version.
+    // The put happens under the lock too, so a version change cannot slip in between check and put.
+    private void restore(String normalizedQuery, NerResponse response) {
+        synchronized (versionLock) {
+            if (modelVersion == null) {
+                modelVersion = response.modelVersion();
+            } else if (!modelVersion.equals(response.modelVersion())) {
+                return;
+            }
+            cache.asMap().putIfAbsent(normalizedQuery, response);
+        }
+    }
+
+    /** Completes with the number of persisted results once the startup replay has finished. */
+    CompletableFuture<Integer> restored() {
+        return restored;
+    }
+
+    /**
+     * The cached response, or null; never triggers a load.
+     */
+    public NerResponse getIfPresent(String normalizedQuery) {
+        return cache.getIfPresent(normalizedQuery);
+    }
+
+    /**
+     * Records the model version reported by the NER service. A change means the model or
+     * patterns.json was redeployed, so everything cached under the old version is dropped.
+     */
+    public void observeModelVersion(String version) {
+        if (version == null || version.equals(modelVersion)) {
+            return;
+        }
+        String previous;
+        synchronized (versionLock) {
+            previous = modelVersion;
+            if (version.equals(previous)) {
+                return;
+            }
+            modelVersion = version;
+        }
+        if (previous != null) {
+            log.info("NER model version changed from '{}' to '{}'. Invalidating NER result cache.", previous, version);
+            cache.invalidateAll();
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public String modelVersion() {
+        return Objects.requireNonNullElse(modelVersion, "unknown");
+    }
+}
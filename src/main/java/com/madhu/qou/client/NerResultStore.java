@@ -0,0 +1,352 @@
+package com.madhu.qou.client;
+
+import com.madhu.qou.dto.ner.NerEntity;
+import com.madhu.qou.dto.ner.NerResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of NER results on local disk, so a restarted instance can answer the head of
+ * the query distribution from {@link NerResultCache} before the NER service has seen a request.
+ * <p>
+ * Each record is {@code [length][crc32][normalized query, model version, entities]}. Appends are
+ * queued and written by one background thread, so request threads never touch the disk. At
+ * startup the file is memory-mapped and replayed once: the last record for a query wins, only
+ * records of the newest model version are restored, and a torn or corrupt tail (a crash mid-write)
+ * is cut off. Once the file holds more superseded records than live ones it is compacted into a
+ * new file that atomically replaces the old one. A file at {@code ner.store.path} that does not
+ * start with this store's header is never touched: the store logs it and keeps nothing.
+ */
+@Component
+@Slf4j
+public class NerResultStore {
+
+    private static final int MAGIC = 0x514E4552; // "QNER"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int FRAME_BYTES = 8;
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int MAX_BATCH = 256;
+    private static final byte[] SHUTDOWN = new byte[0];
+
+    private final boolean enabled;
+    private final Path path;
+    private final int maxEntries;
+    private final int compactionMinRecords;
+
+    private final BlockingQueue<byte[]> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+    // Set when the path holds a file this store did not write; nothing is read from or written to it
+    private volatile boolean foreign;
+
+    // Guarded by this
+    private FileChannel channel;
+    // Live records read when the file was opened, kept until restore() replays them; the writer
+    // may open the file first if an append is drained before the restore thread runs
+    private SequencedMap<String, NerResponse> unrestored;
+    private boolean restored;
+    private long records;
+    private long liveAfterCompaction;
+
+    @Autowired
+    public NerResultStore(@Value("${ner.store.enabled:false}") boolean enabled,
+                          @Value("${ner.store.path:data/ner-results.log}") Path path,
+                          @Value("${ner.store.max-entries:${ner.cache.max-size:100000}}") int maxEntries,
+                          @Value("${ner.store.compaction-min-records:10000}") int compactionMinRecords) {
+        this.enabled = enabled;
+        this.path = path;
+        this.maxEntries = maxEntries;
+        this.compactionMinRecords = compactionMinRecords;
+        this.writer = enabled ? Thread.ofPlatform().daemon().name("ner-store-writer").start(this::writeLoop) : null;
+    }
+
+    /** A store that keeps nothing, for caches that are not backed by disk. */
+    public static NerResultStore disabled() {
+        return new NerResultStore(false, null, 0, 0);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Replays the file into the sink, oldest first, and returns the number of results restored.
+     * Only the first call replays anything. Results the writer appended before it ran are
+     * not replayed; they came from live responses and are already cached.
+     */
+    public synchronized int restore(BiConsumer<String, NerResponse> sink) {
+        if (!enabled || foreign || restored) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        try {
+            if (channel == null) {
+                open();
+            }
+            SequencedMap<String, NerResponse> live = unrestored;
+            live.forEach(sink);
+            log.info("Restored {} NER results from {} ({} records) in {} ms",
+                    live.size(), path, records, (System.nanoTime() - start) / 1_000_000);
+            return live.size();
+        } catch (IOException e) {
+            log.warn("Could not restore NER results from {}: {}", path, e.getMessage());
+            return 0;
+        } finally {
+            restored = true;
+            unrestored = null;
+        }
+    }
+
+    /**
+     * Queues a fresh NER result to be written. Never blocks; when the writer has fallen behind the
+     * result is dropped, which only costs a NER call after the next restart.
+     */
+    public void append(String normalizedQuery, NerResponse response) {
+        if (!enabled || foreign) {
+            return;
+        }
+        byte[] record = encode(normalizedQuery, response);
+        if (record != null && !queue.offer(record)) {
+            log.debug("NER result store queue is full, dropping '{}'", normalizedQuery);
+        }
+    }
+
+    private void writeLoop() {
+        List<byte[]> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            boolean shutdown = batch.remove(SHUTDOWN);
+            try {
+                write(batch);
+            } catch (IOException e) {
+                log.warn("Could not append {} NER results to {}: {}", batch.size(), path, e.getMessage());
+            }
+            batch.clear();
+            if (shutdown) {
+                return;
+            }
+        }
+    }
+
+    private synchronized void write(List<byte[]> batch) throws IOException {
+        if (batch.isEmpty() || foreign) {
+            return;
+        }
+        if (channel == null) {
+            open();
+        }
+        ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+        long remaining = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.wrap(batch.get(i));
+            remaining += buffers[i].remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+        records += batch.size();
+        if (records - liveAfterCompaction >= Math.max(liveAfterCompaction, compactionMinRecords)) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the file with only the live records (latest per query, newest model version, at
+     * most {@code max-entries}) and swaps it in with an atomic rename.
+     */
+    synchronized void compact() throws IOException {
+        if (channel == null) {
+            open();
+        }
+        long start = System.nanoTime();
+        SequencedMap<String, NerResponse> live = readLive();
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(out), 64 * 1024);
+            stream.write(header().array());
+            for (Map.Entry<String, NerResponse> entry : live.entrySet()) {
+                byte[] record = encode(entry.getKey(), entry.getValue());
+                if (record != null) {
+                    stream.write(record);
+                }
+            }
+            stream.flush();
+            out.force(true);
+        }
+        channel.close();
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        long before = records;
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        records = live.size();
+        liveAfterCompaction = live.size();
+        log.info("Compacted {} from {} to {} records in {} ms", path, before, records, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Opens (or creates) the file and cuts off an invalid tail; its live records wait for restore()
+    private void open() throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        SequencedMap<String, NerResponse> live;
+        try {
+            live = readLive();
+        } catch (IOException e) {
+            channel.close();
+            channel = null;
+            throw e;
+        }
+        liveAfterCompaction = live.size();
+        unrestored = restored ? null : live;
+    }
+
+    // Reads every valid record; truncates the file after the last one and positions it for appending.
+    // Fails, leaving the file as it is, if the file is not empty and not one of ours.
+    private SequencedMap<String, NerResponse> readLive() throws IOException {
+        long size = channel.size();
+        LinkedHashMap<String, NerResponse> latest = new LinkedHashMap<>();
+        long valid = HEADER_BYTES;
+        records = 0;
+        if (size > 0) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < HEADER_BYTES || mapped.getInt() != MAGIC || mapped.getInt() != FORMAT_VERSION) {
+                foreign = true;
+                log.error("{} is not a NER result store of format {}; leaving it untouched, NER results will not be persisted",
+                        path, FORMAT_VERSION);
+                throw new IOException(path + " is not a NER result store");
+            }
+            CRC32 crc = new CRC32();
+            while (mapped.remaining() >= FRAME_BYTES) {
+                int length = mapped.getInt();
+                int checksum = mapped.getInt();
+                if (length <= 0 || length > mapped.remaining()) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                mapped.get(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                Map.Entry<String, NerResponse> record = decode(payload);
+                // Re-insert so iteration order is the order of the latest write
+                latest.remove(record.getKey());
+                latest.put(record.getKey(), record.getValue());
+                records++;
+                valid = mapped.position();
+            }
+        }
+        if (size == 0) {
+            channel.write(header(), 0);
+        } else if (valid != size) {
+            log.warn("Dropping {} bytes of incomplete records at the end of {}", size - valid, path);
+            channel.truncate(valid);
+        }
+        channel.position(valid);
+        return newestVersionOnly(latest);
+    }
+
+    // Results of older model versions are dead; so is anything beyond max-entries, oldest first
+    private SequencedMap<String, NerResponse> newestVersionOnly(LinkedHashMap<String, NerResponse> latest) {
+        if (latest.isEmpty()) {
+            return latest;
+        }
+        String newestVersion = latest.lastEntry().getValue().modelVersion();
+        latest.values().removeIf(response -> !Objects.equals(response.modelVersion(), newestVersion));
+        Iterator<String> oldest = latest.keySet().iterator();
+        for (int excess = latest.size() - maxEntries; excess > 0; excess--) {
+            oldest.next();
+            oldest.remove();
+        }
+        return latest;
+    }
+
+    private static ByteBuffer header() {
+        return ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+    }
+
+    static byte[] encode(String normalizedQuery, NerResponse response) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeUTF(normalizedQuery);
+            out.writeUTF(Objects.requireNonNullElse(response.modelVersion(), ""));
+            out.writeShort(response.entities().size());
+            for (NerEntity entity : response.entities()) {
+                out.writeUTF(entity.text());
+                out.writeUTF(entity.label());
+            }
+        } catch (IOException e) {
+            // Only a string over 64 KB gets here; such a query is not worth persisting
+            return null;
+        }
+        byte[] record = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(record, FRAME_BYTES, record.length - FRAME_BYTES);
+        ByteBuffer.wrap(record).putInt(record.length - FRAME_BYTES).putInt((int) crc.getValue());
+        return record;
+    }
+
+    private static Map.Entry<String, NerResponse> decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        String query = in.readUTF();
+        String version = in.readUTF();
+        int count = in.readUnsignedShort();
+        List<NerEntity> entities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entities.add(new NerEntity(in.readUTF(), in.readUTF()));
+        }
+        return Map.entry(query, new NerResponse(List.copyOf(entities), version.isEmpty() ? null : version));
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            queue.put(SHUTDOWN);
+            writer.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (channel != null) {
+                try {
+                    channel.force(true);
+                    channel.close();
+                } catch (IOException e) {
+                    log.warn("Could not close {}: {}", path, e.getMessage());
+                }
+                channel = null;
+            }
+        }
+    }
+}
@@ -1,33 +1,129 @@
 package com.madhu.qou.config;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.ElasticsearchTransport;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.http.HttpHost;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
 import org.elasticsearch.client.RestClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.function.ToDoubleFunction;
+
 @Configuration
 public class ElasticsearchConfig {
 
     @Value("${spring.elasticsearch.uris}")
     private String elasticsearchUrl;
 
+    @Value("${elasticsearch.client.max-connections-per-route:64}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${elasticsearch.client.max-connections-total:128}")
+    private int maxConnectionsTotal;
+
+    @Value("${elasticsearch.client.keep-alive:60s}")
+    private Duration keepAlive;
+
+    @Value("${elasticsearch.client.connect-timeout:1s}")
+    private Duration connectTimeout;
+
+    @Value("${elasticsearch.client.socket-timeout:30s}")
+    private Duration socketTimeout;
+
+    @Value("${elasticsearch.client.connection-request-timeout:1s}")
+    private Duration connectionRequestTimeout;
+
+    @Value("${elasticsearch.client.compression:false}")
+    private boolean compression;
+
     @Bean
-    public ElasticsearchClient elasticsearchClient() {
+    public ElasticsearchTransport elasticsearchTransport(MeterRegistry meterRegistry) {
+        HttpClientSettings settings = new HttpClientSettings(maxConnectionsPerRoute, maxConnectionsTotal,
+                keepAlive, connectTimeout, socketTimeout, connectionRequestTimeout);
         // Create the low-level client
-        RestClient restClient = RestClient
-                .builder(HttpHost.create(elasticsearchUrl))
-                .build();
+        RestClient restClient = restClient(elasticsearchUrl, settings, compression, meterRegistry);
 
         // Create the transport with a Jackson mapper
-        ElasticsearchTransport transport = new RestClientTransport(
-                restClient, new JacksonJsonpMapper());
+        return new RestClientTransport(restClient, new JacksonJsonpMapper());
+    }
 
+    @Bean
+    public ElasticsearchClient elasticsearchClient(ElasticsearchTransport transport) {
         // And create the API client
         return new ElasticsearchClient(transport);
     }
-}
\ No newline at end of file
+
+    // Non-blocking client over the same transport and connection pool, used by the search pipeline
+    @Bean
+    public ElasticsearchAsyncClient elasticsearchAsyncClient(ElasticsearchTransport transport) {
+        return new ElasticsearchAsyncClient(transport);
+    }
+
+    /**
+     * Low-level client over our own connection pool (the builder's default allows only 10
+     * connections per route and 30 in total, which caps concurrent searches well below what ES
+     * can serve). Pool occupancy is published under the same meter names Micrometer uses for
+     * Apache HttpClient 5 pools, tagged {@code httpclient=elasticsearch}.
+     */
+    public static RestClient restClient(String url, HttpClientSettings settings, boolean compression, MeterRegistry meterRegistry) {
+        PoolingNHttpClientConnectionManager connectionManager;
+        try {
+            connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(IOReactorConfig.custom()
+                    .setConnectTimeout((int) settings.connectTimeout().toMillis())
+                    .setSoTimeout((int) settings.readTimeout().toMillis())
+                    .build()));
+        } catch (IOReactorException e) {
+            throw new IllegalStateException("Could not start the Elasticsearch I/O reactor", e);
+        }
+        connectionManager.setMaxTotal(settings.maxConnectionsTotal());
+        connectionManager.setDefaultMaxPerRoute(settings.maxConnectionsPerRoute());
+        bindPoolMetrics(connectionManager, meterRegistry);
+
+        long keepAliveMillis = settings.keepAlive().toMillis();
+        return RestClient.builder(HttpHost.create(url))
+                .setCompressionEnabled(compression)
+                .setRequestConfigCallback(request -> request
+                        .setConnectTimeout((int) settings.connectTimeout().toMillis())
+                        .setSocketTimeout((int) settings.readTimeout().toMillis())
+                        .setConnectionRequestTimeout((int) settings.connectionRequestTimeout().toMillis()))
+                .setHttpClientConfigCallback(client -> client
+                        .setConnectionManager(connectionManager)
+                        // ES sends no Keep-Alive header, which would mean "reuse forever"; cap it so
+                        // connections silently dropped by load balancers are not picked up
+                        .setKeepAliveStrategy((response, context) -> keepAliveMillis))
+                .build();
+    }
+
+    private static void bindPoolMetrics(PoolingNHttpClientConnectionManager connectionManager, MeterRegistry meterRegistry) {
+        poolGauge(meterRegistry, "httpcomponents.httpclient.pool.total.max", null, connectionManager, PoolStats::getMax);
+        poolGauge(meterRegistry, "httpcomponents.httpclient.pool.total.connections", "available", connectionManager, PoolStats::getAvailable);
+        poolGauge(meterRegistry, "httpcomponents.httpclient.pool.total.connections", "leased", connectionManager, PoolStats::getLeased);
+        poolGauge(meterRegistry, "httpcomponents.httpclient.pool.total.pending", null, connectionManager, PoolStats::getPending);
+        Gauge.builder("httpcomponents.httpclient.pool.route.max.default", connectionManager, PoolingNHttpClientConnectionManager::getDefaultMaxPerRoute)
+                .tag("httpclient", "elasticsearch")
+                .register(meterRegistry);
+    }
+
+    private static void poolGauge(MeterRegistry meterRegistry, String name, String state,
+                                  PoolingNHttpClientConnectionManager connectionManager, ToDoubleFunction<PoolStats> value) {
+        Gauge.Builder<PoolingNHttpClientConnectionManager> gauge = Gauge
+                .builder(name, connectionManager, manager -> value.applyAsDouble(manager.getTotalStats()))
+                .tag("httpclient", "elasticsearch");
+        if (state != null) {
+            gauge.tag("state", state);
+        }
+        gauge.register(meterRegistry);
+    }
+}
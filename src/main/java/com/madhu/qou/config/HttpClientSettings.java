@@ -0,0 +1,22 @@
+package com.madhu.qou.config;
+
+import java.time.Duration;
+
+/**
+ * Connection-pool and timeout settings for one pooled HTTP client.
+ *
+ * @param maxConnectionsPerRoute    concurrent connections to one host
+ * @param maxConnectionsTotal       concurrent connections across all hosts
+ * @param keepAlive                 how long an idle pooled connection may be reused
+ * @param connectTimeout            TCP connect timeout
+ * @param readTimeout               socket/response timeout for one request
+ * @param connectionRequestTimeout  how long a request waits for a free pooled connection
+ */
+public record HttpClientSettings(
+        int maxConnectionsPerRoute,
+        int maxConnectionsTotal,
+        Duration keepAlive,
+        Duration connectTimeout,
+        Duration readTimeout,
+        Duration connectionRequestTimeout
+) {}
@@ -0,0 +1,38 @@
+package com.madhu.qou.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.madhu.qou.dto.FacetedSearchResponse;
+import com.madhu.qou.service.PipelineMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+@Configuration
+public class MetricsConfig {
+
+    // Replaces Boot's default JSON converter so writing a search response is timed as the
+    // "serialization" pipeline stage; every other body is written exactly as before
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper,
+                                                                                   PipelineMetrics pipelineMetrics) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+                if (!(object instanceof FacetedSearchResponse)) {
+                    super.writeInternal(object, type, outputMessage);
+                    return;
+                }
+                long start = System.nanoTime();
+                try {
+                    super.writeInternal(object, type, outputMessage);
+                } finally {
+                    pipelineMetrics.record(PipelineMetrics.Stage.SERIALIZATION, System.nanoTime() - start);
+                }
+            }
+        };
+    }
+}
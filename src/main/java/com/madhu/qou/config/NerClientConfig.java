@@ -0,0 +1,77 @@
+package com.madhu.qou.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+@Configuration
+public class NerClientConfig {
+
+    @Value("${ner.client.max-connections-per-route:64}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${ner.client.max-connections-total:128}")
+    private int maxConnectionsTotal;
+
+    @Value("${ner.client.keep-alive:60s}")
+    private Duration keepAlive;
+
+    @Value("${ner.client.connect-timeout:500ms}")
+    private Duration connectTimeout;
+
+    @Value("${ner.client.read-timeout:2s}")
+    private Duration readTimeout;
+
+    @Value("${ner.client.connection-request-timeout:500ms}")
+    private Duration connectionRequestTimeout;
+
+    // Shared by NerApiClient and NerBatcher
+    @Bean
+    public RestTemplate nerRestTemplate(MeterRegistry meterRegistry) {
+        return restTemplate(new HttpClientSettings(maxConnectionsPerRoute, maxConnectionsTotal,
+                keepAlive, connectTimeout, readTimeout, connectionRequestTimeout), meterRegistry);
+    }
+
+    /**
+     * RestTemplate over a pooled Apache HttpClient 5, replacing the default HttpURLConnection
+     * factory (which keeps at most 5 idle connections per host and has no timeouts). Pool
+     * occupancy is published as {@code httpcomponents.httpclient.pool.*{httpclient=ner}}.
+     */
+    public static RestTemplate restTemplate(HttpClientSettings settings, MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnPerRoute(settings.maxConnectionsPerRoute())
+                .setMaxConnTotal(settings.maxConnectionsTotal())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(settings.connectTimeout()))
+                        .setSocketTimeout(Timeout.of(settings.readTimeout()))
+                        .build())
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "ner").bindTo(meterRegistry);
+
+        TimeValue keepAlive = TimeValue.of(settings.keepAlive());
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy((response, context) -> keepAlive)
+                .evictIdleConnections(keepAlive)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(settings.connectionRequestTimeout()))
+                        .setResponseTimeout(Timeout.of(settings.readTimeout()))
+                        .build())
+                .build();
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+}
@@ -1,12 +1,22 @@
 package com.madhu.qou.controller;
 
 import com.madhu.qou.dto.CustomSearchRequest;
+import com.madhu.qou.dto.FacetSelection;
 import com.madhu.qou.dto.FacetedSearchResponse;
+import com.madhu.qou.dto.SearchCursor;
+import com.madhu.qou.dto.SearchOptions;
 import com.madhu.qou.service.QueryUnderstandingService;
+import com.madhu.qou.service.StreamedSearchResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -19,10 +29,48 @@ public class SearchController {
     private final QueryUnderstandingService queryUnderstandingService;
 
     @PostMapping("/search")
-    public FacetedSearchResponse search(@RequestBody CustomSearchRequest request) {
-        log.info("================== NEW SEARCH REQUEST ==================");
-        log.info("Received rawQuery: '{}'", request.rawQuery());
-        return queryUnderstandingService.processFacetedQuery(request);
+    public FacetedSearchResponse search(@RequestBody CustomSearchRequest request,
+                                        @RequestParam(defaultValue = "false") boolean timings,
+                                        @RequestParam(defaultValue = "true") boolean facets,
+                                        @RequestParam(defaultValue = "" + SearchOptions.DEFAULT_FACET_SIZE) int facetSize,
+                                        @RequestParam(defaultValue = "0") int from,
+                                        @RequestParam(defaultValue = "" + SearchOptions.DEFAULT_SIZE) int size,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(required = false) List<String> fields,
+                                        @RequestParam(required = false) List<String> category,
+                                        @RequestParam(required = false) List<String> brand) {
+        // Per-request details go to the sampled query log (QueryLog), not the application log
+        log.debug("Received rawQuery: '{}'", request.rawQuery());
+        SearchOptions options = new SearchOptions(facets, facetSize, from, size, searchAfter(cursor), fields, new FacetSelection(category, brand));
+        return queryUnderstandingService.processFacetedQuery(request, options, timings);
+    }
+
+    // Same response shape, but hits are copied from the Elasticsearch body straight into the output
+    @PostMapping(value = "/search", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamSearch(@RequestBody CustomSearchRequest request,
+                                                              @RequestParam(defaultValue = "true") boolean facets,
+                                                              @RequestParam(defaultValue = "" + SearchOptions.DEFAULT_FACET_SIZE) int facetSize,
+                                                              @RequestParam(defaultValue = "0") int from,
+                                                              @RequestParam(defaultValue = "" + SearchOptions.DEFAULT_SIZE) int size,
+                                                              @RequestParam(required = false) String cursor,
+                                                              @RequestParam(required = false) List<String> fields,
+                                                              @RequestParam(required = false) List<String> category,
+                                                              @RequestParam(required = false) List<String> brand) throws IOException {
+        log.debug("Received streaming rawQuery: '{}'", request.rawQuery());
+        SearchOptions options = new SearchOptions(facets, facetSize, from, size, searchAfter(cursor), fields, new FacetSelection(category, brand));
+        StreamedSearchResponse response = queryUnderstandingService.streamFacetedQuery(request, options);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(response::writeTo);
+    }
+
+    private static SearchCursor searchAfter(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return SearchCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor", e);
+        }
     }
 
     @GetMapping("/suggest")
@@ -32,8 +80,7 @@ public class SearchController {
 
     @PostMapping("/understand-query")
     public Map<String, Object> understandQuery(@RequestBody CustomSearchRequest request) {
-        log.info("================== DEBUG UNDERSTAND REQUEST ==================");
-        log.info("Received rawQuery: '{}'", request.rawQuery());
+        log.debug("Received debug understand rawQuery: '{}'", request.rawQuery());
         var esQuery = queryUnderstandingService.getDebugQuery(request);
 
         return Map.of(
@@ -0,0 +1,20 @@
+package com.madhu.qou.dto;
+
+import java.util.List;
+
+// Facet values the client has selected (multi-select). Hits must have one of the selected values of
+// every facet with a selection; each facet's own counts ignore its own selection (disjunctive facets),
+// so the other values of a facet stay visible and selectable.
+public record FacetSelection(List<String> categories, List<String> brands) {
+
+    public static final FacetSelection NONE = new FacetSelection(List.of(), List.of());
+
+    public FacetSelection {
+        categories = categories == null ? List.of() : List.copyOf(categories);
+        brands = brands == null ? List.of() : List.copyOf(brands);
+    }
+
+    public boolean isEmpty() {
+        return categories.isEmpty() && brands.isEmpty();
+    }
+}
@@ -7,8 +7,21 @@ import java.util.List;
 // The main response object
 public record FacetedSearchResponse(
         List<Product> products,
+        // Cursor for the next page (search_after); only present when this page was full
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        String nextCursor,
         List<Facet> facets,
         // Add a field for our suggestion. It will only appear in the JSON if it's not null.
         @JsonInclude(JsonInclude.Include.NON_NULL)
-        String didYouMeanSuggestion
-) {}
+        String didYouMeanSuggestion,
+        // The query as it was searched, when spell.mode=correct-first corrected it before searching
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        String correctedQuery,
+        // Only present when the caller asked for timings
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        StageTimings timings
+) {
+    public FacetedSearchResponse(List<Product> products, List<Facet> facets, String didYouMeanSuggestion) {
+        this(products, null, facets, didYouMeanSuggestion, null, null);
+    }
+}
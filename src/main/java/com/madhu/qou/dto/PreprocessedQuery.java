@@ -1,7 +1,17 @@
 package com.madhu.qou.dto;
 
+import com.madhu.qou.service.ingestion.QueryNormalizer;
+
+import java.util.List;
+
 public record PreprocessedQuery(
         String originalQuery,
         String normalizedQuery,
+        List<String> tokens,
         UserContext userContext
-) {}
\ No newline at end of file
+) {
+    // Overloaded constructor that tokenizes the normalized query itself
+    public PreprocessedQuery(String originalQuery, String normalizedQuery, UserContext userContext) {
+        this(originalQuery, normalizedQuery, QueryNormalizer.tokenize(normalizedQuery), userContext);
+    }
+}
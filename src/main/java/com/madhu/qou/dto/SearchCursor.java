@@ -0,0 +1,25 @@
+package com.madhu.qou.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Opaque search_after position: the sort values (score, product_id) of the last hit of a page.
+public record SearchCursor(double score, String productId) {
+
+    public String encode() {
+        String position = score + ":" + productId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reverses {@link #encode()}; throws IllegalArgumentException for anything it did not produce.
+     */
+    public static SearchCursor decode(String cursor) {
+        String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int separator = position.indexOf(':');
+        if (separator <= 0 || separator == position.length() - 1) {
+            throw new IllegalArgumentException("Malformed search cursor: " + cursor);
+        }
+        return new SearchCursor(Double.parseDouble(position.substring(0, separator)), position.substring(separator + 1));
+    }
+}
@@ -0,0 +1,42 @@
+package com.madhu.qou.dto;
+
+import java.util.List;
+
+// Client-controlled shape of a search: facets can be skipped (e.g. type-ahead previews) or sized,
+// results paged with from/size or a search_after cursor, _source narrowed to the listed fields, and
+// hits narrowed to the selected facet values.
+public record SearchOptions(
+        boolean facets,
+        int facetSize,
+        int from,
+        int size,
+        SearchCursor searchAfter,
+        List<String> fields,
+        FacetSelection selection
+) {
+
+    public static final int DEFAULT_FACET_SIZE = 10;
+    public static final int MAX_FACET_SIZE = 100;
+    public static final int DEFAULT_SIZE = 10;
+    public static final int MAX_SIZE = 100;
+    // Elasticsearch's index.max_result_window: from + size beyond it is rejected
+    public static final int MAX_RESULT_WINDOW = 10_000;
+    public static final SearchOptions DEFAULT = new SearchOptions(true, DEFAULT_FACET_SIZE);
+
+    public SearchOptions {
+        facetSize = Math.clamp(facetSize, 1, MAX_FACET_SIZE);
+        size = Math.clamp(size, 0, MAX_SIZE);
+        // search_after pages are positioned by the cursor alone
+        from = searchAfter != null ? 0 : Math.clamp(from, 0, MAX_RESULT_WINDOW - size);
+        fields = fields == null ? List.of() : List.copyOf(fields);
+        selection = selection == null ? FacetSelection.NONE : selection;
+    }
+
+    public SearchOptions(boolean facets, int facetSize, int from, int size, SearchCursor searchAfter, List<String> fields) {
+        this(facets, facetSize, from, size, searchAfter, fields, FacetSelection.NONE);
+    }
+
+    public SearchOptions(boolean facets, int facetSize) {
+        this(facets, facetSize, 0, DEFAULT_SIZE, null, List.of(), FacetSelection.NONE);
+    }
+}
@@ -0,0 +1,18 @@
+package com.madhu.qou.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Per-request stage durations in milliseconds, returned when /search is called with timings=true.
+// Response serialization happens after this is built, so it is only available as a metric.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record StageTimings(
+        Double normalizeMs,
+        Double nerMs,
+        Double rewriteMs,
+        Double esRoundTripMs,
+        Double esTookMs,
+        Double spellCheckMs,
+        Double facetParseMs,
+        boolean searchCacheHit,
+        double totalMs
+) {}
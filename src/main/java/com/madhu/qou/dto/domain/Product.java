@@ -1,9 +1,15 @@
 package com.madhu.qou.dto.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
 
-// This record represents a single product document in Elasticsearch
+// This record represents a single product document in Elasticsearch.
+// Unknown fields (e.g. the seeder's content_hash) are ignored when reading hits back, and
+// fields left out by _source filtering are left out of the JSON rather than written as null.
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public record Product(
         @JsonProperty("product_id") String productId,
         String name,
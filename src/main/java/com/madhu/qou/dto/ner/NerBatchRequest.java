@@ -0,0 +1,6 @@
+package com.madhu.qou.dto.ner;
+
+import java.util.List;
+
+// Request body for the NER batch endpoint: {"texts": [...]}
+public record NerBatchRequest(List<String> texts) {}
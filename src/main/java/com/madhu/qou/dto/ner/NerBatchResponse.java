@@ -0,0 +1,11 @@
+package com.madhu.qou.dto.ner;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+// Response of the NER batch endpoint; results[i] belongs to texts[i] of the request
+public record NerBatchResponse(
+        List<NerResponse> results,
+        @JsonProperty("model_version") String modelVersion
+) {}
@@ -1,6 +1,16 @@
 package com.madhu.qou.dto.ner;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import java.util.List;
 
-// This record matches the top-level JSON response: {"entities": [...]}
-public record NerResponse(List<NerEntity> entities) {}
\ No newline at end of file
+// This record matches the top-level JSON response: {"entities": [...], "model_version": "..."}
+public record NerResponse(
+        List<NerEntity> entities,
+        @JsonProperty("model_version") String modelVersion
+) {
+    // Overloaded constructor for responses that carry no version (fallbacks, older NER services)
+    public NerResponse(List<NerEntity> entities) {
+        this(entities, null);
+    }
+}
@@ -0,0 +1,161 @@
+package com.madhu.qou.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.madhu.qou.dto.CustomSearchRequest;
+import com.madhu.qou.dto.UserContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Replays the most frequent historical queries before the instance reports ready, so the first
+ * real users do not pay for cold NER, search and suggestion caches or an unwarmed JIT.
+ * <p>
+ * The source is a JSON-lines log of either search request bodies ({@code rawQuery}) or
+ * {@link QueryLog} events ({@code query}). The top {@code warmup.top-n} queries are run through
+ * the full pipeline, plus a few type-ahead prefixes each, on {@code warmup.concurrency} virtual
+ * threads, as {@link #WARM_UP_USER} so they are neither measured nor query-logged.
+ * Whatever has not run when {@code warmup.time-budget} is spent is skipped, so a slow dependency
+ * delays readiness by at most the budget.
+ */
+@Component
+@Slf4j
+public class CacheWarmer {
+
+    // Marks warm-up requests, which the pipeline keeps out of its meters and the query log
+    static final UserContext WARM_UP_USER = new UserContext("warm-up", "warm-up");
+    private static final int MAX_PREFIX_LENGTH = 4;
+
+    private final QueryUnderstandingService queryUnderstandingService;
+    private final boolean enabled;
+    private final String queriesLocation;
+    private final int topN;
+    private final int concurrency;
+    private final Duration timeBudget;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public CacheWarmer(QueryUnderstandingService queryUnderstandingService,
+                       @Value("${warmup.enabled:true}") boolean enabled,
+                       @Value("${warmup.queries:}") String queriesLocation,
+                       @Value("${warmup.top-n:500}") int topN,
+                       @Value("${warmup.concurrency:8}") int concurrency,
+                       @Value("${warmup.time-budget:60s}") Duration timeBudget) {
+        this.queryUnderstandingService = queryUnderstandingService;
+        this.enabled = enabled;
+        this.queriesLocation = queriesLocation;
+        this.topN = topN;
+        this.concurrency = Math.max(1, concurrency);
+        this.timeBudget = timeBudget;
+    }
+
+    public record Report(int queries, int completed, int failed, long elapsedMillis) {}
+
+    /**
+     * Runs the warm-up and blocks until it is done or the time budget is spent.
+     */
+    public Report warmUp() {
+        if (!enabled || queriesLocation.isBlank()) {
+            return new Report(0, 0, 0, 0);
+        }
+        Resource resource = new DefaultResourceLoader().getResource(queriesLocation);
+        List<String> queries;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            queries = topQueries(reader, topN);
+        } catch (IOException e) {
+            log.warn("Skipping warm-up, could not read queries from {}: {}", queriesLocation, e.getMessage());
+            return new Report(0, 0, 0, 0);
+        }
+        Report report = replay(queries, this::warm);
+        log.info("Warm-up replayed {} of {} queries from {} in {} ms ({} failed)",
+                report.completed(), report.queries(), queriesLocation, report.elapsedMillis(), report.failed());
+        return report;
+    }
+
+    private void warm(String query) {
+        queryUnderstandingService.processFacetedQuery(new CustomSearchRequest(query, WARM_UP_USER));
+        for (int length = 1; length <= Math.min(MAX_PREFIX_LENGTH, query.length()); length++) {
+            queryUnderstandingService.getSuggestions(query.substring(0, length));
+        }
+    }
+
+    /**
+     * The {@code n} most frequent queries of a JSON-lines log, most frequent first. Lines that are
+     * not JSON objects with a text {@code rawQuery} or {@code query} are skipped.
+     */
+    List<String> topQueries(BufferedReader reader, int n) throws IOException {
+        Map<String, Integer> counts = new HashMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode query;
+            try {
+                JsonNode event = objectMapper.readTree(line);
+                query = event.has("rawQuery") ? event.path("rawQuery") : event.path("query");
+            } catch (IOException e) {
+                continue;
+            }
+            if (query.isTextual() && !query.asText().isBlank()) {
+                counts.merge(query.asText().trim(), 1, Integer::sum);
+            }
+        }
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(n)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    /**
+     * Runs every query through {@code search}, most frequent first, with bounded concurrency;
+     * stops handing out queries once the time budget is spent and abandons the ones in flight.
+     */
+    Report replay(List<String> queries, Consumer<String> search) {
+        long start = System.nanoTime();
+        long deadline = start + timeBudget.toNanos();
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, Thread.ofVirtual().name("warm-up-", 0).factory());
+        for (String query : queries) {
+            executor.execute(() -> {
+                if (System.nanoTime() - deadline >= 0) {
+                    return;
+                }
+                try {
+                    search.accept(query);
+                    completed.incrementAndGet();
+                } catch (RuntimeException e) {
+                    log.debug("Warm-up query '{}' failed: {}", query, e.getMessage());
+                    failed.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                log.warn("Warm-up time budget of {} spent, continuing with partially warmed caches", timeBudget);
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        return new Report(queries.size(), completed.get(), failed.get(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,12 @@
+package com.madhu.qou.service;
+
+/**
+ * Published by {@link DataSeeder} after documents behind an alias changed, so anything derived
+ * from the index contents (caches, in-memory suggesters) can refresh itself.
+ *
+ * @param alias   the alias queries use, e.g. {@code products_index}
+ * @param index   the physical index the alias now points at
+ * @param rebuilt whether the alias was swapped to a freshly built index
+ * @param changes number of inserted, updated and deleted documents
+ */
+public record CatalogIndexUpdatedEvent(String alias, String index, boolean rebuilt, long changes) {}
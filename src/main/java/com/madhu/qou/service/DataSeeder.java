@@ -1,156 +1,448 @@
 package com.madhu.qou.service;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkIngester;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkListener;
+import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
 import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.ScrollResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.indices.update_aliases.Action;
+import co.elastic.clients.transport.BackoffPolicy;
+import co.elastic.clients.util.ObjectBuilder;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.madhu.qou.dto.domain.Product;
+import com.madhu.qou.service.catalog.CatalogDictionary;
 import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.RFC4180ParserBuilder;
 import com.opencsv.exceptions.CsvValidationException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
+/**
+ * Loads products.csv into {@code products_index} and {@code suggestions_index}.
+ * <p>
+ * Both names are aliases over versioned physical indices ({@code products_index_v<timestamp>}).
+ * Every document stores a {@code content_hash} of its own source, so an incremental sync only
+ * sends inserts, updates and deletes for rows that changed. A full rebuild loads a fresh
+ * versioned index and swaps the alias atomically, so serving is never interrupted.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 // NOTE: We have removed "implements CommandLineRunner"
 public class DataSeeder {
 
+    private static final String PRODUCTS_INDEX = "products_index";
+    private static final String SUGGESTIONS_INDEX = "suggestions_index";
+    private static final String CONTENT_HASH_FIELD = "content_hash";
+    private static final DateTimeFormatter VERSION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmssSSS");
+    private static final TypeReference<LinkedHashMap<String, Object>> DOCUMENT_TYPE = new TypeReference<>() {};
+
     private final ElasticsearchClient esClient;
-    private static final Set<String> KNOWN_BRANDS = Set.of(
-            "Fage", "Annie's", "Newman's Own", "General Mills", "Blue Diamond",
-            "Bonne Maman", "Philadelphia", "Stacy's", "Kellogg's", "Horizon Organic",
-            "Nike"
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogDictionary catalogDictionary;
+    // Private mapper so document hashes do not depend on application-wide Jackson settings
+    private final ObjectMapper documentMapper = new ObjectMapper();
+
+    @Value("${seeding.mode:incremental}")
+    private SeedingMode seedingMode;
+
+    @Value("${seeding.bulk.max-operations:1000}")
+    private int bulkMaxOperations;
+
+    @Value("${seeding.bulk.max-size:5MB}")
+    private DataSize bulkMaxSize;
+
+    @Value("${seeding.bulk.max-concurrent-requests:4}")
+    private int bulkMaxConcurrentRequests;
+
+    @Value("${seeding.bulk.flush-interval:1s}")
+    private Duration bulkFlushInterval;
+
+    @Value("${seeding.bulk.max-retries:5}")
+    private int bulkMaxRetries;
+
+    // Settings a freshly built index gets once loading has finished (loading runs with replicas=0, refresh off)
+    @Value("${seeding.index.replicas:1}")
+    private String indexReplicas;
+
+    @Value("${seeding.index.refresh-interval:1s}")
+    private String indexRefreshInterval;
+
+    // What goes into one alias: its mapping and how a CSV row becomes a document
+    private record IndexSpec(
+            String alias,
+            Function<TypeMapping.Builder, ObjectBuilder<TypeMapping>> mappings,
+            Function<String[], Object> toDocument
+    ) {}
+
+    // Source projection used when reading back existing hashes
+    record HashedDocument(@JsonProperty(CONTENT_HASH_FIELD) String contentHash) {}
+
+    private final IndexSpec productsSpec = new IndexSpec(
+            PRODUCTS_INDEX,
+            m -> m
+                    .properties("attributes", p -> p.nested(n -> n))
+                    .properties("brand", p -> p.keyword(k -> k))
+                    .properties("categories", p -> p.keyword(k -> k))
+                    .properties(CONTENT_HASH_FIELD, p -> p.keyword(k -> k.index(false))),
+            this::toProduct
     );
 
+    private final IndexSpec suggestionsSpec = new IndexSpec(
+            SUGGESTIONS_INDEX,
+            m -> m
+                    .properties("suggest", p -> p.completion(comp -> comp))
+                    .properties(CONTENT_HASH_FIELD, p -> p.keyword(k -> k.index(false))),
+            line -> {
+                Map<String, Object> doc = new LinkedHashMap<>();
+                doc.put("product_id", "instacart-" + line[0]);
+                doc.put("product_name", line[1]);
+                doc.put("suggest", Map.of("input", line[1]));
+                return doc;
+            }
+    );
+
+    /**
+     * Synchronizes both indices from a single pass over products.csv, according to {@code seeding.mode}.
+     */
+    public void seedIndices() throws IOException, CsvValidationException {
+        sync(List.of(productsSpec, suggestionsSpec));
+    }
+
     // This method is now public
     public void seedProductIndex() throws IOException, CsvValidationException {
-        final String indexName = "products_index";
-        if (esClient.indices().exists(req -> req.index(indexName)).value()) {
-            log.info("Product index '{}' already exists. Skipping seeding.", indexName);
+        sync(List.of(productsSpec));
+    }
+
+    // This method is also now public
+    public void seedSuggestionIndex() throws IOException, CsvValidationException {
+        sync(List.of(suggestionsSpec));
+    }
+
+    // Per-alias state of one run
+    private static final class IndexSync {
+        final IndexSpec spec;
+        final String targetIndex;
+        final boolean fullBuild;
+        // Incremental only: id -> hash of every document not yet matched by a CSV row
+        final Map<String, String> unmatchedHashes;
+        // Full build only: what the alias points at today, replaced by the swap
+        final List<String> replacedIndices;
+        final boolean replacesConcreteIndex;
+        long inserted, updated, unchanged, deleted;
+
+        IndexSync(IndexSpec spec, String targetIndex, boolean fullBuild, Map<String, String> unmatchedHashes,
+                  List<String> replacedIndices, boolean replacesConcreteIndex) {
+            this.spec = spec;
+            this.targetIndex = targetIndex;
+            this.fullBuild = fullBuild;
+            this.unmatchedHashes = unmatchedHashes;
+            this.replacedIndices = replacedIndices;
+            this.replacesConcreteIndex = replacesConcreteIndex;
+        }
+
+        long changes() {
+            return inserted + updated + deleted;
+        }
+    }
+
+    private void sync(List<IndexSpec> specs) throws IOException, CsvValidationException {
+        List<IndexSync> syncs = new ArrayList<>();
+        for (IndexSpec spec : specs) {
+            IndexSync sync = prepare(spec);
+            if (sync != null) {
+                syncs.add(sync);
+            }
+        }
+        if (syncs.isEmpty()) {
             return;
         }
+        ingest(syncs);
+        for (IndexSync sync : syncs) {
+            finish(sync);
+        }
+    }
+
+    private IndexSync prepare(IndexSpec spec) throws IOException {
+        String alias = spec.alias();
+        boolean aliasExists = esClient.indices().existsAlias(a -> a.name(alias)).value();
+        boolean concreteExists = !aliasExists && esClient.indices().exists(req -> req.index(alias)).value();
+
+        if (seedingMode == SeedingMode.SKIP_EXISTING && (aliasExists || concreteExists)) {
+            log.info("Index '{}' already exists. Skipping seeding.", alias);
+            return null;
+        }
+        if (seedingMode == SeedingMode.INCREMENTAL && aliasExists) {
+            String current = aliasTargets(alias).get(0);
+            Map<String, String> hashes = loadContentHashes(alias);
+            log.info("Incrementally syncing '{}' (index '{}', {} existing documents).", alias, current, hashes.size());
+            return new IndexSync(spec, current, false, hashes, List.of(), false);
+        }
 
-        log.info("Creating product index '{}'", indexName);
+        // Full build: first load, explicit rebuild, or migrating a pre-alias concrete index
+        String newIndex = alias + "_v" + ZonedDateTime.now(ZoneOffset.UTC).format(VERSION_FORMAT);
+        log.info("Building '{}' into new index '{}'", alias, newIndex);
         esClient.indices().create(c -> c
-                .index(indexName)
-                .mappings(m -> m
-                        .properties("attributes", p -> p.nested(n -> n))
-                        .properties("brand", p -> p.keyword(k -> k))
-                        .properties("categories", p -> p.keyword(k -> k))
-                )
+                .index(newIndex)
+                .settings(s -> s.numberOfReplicas("0").refreshInterval(t -> t.time("-1")))
+                .mappings(spec.mappings())
         );
+        List<String> replaced = aliasExists ? aliasTargets(alias) : concreteExists ? List.of(alias) : List.of();
+        return new IndexSync(spec, newIndex, true, Map.of(), replaced, concreteExists);
+    }
 
-        Map<String, String> aisleMap = loadAisles();
-        List<Product> products = new ArrayList<>();
-        ClassPathResource productsResource = new ClassPathResource("data/products.csv");
+    /**
+     * Parses products.csv once and streams operations for every index being synced through a
+     * {@link BulkIngester}, which keeps several bulk requests in flight, flushes on operation
+     * count, byte size or time, and retries operations rejected with 429 using exponential backoff.
+     */
+    private void ingest(List<IndexSync> syncs) throws IOException, CsvValidationException {
+        long startNanos = System.nanoTime();
+        SeedingListener listener = new SeedingListener();
+        BulkIngester<String> ingester = BulkIngester.of(b -> b
+                .client(esClient)
+                .maxOperations(bulkMaxOperations)
+                .maxSize(bulkMaxSize.toBytes())
+                .maxConcurrentRequests(bulkMaxConcurrentRequests)
+                .flushInterval(bulkFlushInterval.toMillis(), TimeUnit.MILLISECONDS)
+                .backoffPolicy(BackoffPolicy.exponentialBackoff(50L, bulkMaxRetries))
+                .listener(listener)
+        );
 
-        try (CSVReader reader = new CSVReader(new InputStreamReader(productsResource.getInputStream()))) {
-            reader.readNext(); // Skip header
-            String[] line;
-            while ((line = reader.readNext()) != null) {
-                String category = aisleMap.getOrDefault(line[2], "Unknown");
-                String productName = line[1];
-                String brand = extractBrand(productName);
-                boolean isOrganic = productName.toLowerCase().contains("organic")
-                        || brand.toLowerCase().contains("organic");
-                Product.GroceryAttributes groceryAttributes = new Product.GroceryAttributes(
-                        List.of(), isOrganic, null
-                );
-                String searchAid = productName.toLowerCase() + " " + category.toLowerCase();
-                products.add(new Product(
-                        "instacart-" + line[0],
-                        productName,
-                        "",
-                        brand,
-                        List.of(category),
-                        List.of(),
-                        groceryAttributes,
-                        searchAid
-                ));
-                if (products.size() >= 1000) {
-                    indexProductsInBulk(products);
-                    products.clear();
+        long rows = 0;
+        try {
+            try (CSVReader reader = openCsv("data/products.csv")) {
+                reader.readNext(); // Skip header
+                String[] line;
+                while ((line = reader.readNext()) != null) {
+                    rows++;
+                    String id = "instacart-" + line[0];
+                    for (IndexSync sync : syncs) {
+                        Map<String, Object> document = documentMapper.convertValue(sync.spec.toDocument().apply(line), DOCUMENT_TYPE);
+                        String hash = contentHash(document);
+                        if (!sync.fullBuild) {
+                            String existing = sync.unmatchedHashes.remove(id);
+                            if (hash.equals(existing)) {
+                                sync.unchanged++;
+                                continue;
+                            }
+                            if (existing == null) {
+                                sync.inserted++;
+                            } else {
+                                sync.updated++;
+                            }
+                        } else {
+                            sync.inserted++;
+                        }
+                        document.put(CONTENT_HASH_FIELD, hash);
+                        ingester.add(op -> op.index(idx -> idx.index(sync.targetIndex).id(id).document(document)), sync.targetIndex);
+                    }
                 }
             }
+            // Whatever was not matched by a CSV row is gone from the catalog
+            for (IndexSync sync : syncs) {
+                for (String id : sync.unmatchedHashes.keySet()) {
+                    sync.deleted++;
+                    ingester.add(op -> op.delete(d -> d.index(sync.targetIndex).id(id)), sync.targetIndex);
+                }
+            }
+        } finally {
+            // Flushes what is buffered and waits for every in-flight bulk request to complete
+            ingester.close();
         }
-        if (!products.isEmpty()) {
-            indexProductsInBulk(products);
-        }
-        log.info("Finished seeding product index.");
+
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        long succeeded = listener.succeeded.get();
+        log.info("Processed {} CSV rows: {} operations succeeded, {} failed, {} bulk requests in {} s ({} ops/s).",
+                rows, succeeded, listener.failed.get(), listener.requests.get(),
+                String.format("%.1f", seconds), String.format("%.0f", succeeded / Math.max(seconds, 1e-3)));
     }
 
-    // This method is also now public
-    public void seedSuggestionIndex() throws IOException, CsvValidationException {
-        final String indexName = "suggestions_index";
-        if (esClient.indices().exists(req -> req.index(indexName)).value()) {
-            log.info("Suggestion index '{}' already exists. Skipping seeding.", indexName);
-            return;
+    private void finish(IndexSync sync) throws IOException {
+        String alias = sync.spec.alias();
+        if (sync.fullBuild) {
+            // Restore the serving settings that were relaxed for the load, then make documents visible
+            esClient.indices().putSettings(s -> s
+                    .index(sync.targetIndex)
+                    .settings(is -> is.numberOfReplicas(indexReplicas).refreshInterval(t -> t.time(indexRefreshInterval)))
+            );
+            esClient.indices().refresh(r -> r.index(sync.targetIndex));
+
+            // One atomic alias update: readers see either the old index or the new one, never neither
+            List<Action> actions = new ArrayList<>();
+            actions.add(Action.of(a -> a.add(add -> add.index(sync.targetIndex).alias(alias))));
+            for (String old : sync.replacedIndices) {
+                actions.add(sync.replacesConcreteIndex
+                        ? Action.of(a -> a.removeIndex(ri -> ri.index(old)))
+                        : Action.of(a -> a.remove(rm -> rm.index(old).alias(alias))));
+            }
+            esClient.indices().updateAliases(u -> u.actions(actions));
+            if (!sync.replacesConcreteIndex && !sync.replacedIndices.isEmpty()) {
+                esClient.indices().delete(d -> d.index(sync.replacedIndices));
+            }
+            log.info("Alias '{}' now points at '{}' ({} documents; replaced {}).", alias, sync.targetIndex, sync.inserted, sync.replacedIndices);
+        } else if (sync.changes() > 0) {
+            esClient.indices().refresh(r -> r.index(sync.targetIndex));
         }
 
-        log.info("Creating suggestion index '{}'", indexName);
-        esClient.indices().create(c -> c.index(indexName).mappings(m -> m.properties("suggest", p -> p.completion(comp -> comp))));
+        if (!sync.fullBuild) {
+            log.info("Incremental sync of '{}': {} inserted, {} updated, {} deleted, {} unchanged.",
+                    alias, sync.inserted, sync.updated, sync.deleted, sync.unchanged);
+        }
+        if (sync.changes() > 0) {
+            eventPublisher.publishEvent(new CatalogIndexUpdatedEvent(alias, sync.targetIndex, sync.fullBuild, sync.changes()));
+        }
+    }
 
-        ClassPathResource productsResource = new ClassPathResource("data/products.csv");
-        BulkRequest.Builder br = new BulkRequest.Builder();
-        int count = 0;
-        try (CSVReader reader = new CSVReader(new InputStreamReader(productsResource.getInputStream()))) {
-            reader.readNext(); // Skip header
-            String[] line;
-            while ((line = reader.readNext()) != null) {
-                Map<String, Object> doc = new HashMap<>();
-                doc.put("product_id", "instacart-" + line[0]);
-                doc.put("product_name", line[1]);
-                doc.put("suggest", Map.of("input", line[1]));
-                br.operations(op -> op.index(idx -> idx.index(indexName).document(doc)));
-                count++;
-                if (count % 10000 == 0) {
-                    esClient.bulk(br.build());
-                    br = new BulkRequest.Builder();
-                    log.info("Indexed {} suggestions...", count);
-                }
+    private List<String> aliasTargets(String alias) throws IOException {
+        return new ArrayList<>(esClient.indices().getAlias(g -> g.name(alias)).result().keySet());
+    }
+
+    // Scrolls through the alias fetching only the content hash of each document
+    private Map<String, String> loadContentHashes(String alias) throws IOException {
+        Map<String, String> hashes = new HashMap<>();
+        SearchResponse<HashedDocument> response = esClient.search(s -> s
+                .index(alias)
+                .size(5000)
+                .scroll(t -> t.time("1m"))
+                .sort(so -> so.field(f -> f.field("_doc")))
+                .source(src -> src.filter(f -> f.includes(CONTENT_HASH_FIELD))), HashedDocument.class);
+        String scrollId = response.scrollId();
+        List<Hit<HashedDocument>> hits = response.hits().hits();
+        while (!hits.isEmpty()) {
+            for (Hit<HashedDocument> hit : hits) {
+                // Documents written before hashing existed get "" so they are always rewritten
+                String hash = hit.source() == null ? null : hit.source().contentHash();
+                hashes.put(hit.id(), hash == null ? "" : hash);
             }
+            String currentScrollId = scrollId;
+            ScrollResponse<HashedDocument> next = esClient.scroll(sc -> sc.scrollId(currentScrollId).scroll(t -> t.time("1m")), HashedDocument.class);
+            scrollId = next.scrollId();
+            hits = next.hits().hits();
         }
-        BulkRequest finalRequest = br.build();
-        if (!finalRequest.operations().isEmpty()) {
-            esClient.bulk(finalRequest);
+        if (scrollId != null) {
+            String finalScrollId = scrollId;
+            esClient.clearScroll(c -> c.scrollId(finalScrollId));
+        }
+        return hashes;
+    }
+
+    // SHA-256 of the document JSON (without the hash field), truncated to 128 bits
+    private String contentHash(Map<String, Object> document) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(documentMapper.writeValueAsBytes(document));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
-        log.info("Finished seeding suggestion index with {} entries.", count);
     }
 
-    private Map<String, String> loadAisles() throws IOException, CsvValidationException {
-        Map<String, String> aisleMap = new HashMap<>();
-        ClassPathResource aislesResource = new ClassPathResource("data/aisles.csv");
-        try (CSVReader reader = new CSVReader(new InputStreamReader(aislesResource.getInputStream()))) {
-            reader.readNext();
+    /**
+     * The products as they are indexed into {@code products_index}, in products.csv order, for the
+     * in-process search engine, spelling corrector and semantic index.
+     */
+    public List<Product> readProducts() throws IOException, CsvValidationException {
+        List<Product> products = new ArrayList<>();
+        try (CSVReader reader = openCsv("data/products.csv")) {
+            reader.readNext(); // Skip header
             String[] line;
             while ((line = reader.readNext()) != null) {
-                aisleMap.put(line[0], line[1]);
+                products.add(toProduct(line));
             }
         }
-        return aisleMap;
+        return products;
     }
 
-    private void indexProductsInBulk(List<Product> products) throws IOException {
-        BulkRequest.Builder br = new BulkRequest.Builder();
-        for (Product product : products) {
-            br.operations(op -> op.index(idx -> idx.index("products_index").id(product.productId()).document(product)));
-        }
-        esClient.bulk(br.build());
-        log.info("Indexed a batch of {} products.", products.size());
+    private Product toProduct(String[] line) {
+        String category = catalogDictionary.aisle(line[2]);
+        String productName = line[1];
+        // Lower-cased once per row for brand detection, the organic flag and search_aid
+        String productNameLower = productName.toLowerCase();
+        String brand = catalogDictionary.brand(catalogDictionary.detectBrand(productNameLower));
+        boolean isOrganic = productNameLower.contains("organic")
+                || brand.toLowerCase().contains("organic");
+        Product.GroceryAttributes groceryAttributes = new Product.GroceryAttributes(
+                List.of(), isOrganic, null
+        );
+        String searchAid = productNameLower + " " + category.toLowerCase();
+        return new Product(
+                "instacart-" + line[0],
+                productName,
+                "",
+                brand,
+                List.of(category),
+                List.of(),
+                groceryAttributes,
+                searchAid
+        );
     }
 
-    private String extractBrand(String productName) {
-        String productNameLower = productName.toLowerCase();
-        for (String brand : KNOWN_BRANDS) {
-            if (productNameLower.contains(brand.toLowerCase())) {
-                return brand;
+    // RFC 4180 parsing: product names contain doubled quotes (e.g. 9\""x13\"") that the default
+    // backslash-escaping parser mis-splits, silently merging thousands of rows
+    private static CSVReader openCsv(String resource) throws IOException {
+        return new CSVReaderBuilder(new InputStreamReader(new ClassPathResource(resource).getInputStream()))
+                .withCSVParser(new RFC4180ParserBuilder().build())
+                .build();
+    }
+
+    // Counts outcomes per bulk request; the context of each operation is its target index
+    private static final class SeedingListener implements BulkListener<String> {
+
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong succeeded = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request, List<String> contexts) {
+            requests.incrementAndGet();
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, List<String> contexts, BulkResponse response) {
+            long errors = response.items().stream().filter(item -> item.error() != null).count();
+            succeeded.addAndGet(response.items().size() - errors);
+            failed.addAndGet(errors);
+            if (errors > 0) {
+                log.warn("Bulk request {} had {} failed operations, first: {}", executionId, errors,
+                        response.items().stream().filter(item -> item.error() != null).findFirst().map(item -> item.error().reason()).orElse(""));
+            } else {
+                log.debug("Indexed a batch of {} documents.", response.items().size());
             }
         }
-        return "Private Label";
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, List<String> contexts, Throwable failure) {
+            failed.addAndGet(contexts.size());
+            log.error("Bulk request {} with {} operations failed", executionId, contexts.size(), failure);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,160 @@
+package com.madhu.qou.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters for the search pipeline, registered once so the hot path only records.
+ * <p>
+ * {@code qou.pipeline.stage{stage=...}} timers publish percentile histograms (quantiles are
+ * computed by Prometheus, not in-process); counters cover the NER fallbacks and the zero-hit
+ * spell-check path. Cache hit rates come from the Caffeine cache metrics ({@code cache.gets}).
+ * <p>
+ * Warm-up requests ({@link CacheWarmer}) are not real traffic: they get an unrecorded trace, and
+ * their NER stage runs {@link #unrecorded(Supplier) unrecorded} so its fallbacks are not counted.
+ */
+@Component
+public class PipelineMetrics {
+
+    public enum Stage {
+        NORMALIZE, NER, SEMANTIC, REWRITE, ES_ROUND_TRIP, ES_TOOK, SPELL_CHECK, FACET_PARSE, SERIALIZATION;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    // Set while an unrecorded stage runs on this thread; the fallbacks it hits are not counted
+    private static final ThreadLocal<Boolean> UNRECORDED = ThreadLocal.withInitial(() -> false);
+
+    private final Timer[] stageTimers = new Timer[Stage.values().length];
+    private final Counter nerErrorFallbacks;
+    private final Counter brandKeywordFallbacks;
+    private final Counter deadlineFallbacks;
+    private final Counter circuitOpenFallbacks;
+    private final Counter saturatedFallbacks;
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+    private final Counter zeroHitsCorrected;
+    private final Counter zeroHitsUncorrected;
+    private final Counter semanticDeadlineFallbacks;
+
+    public PipelineMetrics(MeterRegistry meterRegistry) {
+        for (Stage stage : Stage.values()) {
+            stageTimers[stage.ordinal()] = Timer.builder("qou.pipeline.stage")
+                    .description("Time spent in one stage of the search pipeline")
+                    .tag("stage", stage.tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(500))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(meterRegistry);
+        }
+        nerErrorFallbacks = nerFallbackCounter(meterRegistry, "ner_error");
+        brandKeywordFallbacks = nerFallbackCounter(meterRegistry, "brand_keyword");
+        deadlineFallbacks = nerFallbackCounter(meterRegistry, "deadline");
+        circuitOpenFallbacks = nerFallbackCounter(meterRegistry, "circuit_open");
+        saturatedFallbacks = nerFallbackCounter(meterRegistry, "saturated");
+        hedgesSent = Counter.builder("qou.ner.hedge.sent")
+                .description("NER calls that sent a hedged request to the second replica")
+                .register(meterRegistry);
+        hedgesWon = Counter.builder("qou.ner.hedge.won")
+                .description("Hedged NER requests that answered before the primary")
+                .register(meterRegistry);
+        zeroHitsCorrected = zeroHitsCounter(meterRegistry, "corrected");
+        zeroHitsUncorrected = zeroHitsCounter(meterRegistry, "none");
+        semanticDeadlineFallbacks = Counter.builder("qou.semantic.deadline")
+                .description("Hybrid searches that went lexical-only because the kNN lookup missed its latency budget")
+                .register(meterRegistry);
+    }
+
+    public void record(Stage stage, long nanos) {
+        stageTimers[stage.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** The NER call failed and the query continued with no remote entities. */
+    public void nerErrorFallback() {
+        count(nerErrorFallbacks);
+    }
+
+    /** The NER stage ran out of its latency budget; the query continued without remote entities. */
+    public void nerDeadlineFallback() {
+        count(deadlineFallbacks);
+    }
+
+    /** The NER circuit breaker was open, so the service was not called. */
+    public void nerCircuitOpenFallback() {
+        count(circuitOpenFallbacks);
+    }
+
+    /** Every NER call thread was busy, so the service was not called. */
+    public void nerSaturatedFallback() {
+        count(saturatedFallbacks);
+    }
+
+    public void nerHedgeSent() {
+        hedgesSent.increment();
+    }
+
+    public void nerHedgeWon() {
+        hedgesWon.increment();
+    }
+
+    /** NER found no brand and the known-brand keyword scan supplied one. */
+    public void brandKeywordFallback() {
+        count(brandKeywordFallbacks);
+    }
+
+    /** A search returned no hits; {@code corrected} tells whether a did-you-mean was produced. */
+    public void zeroHits(boolean corrected) {
+        count(corrected ? zeroHitsCorrected : zeroHitsUncorrected);
+    }
+
+    /** The kNN lookup ran out of its latency budget; the query was searched lexically only. */
+    public void semanticDeadlineFallback() {
+        count(semanticDeadlineFallbacks);
+    }
+
+    public PipelineTrace startTrace() {
+        return new PipelineTrace(this);
+    }
+
+    /** A trace that keeps the request's own timings but feeds no meter and is not query-logged. */
+    public PipelineTrace startUnrecordedTrace() {
+        return new PipelineTrace(null);
+    }
+
+    /** Runs {@code work} on this thread without counting the fallbacks it hits. */
+    public <T> T unrecorded(Supplier<T> work) {
+        UNRECORDED.set(true);
+        try {
+            return work.get();
+        } finally {
+            UNRECORDED.remove();
+        }
+    }
+
+    private static void count(Counter counter) {
+        if (!UNRECORDED.get()) {
+            counter.increment();
+        }
+    }
+
+    private static Counter nerFallbackCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("qou.ner.fallback")
+                .description("Queries whose entities came from a fallback instead of the NER service")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static Counter zeroHitsCounter(MeterRegistry meterRegistry, String suggestion) {
+        return Counter.builder("qou.search.zero.hits")
+                .description("Searches that returned no hits and went down the spell-check path")
+                .tag("suggestion", suggestion)
+                .register(meterRegistry);
+    }
+}
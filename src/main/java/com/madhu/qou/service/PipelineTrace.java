@@ -0,0 +1,68 @@
+package com.madhu.qou.service;
+
+import com.madhu.qou.dto.StageTimings;
+import com.madhu.qou.service.PipelineMetrics.Stage;
+
+import java.util.Arrays;
+
+/**
+ * Stage durations of one search request. Each measurement goes to the shared
+ * {@link PipelineMetrics} timers and is also kept here, so the request can report its own
+ * timings. Stages run one after another (possibly on different threads, ordered by the
+ * future chain), so no synchronization is needed. An unrecorded trace (a warm-up request) only
+ * keeps the timings.
+ */
+public final class PipelineTrace {
+
+    private final PipelineMetrics metrics;
+    private final long startNanos = System.nanoTime();
+    private final long[] stageNanos = new long[Stage.values().length];
+    private boolean searchCacheHit = true;
+
+    PipelineTrace(PipelineMetrics metrics) {
+        this.metrics = metrics;
+        Arrays.fill(stageNanos, -1);
+    }
+
+    /** Records the time since {@code fromNanos} (a {@link System#nanoTime()} reading) for the stage. */
+    public void stop(Stage stage, long fromNanos) {
+        record(stage, System.nanoTime() - fromNanos);
+    }
+
+    public void record(Stage stage, long nanos) {
+        stageNanos[stage.ordinal()] = nanos;
+        if (metrics != null) {
+            metrics.record(stage, nanos);
+        }
+    }
+
+    /** Whether the request counts as traffic: its stages feed the meters and it may be query-logged. */
+    public boolean recorded() {
+        return metrics != null;
+    }
+
+    /**
+     * Whether the search whose response the request uses was answered by the response cache.
+     * Other searches of the request (a cancelled speculative one, the spell-check follow-up) do
+     * not count.
+     */
+    void searchServed(boolean fromCache) {
+        searchCacheHit = fromCache;
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public StageTimings toTimings() {
+        return new StageTimings(
+                millis(Stage.NORMALIZE), millis(Stage.NER), millis(Stage.REWRITE),
+                millis(Stage.ES_ROUND_TRIP), millis(Stage.ES_TOOK), millis(Stage.SPELL_CHECK), millis(Stage.FACET_PARSE),
+                searchCacheHit, elapsedNanos() / 1e6);
+    }
+
+    private Double millis(Stage stage) {
+        long nanos = stageNanos[stage.ordinal()];
+        return nanos < 0 ? null : nanos / 1e6;
+    }
+}
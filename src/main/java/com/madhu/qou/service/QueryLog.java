@@ -0,0 +1,75 @@
+package com.madhu.qou.service;
+
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.json.JsonpUtils;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.madhu.qou.dto.UnderstoodQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sampled, structured log of search requests: one JSON line per logged request on the
+ * {@code qou.querylog} logger, which logback-spring.xml routes through an async appender.
+ * <p>
+ * A request is logged when it is sampled (1 in {@code search.query-log.sample-one-in}) or took at
+ * least {@code search.query-log.slow-threshold}. Deciding costs a clock read and a random number;
+ * the event, including the rendered Elasticsearch DSL, is only built when it will be written.
+ * Unrecorded (warm-up) requests are never logged, so they cannot feed the next warm-up.
+ */
+@Component
+public class QueryLog {
+
+    private static final Logger queryLog = LoggerFactory.getLogger("qou.querylog");
+
+    private final boolean enabled;
+    private final int sampleOneIn;
+    private final long slowThresholdNanos;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JacksonJsonpMapper jsonpMapper = new JacksonJsonpMapper();
+
+    public QueryLog(@Value("${search.query-log.enabled:true}") boolean enabled,
+                    @Value("${search.query-log.sample-one-in:100}") int sampleOneIn,
+                    @Value("${search.query-log.slow-threshold:250ms}") Duration slowThreshold) {
+        this.enabled = enabled;
+        this.sampleOneIn = Math.max(1, sampleOneIn);
+        this.slowThresholdNanos = slowThreshold.toNanos();
+    }
+
+    public void record(UnderstoodQuery understoodQuery, SearchRequest searchRequest, PipelineTrace trace, long hits) {
+        if (!enabled || !trace.recorded() || !queryLog.isInfoEnabled()) {
+            return;
+        }
+        boolean slow = trace.elapsedNanos() >= slowThresholdNanos;
+        if (slow || ThreadLocalRandom.current().nextInt(sampleOneIn) == 0) {
+            queryLog.info(render(understoodQuery, searchRequest, trace, hits, slow));
+        }
+    }
+
+    String render(UnderstoodQuery understoodQuery, SearchRequest searchRequest, PipelineTrace trace, long hits, boolean slow) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("ts", Instant.now().toString());
+        event.put("reason", slow ? "slow" : "sampled");
+        event.put("query", understoodQuery.preprocessedQuery().originalQuery());
+        event.put("normalized", understoodQuery.preprocessedQuery().normalizedQuery());
+        event.put("entities", understoodQuery.entities());
+        event.put("hits", hits);
+        event.put("timings", trace.toTimings());
+        event.put("dsl", new RawValue(JsonpUtils.toJsonString(searchRequest, jsonpMapper)));
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            return "{\"error\":\"could not render query log event\"}";
+        }
+    }
+}
@@ -1,23 +1,54 @@
 package com.madhu.qou.service;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
 import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsAggregate;
 import co.elastic.clients.elasticsearch.core.SearchRequest;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import co.elastic.clients.elasticsearch.core.search.Suggestion;
 import co.elastic.clients.elasticsearch.core.search.TermSuggest; // <-- Import this
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.madhu.qou.dto.*;
 import com.madhu.qou.dto.domain.Product;
+import com.madhu.qou.service.PipelineMetrics.Stage;
 import com.madhu.qou.service.ingestion.PreprocessingService;
 import com.madhu.qou.service.intent.IntentAndEntityService;
+import com.madhu.qou.service.local.LocalSearchEngine;
 import com.madhu.qou.service.rewriting.QueryRewriteService;
+import com.madhu.qou.service.spell.SpellCorrector;
+import com.madhu.qou.service.spell.SpellMode;
+import com.madhu.qou.service.suggest.LocalSuggester;
+import com.madhu.qou.service.vector.ReciprocalRankFusion;
+import com.madhu.qou.service.vector.SemanticRetriever;
 import lombok.RequiredArgsConstructor;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,46 +57,395 @@ import java.util.stream.Collectors;
 public class QueryUnderstandingService {
 
     private final ElasticsearchClient esClient;
+    private final ElasticsearchAsyncClient esAsyncClient;
     private final PreprocessingService preprocessingService;
     private final IntentAndEntityService intentAndEntityService;
     private final QueryRewriteService queryRewriteService;
+    private final LocalSuggester localSuggester;
+    private final SearchResponseCache searchResponseCache;
+    private final PipelineMetrics pipelineMetrics;
+    private final QueryLog queryLog;
+    private final LocalSearchEngine localSearchEngine;
+    private final SpellCorrector spellCorrector;
+    private final SemanticRetriever semanticRetriever;
 
+    private static final JsonFactory STREAMING_JSON = new JsonFactory();
+    private static final ObjectMapper RESPONSE_MAPPER = new ObjectMapper();
+
+    // One cheap virtual thread per blocking NER call
+    private final ExecutorService pipelineExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${search.speculative.enabled:false}")
+    private boolean speculativeSearchEnabled;
+
+    @Value("${search.engine:elasticsearch}")
+    private SearchEngine searchEngine = SearchEngine.ELASTICSEARCH;
+
+    @Value("${spell.mode:elasticsearch}")
+    private SpellMode spellMode = SpellMode.ELASTICSEARCH;
+
+    // Hits of each ranking that hybrid search fuses; deeper pages are searched lexically only
+    @Value("${search.semantic.window:50}")
+    private int semanticWindow = 50;
+
+    @Value("${search.semantic.latency-budget:20ms}")
+    private Duration semanticBudget = Duration.ofMillis(20);
+
+    /**
+     * Blocking entry point. Callers run on virtual threads ({@code spring.threads.virtual.enabled}),
+     * so waiting here parks the virtual thread instead of pinning a platform thread.
+     */
     public FacetedSearchResponse processFacetedQuery(CustomSearchRequest request) {
-        // Build the request, which also performs NER
-        UnderstoodQuery understoodQuery = understandQuery(request);
-        SearchRequest esRequest = queryRewriteService.buildEsQuery(understoodQuery);
+        return processFacetedQuery(request, false);
+    }
 
-        try {
-            SearchResponse<Product> esResponse = esClient.search(esRequest, Product.class);
+    /**
+     * As {@link #processFacetedQuery(CustomSearchRequest)}, optionally attaching the per-stage
+     * timings of this request to the response.
+     */
+    public FacetedSearchResponse processFacetedQuery(CustomSearchRequest request, boolean includeTimings) {
+        return processFacetedQuery(request, SearchOptions.DEFAULT, includeTimings);
+    }
 
-            List<Product> products = esResponse.hits().hits().stream()
-                    .map(Hit::source)
-                    .collect(Collectors.toList());
+    /**
+     * As {@link #processFacetedQuery(CustomSearchRequest, boolean)}, with the facets shaped (or
+     * skipped) by the client's options.
+     */
+    public FacetedSearchResponse processFacetedQuery(CustomSearchRequest request, SearchOptions options, boolean includeTimings) {
+        return processFacetedQueryAsync(request, options, includeTimings).join();
+    }
 
-            List<Facet> facets = parseFacets(esResponse.aggregations());
-            String suggestion = null;
+    public CompletableFuture<FacetedSearchResponse> processFacetedQueryAsync(CustomSearchRequest request) {
+        return processFacetedQueryAsync(request, false);
+    }
 
-            assert esResponse.hits().total() != null;
-            if (esResponse.hits().total().value() == 0 && esResponse.suggest() != null) {
-                List<Suggestion<Product>> spellCheckSuggestions = esResponse.suggest().get("spell-check");
-                if (spellCheckSuggestions != null && !spellCheckSuggestions.isEmpty()) {
-                    // Pass the list of found entities to the suggestion builder
-                    suggestion = buildSuggestionString(spellCheckSuggestions, understoodQuery.entities());
+    public CompletableFuture<FacetedSearchResponse> processFacetedQueryAsync(CustomSearchRequest request, boolean includeTimings) {
+        return processFacetedQueryAsync(request, SearchOptions.DEFAULT, includeTimings);
+    }
+
+    /**
+     * Runs the pipeline without blocking the caller: NER runs on a virtual thread and the search
+     * goes through the async Elasticsearch client. With {@code search.speculative.enabled}, a plain
+     * multi_match search is fired in parallel with NER; it is used as-is when NER finds no entities
+     * (the rewrite would be identical) and cancelled otherwise, so entity-free queries cost
+     * max(NER, ES) instead of NER + ES. The did-you-mean suggestion is only looked for when the
+     * search finds nothing (see {@code spell.mode}); with {@code spell.mode=correct-first} a
+     * misspelled query is corrected before it is searched instead. With {@code search.semantic.enabled}
+     * the products nearest to the query by embedding are looked up alongside NER and fused with the
+     * lexical hits ({@link #semanticSearch}). Every stage is timed into {@link PipelineMetrics}.
+     */
+    public CompletableFuture<FacetedSearchResponse> processFacetedQueryAsync(CustomSearchRequest request, SearchOptions options, boolean includeTimings) {
+        PipelineTrace trace = startTrace(request);
+        long normalizeStart = System.nanoTime();
+        PreprocessedQuery preprocessedQuery = preprocessingService.process(request);
+        trace.stop(Stage.NORMALIZE, normalizeStart);
+
+        long speculativeStart = System.nanoTime();
+        AtomicBoolean speculativeIssued = new AtomicBoolean();
+        SearchRequest speculativeRequest = speculativeSearchEnabled
+                ? queryRewriteService.buildEsQuery(new UnderstoodQuery(preprocessedQuery, new Intent("find_product"), List.of()), options)
+                : null;
+        CompletableFuture<SearchResponse<Product>> speculativeSearch = speculativeRequest != null
+                ? search(speculativeRequest, speculativeIssued)
+                : null;
+        CompletableFuture<List<String>> semanticSearch = semanticSearch(preprocessedQuery, options, trace);
+
+        return CompletableFuture.supplyAsync(() -> {
+                    long nerStart = System.nanoTime();
+                    UnderstoodQuery understoodQuery = understand(preprocessedQuery, trace);
+                    trace.stop(Stage.NER, nerStart);
+                    return correctFirst(understoodQuery, trace);
+                }, pipelineExecutor)
+                .thenCompose(understoodQuery -> semanticSearch.thenCompose(semanticIds -> {
+                    CompletableFuture<SearchResponse<Product>> search;
+                    SearchRequest searchRequest;
+                    AtomicBoolean issued;
+                    long searchStart;
+                    boolean corrected = understoodQuery.preprocessedQuery() != preprocessedQuery;
+                    boolean hybrid = !semanticIds.isEmpty();
+                    if (speculativeSearch != null && understoodQuery.entities().isEmpty() && !corrected && !hybrid) {
+                        search = speculativeSearch;
+                        searchRequest = speculativeRequest;
+                        issued = speculativeIssued;
+                        searchStart = speculativeStart;
+                    } else {
+                        if (speculativeSearch != null) {
+                            speculativeSearch.cancel(true);
+                        }
+                        long rewriteStart = System.nanoTime();
+                        searchRequest = hybrid
+                                ? queryRewriteService.buildHybridQuery(understoodQuery, options, semanticIds, semanticWindow)
+                                : queryRewriteService.buildEsQuery(understoodQuery, options);
+                        trace.stop(Stage.REWRITE, rewriteStart);
+                        searchStart = System.nanoTime();
+                        issued = new AtomicBoolean();
+                        search = search(searchRequest, issued);
+                    }
+                    return search.thenCompose(esResponse -> {
+                        trace.stop(Stage.ES_ROUND_TRIP, searchStart);
+                        trace.searchServed(!issued.get());
+                        if (issued.get()) {
+                            trace.record(Stage.ES_TOOK, TimeUnit.MILLISECONDS.toNanos(esResponse.took()));
+                        }
+                        return didYouMean(totalHits(esResponse), understoodQuery, trace).thenApply(suggestion -> {
+                            List<Hit<Product>> hits = hybrid
+                                    ? ReciprocalRankFusion.fuse(esResponse.hits().hits(), semanticIds, options.from(), options.size())
+                                    : esResponse.hits().hits();
+                            FacetedSearchResponse response = toFacetedResponse(esResponse, hits, !hybrid, suggestion,
+                                    corrected ? searchedText(understoodQuery) : null, options, trace);
+                            queryLog.record(understoodQuery, searchRequest, trace, totalHits(esResponse));
+                            return includeTimings
+                                    ? new FacetedSearchResponse(response.products(), response.nextCursor(), response.facets(),
+                                            response.didYouMeanSuggestion(), response.correctedQuery(), trace.toTimings())
+                                    : response;
+                        });
+                    });
+                }))
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof IOException) {
+                        log.error("Error during faceted search execution", cause);
+                        return new FacetedSearchResponse(Collections.emptyList(), Collections.emptyList(), null);
+                    }
+                    throw e instanceof CompletionException ce ? ce : new CompletionException(cause);
+                });
+    }
+
+    /**
+     * Streaming variant of {@link #processFacetedQuery(CustomSearchRequest, SearchOptions, boolean)}:
+     * the pipeline runs up to and including the Elasticsearch round trip before this returns, so
+     * failures surface here rather than as a truncated body. Zero hits only show once the body is
+     * read, so the did-you-mean follow-up runs while writing; if it fails, the suggestion is left
+     * out and the body still completes. Writing the returned response then
+     * copies each hit's {@code _source} from the raw Elasticsearch body into the output without
+     * building {@link Product} records ({@link SearchResponseTranscoder}). Bypasses the search
+     * response cache and carries no timings. With the local search engine there is no raw body to
+     * copy from, and a hybrid page is reordered after the search, so those responses are built up
+     * front and serialized as a whole.
+     */
+    public StreamedSearchResponse streamFacetedQuery(CustomSearchRequest request, SearchOptions options) throws IOException {
+        if (searchEngine == SearchEngine.LOCAL || hybridApplies(options)) {
+            FacetedSearchResponse response = processFacetedQuery(request, options, false);
+            return out -> RESPONSE_MAPPER.writeValue(out, response);
+        }
+        PipelineTrace trace = startTrace(request);
+        long normalizeStart = System.nanoTime();
+        PreprocessedQuery preprocessedQuery = preprocessingService.process(request);
+        trace.stop(Stage.NORMALIZE, normalizeStart);
+
+        long nerStart = System.nanoTime();
+        UnderstoodQuery understood = understand(preprocessedQuery, trace);
+        trace.stop(Stage.NER, nerStart);
+        UnderstoodQuery understoodQuery = correctFirst(understood, trace);
+        String correctedQuery = understoodQuery.preprocessedQuery() != preprocessedQuery ? searchedText(understoodQuery) : null;
+
+        long rewriteStart = System.nanoTime();
+        SearchRequest searchRequest = queryRewriteService.buildEsQuery(understoodQuery, options);
+        trace.stop(Stage.REWRITE, rewriteStart);
+
+        long searchStart = System.nanoTime();
+        Response esResponse = ((RestClientTransport) esAsyncClient._transport()).restClient().performRequest(lowLevelSearch(searchRequest));
+        trace.stop(Stage.ES_ROUND_TRIP, searchStart);
+        trace.searchServed(false);
+
+        return out -> {
+            SearchResponseTranscoder.Result result;
+            try (InputStream body = esResponse.getEntity().getContent();
+                 JsonParser in = STREAMING_JSON.createParser(body);
+                 JsonGenerator generator = STREAMING_JSON.createGenerator(out)) {
+                long writeStart = System.nanoTime();
+                generator.writeStartObject();
+                result = SearchResponseTranscoder.transcode(in, generator, options.size());
+                if (result.nextCursor() != null) {
+                    generator.writeStringField("nextCursor", result.nextCursor());
                 }
+                writeFacets(generator, result.buckets());
+                trace.record(Stage.ES_TOOK, TimeUnit.MILLISECONDS.toNanos(result.tookMillis()));
+                trace.stop(Stage.SERIALIZATION, writeStart);
+
+                String suggestion;
+                try {
+                    suggestion = didYouMean(result.totalHits(), understoodQuery, trace).join();
+                } catch (RuntimeException e) {
+                    log.warn("Did-you-mean lookup failed; streaming the response without a suggestion", e);
+                    suggestion = null;
+                }
+                if (suggestion != null) {
+                    generator.writeStringField("didYouMeanSuggestion", suggestion);
+                }
+                if (correctedQuery != null) {
+                    generator.writeStringField("correctedQuery", correctedQuery);
+                }
+                generator.writeEndObject();
             }
+            queryLog.record(understoodQuery, searchRequest, trace, result.totalHits());
+        };
+    }
 
-            return new FacetedSearchResponse(products, facets, suggestion);
+    // The search as a plain HTTP request, so the response body can be read as a stream
+    private Request lowLevelSearch(SearchRequest searchRequest) {
+        JsonpMapper mapper = esAsyncClient._jsonpMapper();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+        try (jakarta.json.stream.JsonGenerator generator = mapper.jsonProvider().createGenerator(body)) {
+            searchRequest.serialize(generator, mapper);
+        }
+        Request request = new Request("POST", "/" + String.join(",", searchRequest.index()) + "/_search");
+        request.setEntity(new ByteArrayEntity(body.toByteArray(), ContentType.APPLICATION_JSON));
+        return request;
+    }
 
-        } catch (IOException e) {
-            log.error("Error during faceted search execution", e);
-            return new FacetedSearchResponse(Collections.emptyList(), Collections.emptyList(), null);
+    // Same names, order and empty-facet rule as parseFacets; package-private for the benchmarks
+    static void writeFacets(JsonGenerator generator, Map<String, List<FacetValue>> buckets) throws IOException {
+        generator.writeArrayFieldStart("facets");
+        writeFacet(generator, "Category", buckets.get("by_category"));
+        writeFacet(generator, "Brand", buckets.get("by_brand"));
+        generator.writeEndArray();
+    }
+
+    private static void writeFacet(JsonGenerator generator, String name, List<FacetValue> values) throws IOException {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        generator.writeStartObject();
+        generator.writeStringField("name", name);
+        generator.writeArrayFieldStart("values");
+        for (FacetValue value : values) {
+            generator.writeStartObject();
+            generator.writeStringField("value", value.value());
+            generator.writeNumberField("count", value.count());
+            generator.writeEndObject();
         }
+        generator.writeEndArray();
+        generator.writeEndObject();
     }
 
-    // Renamed this method for clarity and to be re-used
-    private UnderstoodQuery understandQuery(CustomSearchRequest request) {
-        PreprocessedQuery preprocessedQuery = preprocessingService.process(request);
-        return intentAndEntityService.process(preprocessedQuery);
+    // Equivalent rewritten requests share one cached (or in-flight) Elasticsearch response; the
+    // local engine answers in microseconds and is not cached. Sets issued if this call went to
+    // the engine rather than the cache.
+    private CompletableFuture<SearchResponse<Product>> search(SearchRequest request, AtomicBoolean issued) {
+        if (searchEngine == SearchEngine.LOCAL) {
+            issued.set(true);
+            try {
+                return CompletableFuture.completedFuture(localSearchEngine.search(request));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return searchResponseCache.get(request, () -> {
+            issued.set(true);
+            return esAsyncClient.search(request, Product.class);
+        });
+    }
+
+    // Hybrid search fuses the first semanticWindow hits of each ranking, so it serves the pages
+    // inside that window; cursor pages follow the lexical order
+    private boolean hybridApplies(SearchOptions options) {
+        return semanticRetriever != null && semanticRetriever.isReady()
+                && options.searchAfter() == null && options.from() + options.size() <= semanticWindow;
+    }
+
+    /**
+     * The products nearest to the query by embedding, looked up on a virtual thread while NER
+     * runs. Empty, so the query is searched lexically only, when hybrid search does not apply or
+     * the lookup misses {@code search.semantic.latency-budget}.
+     */
+    private CompletableFuture<List<String>> semanticSearch(PreprocessedQuery preprocessedQuery, SearchOptions options, PipelineTrace trace) {
+        if (!hybridApplies(options)) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        long semanticStart = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> semanticRetriever.nearest(preprocessedQuery.normalizedQuery(), semanticWindow), pipelineExecutor)
+                .orTimeout(semanticBudget.toNanos(), TimeUnit.NANOSECONDS)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof TimeoutException) {
+                        if (trace.recorded()) {
+                            pipelineMetrics.semanticDeadlineFallback();
+                        }
+                    } else {
+                        log.warn("kNN lookup failed; searching lexically only", cause);
+                    }
+                    return List.of();
+                })
+                .whenComplete((ids, e) -> trace.stop(Stage.SEMANTIC, semanticStart));
+    }
+
+    // Warm-up requests are tagged by the warmer's own user context (by identity, so no client can
+    // send it) and leave no trace in the pipeline meters or the query log
+    private PipelineTrace startTrace(CustomSearchRequest request) {
+        return request.userContext() == CacheWarmer.WARM_UP_USER
+                ? pipelineMetrics.startUnrecordedTrace()
+                : pipelineMetrics.startTrace();
+    }
+
+    private UnderstoodQuery understand(PreprocessedQuery preprocessedQuery, PipelineTrace trace) {
+        return trace.recorded()
+                ? intentAndEntityService.process(preprocessedQuery)
+                : pipelineMetrics.unrecorded(() -> intentAndEntityService.process(preprocessedQuery));
+    }
+
+    // With spell.mode=correct-first, tokens outside entity spans are corrected before the rewrite
+    private UnderstoodQuery correctFirst(UnderstoodQuery understoodQuery, PipelineTrace trace) {
+        if (spellMode != SpellMode.CORRECT_FIRST) {
+            return understoodQuery;
+        }
+        long spellCheckStart = System.nanoTime();
+        UnderstoodQuery corrected = spellCorrector.correct(understoodQuery).orElse(understoodQuery);
+        trace.stop(Stage.SPELL_CHECK, spellCheckStart);
+        return corrected;
+    }
+
+    private static String searchedText(UnderstoodQuery understoodQuery) {
+        return String.join(" ", understoodQuery.preprocessedQuery().tokens());
+    }
+
+    // The high-hit majority never pays for spell checking. The term suggester costs zero-hit
+    // queries a separate request; the local corrector answers in-process.
+    private CompletableFuture<String> didYouMean(long totalHits, UnderstoodQuery understoodQuery, PipelineTrace trace) {
+        if (totalHits > 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long spellCheckStart = System.nanoTime();
+        CompletableFuture<String> suggestion = spellMode == SpellMode.ELASTICSEARCH
+                ? search(queryRewriteService.buildSpellCheckRequest(understoodQuery), new AtomicBoolean()).thenApply(suggestResponse -> {
+                    List<Suggestion<Product>> suggestions = suggestResponse.suggest() != null ? suggestResponse.suggest().get("spell-check") : null;
+                    // Pass the list of found entities to the suggestion builder
+                    return suggestions != null && !suggestions.isEmpty() ? buildSuggestionString(suggestions, understoodQuery.entities()) : null;
+                })
+                : CompletableFuture.completedFuture(spellCorrector.didYouMean(understoodQuery).orElse(null));
+        return suggestion.thenApply(text -> {
+            trace.stop(Stage.SPELL_CHECK, spellCheckStart);
+            if (trace.recorded()) {
+                pipelineMetrics.zeroHits(text != null);
+            }
+            return text;
+        });
+    }
+
+    private static long totalHits(SearchResponse<Product> esResponse) {
+        return esResponse.hits().total() != null ? esResponse.hits().total().value() : esResponse.hits().hits().size();
+    }
+
+    // A fused hybrid page has no cursor: its order is not the (score, product_id) order search_after follows
+    private FacetedSearchResponse toFacetedResponse(SearchResponse<Product> esResponse, List<Hit<Product>> hits, boolean cursor,
+                                                    String suggestion, String correctedQuery, SearchOptions options, PipelineTrace trace) {
+        long parseStart = System.nanoTime();
+        List<Product> products = hits.stream()
+                .map(Hit::source)
+                .collect(Collectors.toList());
+
+        List<Facet> facets = parseFacets(esResponse.aggregations());
+        trace.stop(Stage.FACET_PARSE, parseStart);
+
+        String nextCursor = null;
+        // A full page may have a successor; its cursor is the last hit's (score, product_id) sort values
+        if (cursor && !hits.isEmpty() && hits.size() >= options.size()) {
+            List<FieldValue> sort = hits.get(hits.size() - 1).sort();
+            if (sort.size() == 2 && sort.get(0).isDouble() && sort.get(1).isString()) {
+                nextCursor = new SearchCursor(sort.get(0).doubleValue(), sort.get(1).stringValue()).encode();
+            }
+        }
+        return new FacetedSearchResponse(products, nextCursor, facets, suggestion, correctedQuery, null);
     }
 
     public SearchRequest getDebugQuery(CustomSearchRequest request) {
@@ -78,7 +458,8 @@ public class QueryUnderstandingService {
         return queryRewriteService.buildEsQuery(understoodQuery);
     }
 
-    private String buildSuggestionString(List<Suggestion<Product>> suggestions, List<Entity> entities) {
+    // Package-private so the response-parsing benchmarks can measure it in isolation
+    String buildSuggestionString(List<Suggestion<Product>> suggestions, List<Entity> entities) {
         // Create a set of all the words that were identified as entities for quick lookup
         Set<String> entityWords = entities.stream()
                 .flatMap(entity -> Arrays.stream(entity.value().split("\\s+")))
@@ -107,10 +488,11 @@ public class QueryUnderstandingService {
         return wasCorrectionMade ? correctedQuery.toString().trim() : null;
     }
 
-    private List<Facet> parseFacets(Map<String, Aggregate> aggregations) {
+    // Package-private so the response-parsing benchmarks can measure it in isolation
+    List<Facet> parseFacets(Map<String, Aggregate> aggregations) {
         List<Facet> facets = new ArrayList<>();
         if (aggregations.containsKey("by_category")) {
-            List<FacetValue> categoryValues = aggregations.get("by_category").sterms().buckets().array().stream()
+            List<FacetValue> categoryValues = facetTerms(aggregations.get("by_category")).buckets().array().stream()
                     .map(bucket -> new FacetValue(bucket.key().stringValue(), bucket.docCount()))
                     .collect(Collectors.toList());
             if (!categoryValues.isEmpty()) {
@@ -118,7 +500,7 @@ public class QueryUnderstandingService {
             }
         }
         if (aggregations.containsKey("by_brand")) {
-            List<FacetValue> brandValues = aggregations.get("by_brand").sterms().buckets().array().stream()
+            List<FacetValue> brandValues = facetTerms(aggregations.get("by_brand")).buckets().array().stream()
                     .map(bucket -> new FacetValue(bucket.key().stringValue(), bucket.docCount()))
                     .collect(Collectors.toList());
             if (!brandValues.isEmpty()) {
@@ -128,7 +510,20 @@ public class QueryUnderstandingService {
         return facets;
     }
 
+    // A disjunctive facet is a filter aggregation around the terms
+    private static StringTermsAggregate facetTerms(Aggregate facet) {
+        return facet.isFilter() ? facet.filter().aggregations().get(QueryRewriteService.FACET_VALUES).sterms() : facet.sterms();
+    }
+
+    /**
+     * Type-ahead from the in-memory completion index; Elasticsearch is only asked while that
+     * index is unavailable.
+     */
     public List<String> getSuggestions(String prefix) {
+        Optional<List<String>> local = localSuggester.suggest(prefix);
+        if (local.isPresent()) {
+            return local.get();
+        }
         final String suggestionIndexName = "suggestions_index";
         try {
             SearchRequest searchRequest = SearchRequest.of(s -> s
@@ -138,7 +533,7 @@ public class QueryUnderstandingService {
                             .suggesters("product-suggester", fs -> fs
                                     .completion(cs -> cs
                                             .field("suggest")
-                                            .size(10)
+                                            .size(localSuggester.topK())
                                             .skipDuplicates(true)
                                     )
                             )
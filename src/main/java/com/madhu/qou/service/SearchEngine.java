@@ -0,0 +1,11 @@
+package com.madhu.qou.service;
+
+/**
+ * What executes the rewritten search requests (property {@code search.engine}).
+ */
+public enum SearchEngine {
+    /** The Elasticsearch cluster at {@code spring.elasticsearch.uris} (the default). */
+    ELASTICSEARCH,
+    /** The in-process index built from products.csv; Elasticsearch is neither seeded nor queried. */
+    LOCAL
+}
@@ -0,0 +1,131 @@
+package com.madhu.qou.service;
+
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonpUtils;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.madhu.qou.dto.domain.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of Elasticsearch search responses keyed on a fingerprint of the rewritten
+ * {@link SearchRequest}, so every surface form that rewrites to the same query shares one entry.
+ * <p>
+ * Bounded by an estimate of retained bytes rather than entry count, entries expire after a short
+ * TTL, and the key includes the products index generation, which is bumped whenever the seeder
+ * reports a change behind the alias. Concurrent misses on the same key share one in-flight
+ * search; each caller gets its own copy of the future, so cancelling it never cancels the search
+ * other callers are waiting on. Failed searches are not cached.
+ */
+@Component
+@Slf4j
+public class SearchResponseCache {
+
+    static final String PRODUCTS_ALIAS = "products_index";
+
+    private final boolean enabled;
+    private final AsyncCache<String, SearchResponse<Product>> cache;
+    private final JacksonJsonpMapper jsonpMapper = new JacksonJsonpMapper();
+    private final AtomicLong generation = new AtomicLong();
+
+    public SearchResponseCache(@Value("${search.cache.enabled:true}") boolean enabled,
+                               @Value("${search.cache.max-size:64MB}") DataSize maxSize,
+                               @Value("${search.cache.ttl:30s}") Duration ttl,
+                               MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, SearchResponse<Product> response) -> key.length() * 2 + estimateBytes(response))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "search-responses");
+    }
+
+    /**
+     * Returns the cached response for the request, or starts {@code search} once for all
+     * concurrent callers asking for the same request.
+     */
+    public CompletableFuture<SearchResponse<Product>> get(SearchRequest request,
+                                                          Supplier<CompletableFuture<SearchResponse<Product>>> search) {
+        if (!enabled) {
+            return search.get();
+        }
+        return cache.get(fingerprint(request), (key, executor) -> search.get()).copy();
+    }
+
+    @EventListener
+    public void onCatalogUpdated(CatalogIndexUpdatedEvent event) {
+        if (PRODUCTS_ALIAS.equals(event.alias())) {
+            long current = generation.incrementAndGet();
+            // Old entries can no longer be hit; drop them now instead of waiting for the TTL
+            cache.synchronous().invalidateAll();
+            log.info("Products index changed ({}); search response cache moved to generation {}.", event.index(), current);
+        }
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Generation plus a SHA-256 of the target indices and the request body. The body serializer
+     * writes fields in a fixed order, so identically built requests produce identical JSON.
+     */
+    String fingerprint(SearchRequest request) {
+        String canonical = String.join(",", request.index()) + '|' + JsonpUtils.toJsonString(request, jsonpMapper);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return generation.get() + ":" + HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Rough retained size: strings at two bytes per char plus fixed per-object overheads
+    static int estimateBytes(SearchResponse<Product> response) {
+        long bytes = 1024;
+        for (Hit<Product> hit : response.hits().hits()) {
+            bytes += 256 + 2L * length(hit.id());
+            Product product = hit.source();
+            if (product != null) {
+                bytes += 2L * (length(product.productId()) + length(product.name()) + length(product.description())
+                        + length(product.brand()) + length(product.searchAid()));
+                if (product.categories() != null) {
+                    bytes += product.categories().stream().mapToLong(category -> 48 + 2L * length(category)).sum();
+                }
+            }
+        }
+        for (Aggregate aggregate : response.aggregations().values()) {
+            bytes += 128;
+            if (aggregate.isSterms()) {
+                bytes += 96L * aggregate.sterms().buckets().array().size();
+            }
+        }
+        bytes += 512L * response.suggest().size();
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -0,0 +1,181 @@
+package com.madhu.qou.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.madhu.qou.dto.FacetValue;
+import com.madhu.qou.dto.SearchCursor;
+import com.madhu.qou.service.rewriting.QueryRewriteService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copies an Elasticsearch search response body into the /search response token by token. Each
+ * hit's {@code _source} goes straight from the parser to the generator, so no SearchResponse,
+ * Hit or Product objects are built; only the total, the last hit's sort values and the facet
+ * buckets are kept.
+ */
+final class SearchResponseTranscoder {
+
+    // What the rest of the response is built from, once the hits are written
+    record Result(long tookMillis, long totalHits, int hitCount, String nextCursor, Map<String, List<FacetValue>> buckets) {}
+
+    private SearchResponseTranscoder() {
+    }
+
+    /**
+     * Reads the search response from {@code in} and writes a {@code "products"} array of the hit
+     * sources into the object currently open in {@code out}.
+     */
+    static Result transcode(JsonParser in, JsonGenerator out, int pageSize) throws IOException {
+        expect(in.nextToken(), JsonToken.START_OBJECT);
+        long tookMillis = 0;
+        long totalHits = 0;
+        int hitCount = 0;
+        SearchCursor lastPosition = null;
+        Map<String, List<FacetValue>> buckets = Map.of();
+        boolean productsWritten = false;
+
+        while (in.nextToken() == JsonToken.FIELD_NAME) {
+            String field = in.currentName();
+            in.nextToken();
+            if ("took".equals(field)) {
+                tookMillis = in.getLongValue();
+            } else if ("hits".equals(field)) {
+                while (in.nextToken() == JsonToken.FIELD_NAME) {
+                    String hitsField = in.currentName();
+                    in.nextToken();
+                    if ("total".equals(hitsField)) {
+                        totalHits = readTotal(in);
+                    } else if ("hits".equals(hitsField)) {
+                        out.writeArrayFieldStart("products");
+                        productsWritten = true;
+                        while (in.nextToken() == JsonToken.START_OBJECT) {
+                            lastPosition = copyHit(in, out);
+                            hitCount++;
+                        }
+                        out.writeEndArray();
+                    } else {
+                        in.skipChildren();
+                    }
+                }
+            } else if ("aggregations".equals(field)) {
+                buckets = readBuckets(in);
+            } else {
+                in.skipChildren();
+            }
+        }
+        if (!productsWritten) {
+            out.writeArrayFieldStart("products");
+            out.writeEndArray();
+        }
+        // A full page may have a successor
+        String nextCursor = hitCount > 0 && hitCount >= pageSize && lastPosition != null ? lastPosition.encode() : null;
+        return new Result(tookMillis, totalHits, hitCount, nextCursor, buckets);
+    }
+
+    // Writes the hit's _source; returns its (score, product_id) sort values, if present
+    private static SearchCursor copyHit(JsonParser in, JsonGenerator out) throws IOException {
+        SearchCursor position = null;
+        boolean sourceWritten = false;
+        while (in.nextToken() == JsonToken.FIELD_NAME) {
+            String field = in.currentName();
+            in.nextToken();
+            if ("_source".equals(field)) {
+                out.copyCurrentStructure(in);
+                sourceWritten = true;
+            } else if ("sort".equals(field) && in.currentToken() == JsonToken.START_ARRAY) {
+                position = readSortValues(in);
+            } else {
+                in.skipChildren();
+            }
+        }
+        if (!sourceWritten) {
+            out.writeNull();
+        }
+        return position;
+    }
+
+    private static SearchCursor readSortValues(JsonParser in) throws IOException {
+        List<Object> values = new ArrayList<>(2);
+        while (in.nextToken() != JsonToken.END_ARRAY) {
+            values.add(in.currentToken().isNumeric() ? in.getDoubleValue() : in.getValueAsString());
+        }
+        return values.size() == 2 && values.get(0) instanceof Double score && values.get(1) instanceof String productId
+                ? new SearchCursor(score, productId)
+                : null;
+    }
+
+    // {"value": n, "relation": "eq"|"gte"}, or a bare number with rest_total_hits_as_int
+    private static long readTotal(JsonParser in) throws IOException {
+        if (in.currentToken().isNumeric()) {
+            return in.getLongValue();
+        }
+        long total = 0;
+        while (in.nextToken() == JsonToken.FIELD_NAME) {
+            String field = in.currentName();
+            in.nextToken();
+            if ("value".equals(field)) {
+                total = in.getLongValue();
+            } else {
+                in.skipChildren();
+            }
+        }
+        return total;
+    }
+
+    // aggregation name -> terms buckets (key, doc_count)
+    private static Map<String, List<FacetValue>> readBuckets(JsonParser in) throws IOException {
+        Map<String, List<FacetValue>> aggregations = new HashMap<>();
+        while (in.nextToken() == JsonToken.FIELD_NAME) {
+            String name = in.currentName();
+            in.nextToken();
+            aggregations.put(name, readTerms(in));
+        }
+        return aggregations;
+    }
+
+    // The buckets of a terms aggregation, or of the terms inside a disjunctive facet's filter aggregation
+    private static List<FacetValue> readTerms(JsonParser in) throws IOException {
+        List<FacetValue> values = new ArrayList<>();
+        while (in.nextToken() == JsonToken.FIELD_NAME) {
+            String field = in.currentName();
+            in.nextToken();
+            if ("buckets".equals(field) && in.currentToken() == JsonToken.START_ARRAY) {
+                while (in.nextToken() == JsonToken.START_OBJECT) {
+                    values.add(readBucket(in));
+                }
+            } else if (QueryRewriteService.FACET_VALUES.equals(field) && in.currentToken() == JsonToken.START_OBJECT) {
+                values = readTerms(in);
+            } else {
+                in.skipChildren();
+            }
+        }
+        return values;
+    }
+
+    private static FacetValue readBucket(JsonParser in) throws IOException {
+        String key = null;
+        long count = 0;
+        while (in.nextToken() == JsonToken.FIELD_NAME) {
+            String field = in.currentName();
+            in.nextToken();
+            switch (field) {
+                case "key" -> key = in.getValueAsString();
+                case "doc_count" -> count = in.getLongValue();
+                default -> in.skipChildren();
+            }
+        }
+        return new FacetValue(key, count);
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Unexpected search response: expected " + expected + " but got " + actual);
+        }
+    }
+}
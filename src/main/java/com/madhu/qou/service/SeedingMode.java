@@ -0,0 +1,13 @@
+package com.madhu.qou.service;
+
+/**
+ * How {@link DataSeeder} treats an index that already exists at startup.
+ */
+public enum SeedingMode {
+    /** Leave existing indices untouched (the original behaviour). */
+    SKIP_EXISTING,
+    /** Diff the CSV against the stored content hashes and send only inserts, updates and deletes. */
+    INCREMENTAL,
+    /** Load a new versioned index and swap the alias to it once it is complete. */
+    REBUILD
+}
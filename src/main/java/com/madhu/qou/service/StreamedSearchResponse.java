@@ -0,0 +1,14 @@
+package com.madhu.qou.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A /search response whose body is produced while it is written: hits are copied from the
+ * Elasticsearch response straight into the output stream.
+ */
+@FunctionalInterface
+public interface StreamedSearchResponse {
+
+    void writeTo(OutputStream out) throws IOException;
+}
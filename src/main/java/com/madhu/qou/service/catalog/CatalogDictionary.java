@@ -0,0 +1,221 @@
+package com.madhu.qou.service.catalog;
+
+import com.madhu.qou.service.ingestion.QueryNormalizer;
+import com.madhu.qou.service.intent.AhoCorasickMatcher;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.RFC4180ParserBuilder;
+import com.opencsv.exceptions.CsvValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * The catalog's brands, aisles, departments and product types, shared by ingestion, entity
+ * recognition and query rewriting.
+ * <p>
+ * Brands, aisles and departments come from {@code data/*.csv} (brands.csv is also what
+ * build_patterns.py reads). Every value has a dense int id and one interned canonical string,
+ * kept in arrays indexed by that id, so resolving a products.csv row is a parse and an array
+ * read. Brands are detected with precompiled {@link AhoCorasickMatcher}s: one over lower-cased
+ * product names for ingestion, one over normalized queries for the entity fallback.
+ * <p>
+ * Product types are derived from the product names: the last word or last two words of a name,
+ * normalized, when at least {@value #MIN_PRODUCT_TYPE_COUNT} names end in it and it ends at least
+ * half of the names it occurs in ("greek yogurt", "chips"), which keeps flavours and other
+ * modifiers ("vanilla", "organic") out.
+ */
+@Component
+@Slf4j
+public class CatalogDictionary {
+
+    /** Brand id of products that carry no known brand. */
+    public static final int PRIVATE_LABEL = 0;
+    public static final String UNKNOWN_AISLE = "Unknown";
+
+    static final int MIN_PRODUCT_TYPE_COUNT = 30;
+
+    private final String[] brands;
+    private final String[] aisles;
+    private final String[] departments;
+    private final List<String> knownBrands;
+    private final List<String> productTypes;
+    // Lower-cased and normalized spellings of each brand -> brand id
+    private final Map<String, Integer> brandIds = new HashMap<>();
+    private final AhoCorasickMatcher<Integer> productBrandMatcher;
+    private final AhoCorasickMatcher<Integer> queryBrandMatcher;
+
+    public CatalogDictionary() {
+        try {
+            this.aisles = readNames("data/aisles.csv");
+            this.departments = readNames("data/departments.csv");
+            this.brands = readNames("data/brands.csv");
+            this.productTypes = readProductTypes("data/products.csv");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load catalog dictionaries", e);
+        } catch (CsvValidationException e) {
+            throw new IllegalStateException("Malformed catalog CSV", e);
+        }
+
+        // Canonical spellings, as they are indexed; brands.csv numbers them from 1
+        brands[PRIVATE_LABEL] = "Private Label".intern();
+        this.knownBrands = List.of(Arrays.copyOfRange(brands, 1, brands.length));
+        AhoCorasickMatcher.Builder<Integer> productBrands = AhoCorasickMatcher.builder();
+        AhoCorasickMatcher.Builder<Integer> queryBrands = AhoCorasickMatcher.builder();
+        for (int id = 1; id < brands.length; id++) {
+            String lower = brands[id].toLowerCase(Locale.ROOT);
+            String normalized = QueryNormalizer.normalize(brands[id]);
+            productBrands.add(lower, id);
+            queryBrands.add(normalized, id);
+            brandIds.put(lower, id);
+            brandIds.put(normalized, id);
+        }
+        this.productBrandMatcher = productBrands.build();
+        this.queryBrandMatcher = queryBrands.build();
+        log.info("Loaded catalog dictionary: {} brands, {} aisles, {} departments, {} product types.",
+                knownBrands.size(), aisleNames().size(), departmentNames().size(), productTypes.size());
+    }
+
+    public String brand(int brandId) {
+        return brands[brandId];
+    }
+
+    /** Known brands (without the private label), in id order. */
+    public List<String> knownBrands() {
+        return knownBrands;
+    }
+
+    /**
+     * The id of the first known brand that occurs in an already lower-cased product name, or
+     * {@link #PRIVATE_LABEL}. Occurrences are substrings, as they always were at ingestion.
+     */
+    public int detectBrand(CharSequence lowerCaseProductName) {
+        Integer brandId = productBrandMatcher.findFirst(lowerCaseProductName);
+        return brandId == null ? PRIVATE_LABEL : brandId;
+    }
+
+    /**
+     * Whole-token occurrences of known brands in a normalized query, leftmost-longest first.
+     * The payload is the brand id.
+     */
+    public List<AhoCorasickMatcher.Match<Integer>> findBrands(CharSequence normalizedQuery) {
+        return queryBrandMatcher.findLongestTokenMatches(normalizedQuery);
+    }
+
+    /**
+     * The id of the known brand spelled {@code value} in any case, with or without the
+     * punctuation queries lose in normalization, or -1.
+     */
+    public int brandId(String value) {
+        Integer brandId = brandIds.get(value.toLowerCase(Locale.ROOT));
+        return brandId == null ? -1 : brandId;
+    }
+
+    /** The aisle with the given products.csv {@code aisle_id}, or {@link #UNKNOWN_AISLE}. */
+    public String aisle(String aisleId) {
+        return lookup(aisles, aisleId, UNKNOWN_AISLE);
+    }
+
+    public List<String> aisleNames() {
+        return names(aisles);
+    }
+
+    public List<String> departmentNames() {
+        return names(departments);
+    }
+
+    /** Normalized product-type surface forms, most frequent first. */
+    public List<String> productTypes() {
+        return productTypes;
+    }
+
+    private static String lookup(String[] names, String id, String fallback) {
+        try {
+            int index = Integer.parseInt(id);
+            String name = index >= 0 && index < names.length ? names[index] : null;
+            return name == null ? fallback : name;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static List<String> names(String[] byId) {
+        return Arrays.stream(byId).filter(Objects::nonNull).toList();
+    }
+
+    // id,name rows -> names indexed by id; catalog ids are small and dense
+    private static String[] readNames(String resource) throws IOException, CsvValidationException {
+        List<String[]> rows = new ArrayList<>();
+        int maxId = 0;
+        try (CSVReader reader = openCsv(resource)) {
+            reader.readNext(); // Skip header
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                rows.add(line);
+                maxId = Math.max(maxId, Integer.parseInt(line[0]));
+            }
+        }
+        String[] names = new String[maxId + 1];
+        for (String[] row : rows) {
+            names[Integer.parseInt(row[0])] = row[1].intern();
+        }
+        return names;
+    }
+
+    private static List<String> readProductTypes(String resource) throws IOException, CsvValidationException {
+        // Names ending in each candidate vs names containing it anywhere
+        Map<String, int[]> counts = new HashMap<>();
+        try (CSVReader reader = openCsv(resource)) {
+            reader.readNext(); // Skip header
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                List<String> tokens = QueryNormalizer.tokenize(QueryNormalizer.normalize(line[1]));
+                Set<String> seen = new HashSet<>();
+                for (int i = 0; i < tokens.size(); i++) {
+                    if (seen.add(tokens.get(i))) {
+                        counts.computeIfAbsent(tokens.get(i), token -> new int[2])[1]++;
+                    }
+                    if (i > 0 && seen.add(tokens.get(i - 1) + " " + tokens.get(i))) {
+                        counts.computeIfAbsent(tokens.get(i - 1) + " " + tokens.get(i), bigram -> new int[2])[1]++;
+                    }
+                }
+                int last = tokens.size() - 1;
+                if (last >= 0) {
+                    counts.get(tokens.get(last))[0]++;
+                }
+                if (last >= 1) {
+                    counts.get(tokens.get(last - 1) + " " + tokens.get(last))[0]++;
+                }
+            }
+        }
+        return counts.entrySet().stream()
+                .filter(e -> e.getValue()[0] >= MIN_PRODUCT_TYPE_COUNT && 2 * e.getValue()[0] >= e.getValue()[1])
+                .filter(e -> isWord(e.getKey()))
+                .sorted(Comparator.comparingInt((Map.Entry<String, int[]> e) -> -e.getValue()[0]).thenComparing(Map.Entry::getKey))
+                .map(e -> e.getKey().intern())
+                .toList();
+    }
+
+    // RFC 4180 parsing, as in DataSeeder: the default parser treats the backslashes in product
+    // names as escapes and merges thousands of rows
+    private static CSVReader openCsv(String resource) throws IOException {
+        return new CSVReaderBuilder(new InputStreamReader(new ClassPathResource(resource).getInputStream()))
+                .withCSVParser(new RFC4180ParserBuilder().build())
+                .build();
+    }
+
+    // Letters only (spaces between words allowed), at least three per word: no sizes like "12 oz" or "ct"
+    private static boolean isWord(String candidate) {
+        for (String word : candidate.split(" ")) {
+            if (word.length() < 3 || !word.chars().allMatch(Character::isLetter)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
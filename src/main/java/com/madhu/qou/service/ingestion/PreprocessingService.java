@@ -4,8 +4,6 @@ import com.madhu.qou.dto.PreprocessedQuery;
 import com.madhu.qou.dto.CustomSearchRequest;
 import org.springframework.stereotype.Service;
 
-import java.text.Normalizer;
-
 @Service
 public class PreprocessingService {
 
@@ -14,18 +12,12 @@ public class PreprocessingService {
         return new PreprocessedQuery(
                 request.rawQuery(),
                 normalized,
+                QueryNormalizer.tokenize(normalized),
                 request.userContext()
         );
     }
 
-    private String normalizeQuery(String query) {
-        if (query == null || query.isBlank()) {
-            return "";
-        }
-        String processedQuery = query.trim().toLowerCase();
-        processedQuery = Normalizer.normalize(processedQuery, Normalizer.Form.NFD)
-                .replaceAll("\\p{M}", "");
-        processedQuery = processedQuery.replaceAll("[^a-z0-9\\s-]", "");
-        return processedQuery;
+    public String normalizeQuery(String query) {
+        return QueryNormalizer.normalize(query);
     }
 }
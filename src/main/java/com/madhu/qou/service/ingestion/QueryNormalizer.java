@@ -0,0 +1,116 @@
+package com.madhu.qou.service.ingestion;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Single-pass query normalizer.
+ * <p>
+ * Produces exactly what the original {@code trim -> toLowerCase -> NFD -> strip \p{M} ->
+ * strip [^a-z0-9\s-]} chain produced, without compiling regexes or building intermediate
+ * Strings. Pure-ASCII input (the vast majority of queries) skips NFD entirely and is folded
+ * and filtered straight into a per-thread scratch buffer.
+ */
+public final class QueryNormalizer {
+
+    private static final int POOLED_BUFFER_SIZE = 256;
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[POOLED_BUFFER_SIZE]);
+
+    // Locales in which String.toLowerCase() does not map 'I' to 'i'
+    private static final Set<String> DOTLESS_I_LANGUAGES = Set.of("tr", "az");
+
+    private QueryNormalizer() {
+    }
+
+    public static String normalize(String query) {
+        if (query == null || query.isBlank()) {
+            return "";
+        }
+        // String.trim() semantics: strip everything <= ' ' from both ends
+        int start = 0;
+        int end = query.length();
+        while (start < end && query.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && query.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        char[] buffer = buffer(end - start);
+        int length = 0;
+        boolean changed = start != 0 || end != query.length();
+        for (int i = start; i < end; i++) {
+            char c = query.charAt(i);
+            if (c >= 0x80 || (c == 'I' && foldsIDifferently())) {
+                return normalizeSlow(query.substring(start, end));
+            }
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+                changed = true;
+            }
+            if (isAllowed(c)) {
+                buffer[length++] = c;
+            } else {
+                changed = true;
+            }
+        }
+        return changed ? new String(buffer, 0, length) : query;
+    }
+
+    /**
+     * Splits a normalized query on whitespace, dropping empty tokens.
+     */
+    public static List<String> tokenize(String normalizedQuery) {
+        List<String> tokens = new ArrayList<>();
+        int tokenStart = -1;
+        for (int i = 0; i < normalizedQuery.length(); i++) {
+            if (isWhitespace(normalizedQuery.charAt(i))) {
+                if (tokenStart >= 0) {
+                    tokens.add(normalizedQuery.substring(tokenStart, i));
+                    tokenStart = -1;
+                }
+            } else if (tokenStart < 0) {
+                tokenStart = i;
+            }
+        }
+        if (tokenStart >= 0) {
+            tokens.add(normalizedQuery.substring(tokenStart));
+        }
+        return List.copyOf(tokens);
+    }
+
+    // Non-ASCII input: full Unicode lower-casing and canonical decomposition, then the same filter.
+    // Combining marks are never in the allowed set, so the filter also takes care of stripping them.
+    private static String normalizeSlow(String trimmed) {
+        String decomposed = Normalizer.normalize(trimmed.toLowerCase(), Normalizer.Form.NFD);
+        char[] buffer = buffer(decomposed.length());
+        int length = 0;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (isAllowed(c)) {
+                buffer[length++] = c;
+            }
+        }
+        return new String(buffer, 0, length);
+    }
+
+    private static char[] buffer(int minLength) {
+        return minLength <= POOLED_BUFFER_SIZE ? BUFFER.get() : new char[minLength];
+    }
+
+    private static boolean foldsIDifferently() {
+        return DOTLESS_I_LANGUAGES.contains(Locale.getDefault().getLanguage());
+    }
+
+    private static boolean isAllowed(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || isWhitespace(c);
+    }
+
+    // The characters matched by the regex class \s
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+}
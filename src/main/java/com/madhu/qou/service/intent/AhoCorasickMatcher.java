@@ -0,0 +1,222 @@
+package com.madhu.qou.service.intent;
+
+import java.util.*;
+
+/**
+ * Immutable Aho-Corasick automaton over a fixed set of patterns.
+ * <p>
+ * Finds every occurrence of every pattern in a single left-to-right pass over the text.
+ * Transitions are frozen into sorted per-node char arrays after construction, so matching
+ * does no boxing and no hashing. Use {@link #builder()} to add patterns, then {@link Builder#build()}.
+ *
+ * @param <T> payload attached to each pattern (e.g. the entity type and canonical value)
+ */
+public final class AhoCorasickMatcher<T> {
+
+    public record Match<T>(int start, int end, T payload) {
+        public int length() {
+            return end - start;
+        }
+    }
+
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] fail;
+    private final int[] output;      // pattern id ending exactly at this node, or -1
+    private final int[] dictLink;    // nearest node on the fail chain that has an output, or -1
+    private final int[] patternLengths;
+    private final List<T> payloads;
+
+    private AhoCorasickMatcher(char[][] edgeChars, int[][] edgeTargets, int[] fail, int[] output,
+                               int[] dictLink, int[] patternLengths, List<T> payloads) {
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.output = output;
+        this.dictLink = dictLink;
+        this.patternLengths = patternLengths;
+        this.payloads = payloads;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    public int size() {
+        return payloads.size();
+    }
+
+    /**
+     * Returns every (possibly overlapping) occurrence of every pattern, ordered by end position.
+     */
+    public List<Match<T>> findAll(CharSequence text) {
+        List<Match<T>> matches = new ArrayList<>();
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, text.charAt(i));
+            for (int node = output[state] >= 0 ? state : dictLink[state]; node >= 0; node = dictLink[node]) {
+                int pattern = output[node];
+                matches.add(new Match<>(i + 1 - patternLengths[pattern], i + 1, payloads.get(pattern)));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the payload of the occurrence that ends first (the longest one if several end
+     * there), or {@code null} if no pattern occurs. Allocates nothing, so it suits per-row use.
+     */
+    public T findFirst(CharSequence text) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, text.charAt(i));
+            int node = output[state] >= 0 ? state : dictLink[state];
+            if (node >= 0) {
+                return payloads.get(output[node]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns leftmost-longest, non-overlapping matches that start and end on token boundaries
+     * (the neighbouring characters, if any, are not letters or digits), ordered by start position.
+     */
+    public List<Match<T>> findLongestTokenMatches(CharSequence text) {
+        List<Match<T>> candidates = new ArrayList<>();
+        for (Match<T> match : findAll(text)) {
+            if (isBoundary(text, match.start() - 1) && isBoundary(text, match.end())) {
+                candidates.add(match);
+            }
+        }
+        candidates.sort(Comparator.comparingInt((Match<T> m) -> m.start()).thenComparing(Match::length, Comparator.reverseOrder()));
+
+        List<Match<T>> selected = new ArrayList<>();
+        int lastEnd = 0;
+        for (Match<T> candidate : candidates) {
+            if (candidate.start() >= lastEnd) {
+                selected.add(candidate);
+                lastEnd = candidate.end();
+            }
+        }
+        return selected;
+    }
+
+    private static boolean isBoundary(CharSequence text, int index) {
+        return index < 0 || index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+    }
+
+    private int step(int state, char c) {
+        while (true) {
+            int next = child(state, c);
+            if (next >= 0) {
+                return next;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = fail[state];
+        }
+    }
+
+    private int child(int node, char c) {
+        int index = Arrays.binarySearch(edgeChars[node], c);
+        return index >= 0 ? edgeTargets[node][index] : -1;
+    }
+
+    public static final class Builder<T> {
+
+        private final List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        private final List<Integer> outputs = new ArrayList<>();
+        private final List<Integer> patternLengths = new ArrayList<>();
+        private final List<T> payloads = new ArrayList<>();
+
+        private Builder() {
+            newNode();
+        }
+
+        /**
+         * Adds a pattern. Empty patterns are ignored; if the same pattern is added twice the
+         * first payload wins.
+         */
+        public Builder<T> add(String pattern, T payload) {
+            if (pattern == null || pattern.isEmpty()) {
+                return this;
+            }
+            int node = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                Integer next = children.get(node).get(pattern.charAt(i));
+                if (next == null) {
+                    next = newNode();
+                    children.get(node).put(pattern.charAt(i), next);
+                }
+                node = next;
+            }
+            if (outputs.get(node) < 0) {
+                outputs.set(node, payloads.size());
+                patternLengths.add(pattern.length());
+                payloads.add(payload);
+            }
+            return this;
+        }
+
+        private int newNode() {
+            children.add(new TreeMap<>());
+            outputs.add(-1);
+            return children.size() - 1;
+        }
+
+        public AhoCorasickMatcher<T> build() {
+            int nodeCount = children.size();
+            char[][] edgeChars = new char[nodeCount][];
+            int[][] edgeTargets = new int[nodeCount][];
+            for (int node = 0; node < nodeCount; node++) {
+                TreeMap<Character, Integer> edges = children.get(node);
+                edgeChars[node] = new char[edges.size()];
+                edgeTargets[node] = new int[edges.size()];
+                int i = 0;
+                for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                    edgeChars[node][i] = edge.getKey();
+                    edgeTargets[node][i] = edge.getValue();
+                    i++;
+                }
+            }
+
+            int[] output = outputs.stream().mapToInt(Integer::intValue).toArray();
+            int[] fail = new int[nodeCount];
+            int[] dictLink = new int[nodeCount];
+            dictLink[0] = -1;
+
+            // Breadth-first, so every node's fail target is finished before its children need it
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int target : edgeTargets[0]) {
+                fail[target] = 0;
+                dictLink[target] = -1;
+                queue.add(target);
+            }
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                for (int i = 0; i < edgeChars[node].length; i++) {
+                    char c = edgeChars[node][i];
+                    int target = edgeTargets[node][i];
+                    int f = fail[node];
+                    int fallback;
+                    while ((fallback = childOf(edgeChars, edgeTargets, f, c)) < 0 && f != 0) {
+                        f = fail[f];
+                    }
+                    fail[target] = Math.max(fallback, 0);
+                    dictLink[target] = output[fail[target]] >= 0 ? fail[target] : dictLink[fail[target]];
+                    queue.add(target);
+                }
+            }
+
+            return new AhoCorasickMatcher<>(edgeChars, edgeTargets, fail, output, dictLink,
+                    patternLengths.stream().mapToInt(Integer::intValue).toArray(), List.copyOf(payloads));
+        }
+
+        private static int childOf(char[][] edgeChars, int[][] edgeTargets, int node, char c) {
+            int index = Arrays.binarySearch(edgeChars[node], c);
+            return index >= 0 ? edgeTargets[node][index] : -1;
+        }
+    }
+}
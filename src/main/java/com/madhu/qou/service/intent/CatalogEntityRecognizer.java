@@ -0,0 +1,86 @@
+package com.madhu.qou.service.intent;
+
+import com.madhu.qou.dto.Entity;
+import com.madhu.qou.service.catalog.CatalogDictionary;
+import com.madhu.qou.service.ingestion.PreprocessingService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In-JVM entity tagger built at startup from the {@link CatalogDictionary} that {@code DataSeeder}
+ * ingests with, i.e. the same catalog CSVs {@code build_patterns.py} turns into spaCy patterns.
+ * <p>
+ * Brand, dietary-attribute, aisle, department and product-type surface forms are normalized the
+ * same way queries are and compiled into one {@link AhoCorasickMatcher}, so a query is tagged in a
+ * single linear pass with leftmost-longest, whole-token semantics and real character offsets.
+ */
+@Component
+@Slf4j
+public class CatalogEntityRecognizer {
+
+    private record EntityPattern(String value, String type) {}
+
+    // Aisles/departments that are catalog bookkeeping rather than something a shopper asks for
+    private static final Set<String> IGNORED_CATEGORIES = Set.of("missing", "other");
+
+    // Hand-written patterns, mirroring the extra patterns in build_patterns.py
+    private static final List<EntityPattern> EXTRA_PATTERNS = List.of(
+            new EntityPattern("organic", "DIETARY_ATTRIBUTE"),
+            new EntityPattern("gluten-free", "DIETARY_ATTRIBUTE"),
+            new EntityPattern("vegan", "DIETARY_ATTRIBUTE"),
+            new EntityPattern("running shoes", "PRODUCT_TYPE")
+    );
+
+    private final PreprocessingService preprocessingService;
+    private final AhoCorasickMatcher<EntityPattern> matcher;
+
+    public CatalogEntityRecognizer(PreprocessingService preprocessingService, CatalogDictionary catalogDictionary) {
+        this.preprocessingService = preprocessingService;
+        this.matcher = buildMatcher(catalogDictionary);
+        log.info("Built catalog entity recognizer with {} surface forms.", matcher.size());
+    }
+
+    /**
+     * Tags an already-normalized query. The returned list is mutable so callers can append
+     * fallback entities.
+     */
+    public List<Entity> recognize(String normalizedQuery) {
+        List<Entity> entities = new ArrayList<>();
+        for (var match : matcher.findLongestTokenMatches(normalizedQuery)) {
+            entities.add(new Entity(match.payload().value(), match.payload().type(), match.start(), match.end()));
+        }
+        return entities;
+    }
+
+    private AhoCorasickMatcher<EntityPattern> buildMatcher(CatalogDictionary catalogDictionary) {
+        // Insertion order decides which type wins when two sources share a surface form
+        AhoCorasickMatcher.Builder<EntityPattern> builder = AhoCorasickMatcher.builder();
+        for (String brand : catalogDictionary.knownBrands()) {
+            addPattern(builder, new EntityPattern(brand.toLowerCase(), "BRAND"));
+        }
+        EXTRA_PATTERNS.forEach(pattern -> addPattern(builder, pattern));
+        for (String aisle : catalogDictionary.aisleNames()) {
+            addPattern(builder, new EntityPattern(aisle.toLowerCase(), "AISLE"));
+        }
+        for (String department : catalogDictionary.departmentNames()) {
+            addPattern(builder, new EntityPattern(department.toLowerCase(), "DEPARTMENT"));
+        }
+        // Last, so an aisle such as "yogurt" keeps filtering by aisle
+        for (String productType : catalogDictionary.productTypes()) {
+            addPattern(builder, new EntityPattern(productType, "PRODUCT_TYPE"));
+        }
+        return builder.build();
+    }
+
+    private void addPattern(AhoCorasickMatcher.Builder<EntityPattern> builder, EntityPattern pattern) {
+        if (IGNORED_CATEGORIES.contains(pattern.value())) {
+            return;
+        }
+        // Queries lose apostrophes etc. during normalization, so the surface form must as well
+        builder.add(preprocessingService.normalizeQuery(pattern.value()), pattern);
+    }
+}
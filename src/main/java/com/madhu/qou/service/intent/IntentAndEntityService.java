@@ -2,13 +2,16 @@ package com.madhu.qou.service.intent;
 
 import com.madhu.qou.client.NerApiClient;
 import com.madhu.qou.dto.*;
+import com.madhu.qou.service.PipelineMetrics;
+import com.madhu.qou.service.catalog.CatalogDictionary;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.Set;
+import java.util.Locale;
 
 @Service
 @Slf4j
@@ -17,51 +20,70 @@ public class IntentAndEntityService {
 
     // Inject our new API client
     private final NerApiClient nerApiClient;
+    private final CatalogEntityRecognizer catalogEntityRecognizer;
+    private final PipelineMetrics pipelineMetrics;
+    private final CatalogDictionary catalogDictionary;
 
-    // Fallback brand list (same set as DataSeeder KNOWN_BRANDS)
-    private static final Set<String> BRANDS = Set.of(
-            "Fage", "Annie's", "Newman's Own", "General Mills", "Blue Diamond",
-            "Bonne Maman", "Philadelphia", "Stacy's", "Kellogg's", "Horizon Organic",
-            "Nike"
-    );
+    @Value("${ner.mode:remote}")
+    private NerMode nerMode = NerMode.REMOTE;
 
     public UnderstoodQuery process(PreprocessedQuery preprocessedQuery) {
         final String query = preprocessedQuery.normalizedQuery();
-        log.info("--- ML-based Intent & Entity Step ---");
-        log.info("Sending to NER API: '{}'", query);
 
-        // Call the NER API to get entities
-        var nerResponse = nerApiClient.extractEntities(query);
-
-        // Transform the NER API's response into our application's internal Entity DTO
-        List<Entity> entities = nerResponse.entities().stream()
-                .map(nerEntity -> {
-                    String type = nerEntity.label();
-                    if ("ORG".equals(type)) {
-                        type = "BRAND";
-                    } else if ("PRODUCT".equals(type)) {
-                        type = "PRODUCT_TYPE";
-                    }
-                    return new Entity(nerEntity.text(), type, -1, -1);
-                })
-                .collect(Collectors.toList());
+        List<Entity> entities = switch (nerMode) {
+            case REMOTE -> remoteEntities(query);
+            case LOCAL -> catalogEntityRecognizer.recognize(query);
+            case LOCAL_FIRST -> {
+                List<Entity> local = catalogEntityRecognizer.recognize(query);
+                yield local.isEmpty() ? remoteEntities(query) : local;
+            }
+        };
 
         // Fallback: if NER didn't extract a BRAND, check for known brand keywords
         if (entities.stream().noneMatch(e -> "BRAND".equals(e.type()))) {
-            for (String brand : BRANDS) {
-                String lower = brand.toLowerCase();
-                if (query.contains(lower)) {
-                    entities.add(new Entity(lower, "BRAND", query.indexOf(lower), query.indexOf(lower) + lower.length()));
-                }
+            var brands = catalogDictionary.findBrands(query);
+            for (var match : brands) {
+                String brand = catalogDictionary.brand(match.payload()).toLowerCase(Locale.ROOT);
+                entities.add(new Entity(brand, "BRAND", match.start(), match.end()));
+            }
+            if (!brands.isEmpty()) {
+                pipelineMetrics.brandKeywordFallback();
             }
         }
 
-        log.info("Found {} entities using NER model: {}", entities.size(), entities);
+        log.debug("Found {} entities using NER mode {}: {}", entities.size(), nerMode, entities);
 
         // Keep intent detection simple for now
         final Intent intent = new Intent("find_product");
-        log.info("Detected intent: '{}'", intent.name());
 
         return new UnderstoodQuery(preprocessedQuery, intent, entities);
     }
-}
\ No newline at end of file
+
+    private List<Entity> remoteEntities(String query) {
+        // Call the NER API to get entities
+        var nerResponse = nerApiClient.extractEntities(query);
+
+        // Transform the NER API's response into our application's internal Entity DTO.
+        // spaCy returns entities in document order, so each one is located after the previous.
+        int searchFrom = 0;
+        List<Entity> entities = new ArrayList<>();
+        for (var nerEntity : nerResponse.entities()) {
+            String type = nerEntity.label();
+            if ("ORG".equals(type)) {
+                type = "BRAND";
+            } else if ("PRODUCT".equals(type)) {
+                type = "PRODUCT_TYPE";
+            }
+            int start = query.indexOf(nerEntity.text(), searchFrom);
+            if (start < 0) {
+                start = query.indexOf(nerEntity.text());
+            }
+            int end = start < 0 ? -1 : start + nerEntity.text().length();
+            if (end > 0) {
+                searchFrom = end;
+            }
+            entities.add(new Entity(nerEntity.text(), type, start, end));
+        }
+        return entities;
+    }
+}
@@ -0,0 +1,13 @@
+package com.madhu.qou.service.intent;
+
+/**
+ * Where {@link IntentAndEntityService} gets its entities from (property {@code ner.mode}).
+ */
+public enum NerMode {
+    // Python spaCy service only (the original behaviour)
+    REMOTE,
+    // In-JVM catalog recognizer only; search never waits on the NER service
+    LOCAL,
+    // In-JVM recognizer, calling the NER service only when it finds nothing
+    LOCAL_FIRST
+}
@@ -0,0 +1,36 @@
+package com.madhu.qou.service.local;
+
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+
+/**
+ * Per-value document counts of a keyword column over a set of matching documents, the core of a
+ * terms aggregation. A small match set is counted by reading each match's value codes from the
+ * column; a large one by intersecting every value's bitmap with it, which costs a few container
+ * intersections per value however many documents match. The cheaper of the two is picked per call.
+ */
+final class FacetCounter {
+
+    // Roughly how many matches can be scanned for the price of one bitmap intersection
+    private static final int SCANS_PER_INTERSECTION = 64;
+
+    private FacetCounter() {
+    }
+
+    /** Counts indexed by value code. */
+    static long[] counts(KeywordColumn column, ImmutableRoaringBitmap docs) {
+        long[] counts = new long[column.cardinality()];
+        int matches = docs.getCardinality();
+        if (matches * column.valuesPerDoc() <= (double) column.cardinality() * SCANS_PER_INTERSECTION) {
+            PeekableIntIterator iterator = docs.getIntIterator();
+            while (iterator.hasNext()) {
+                column.count(iterator.next(), counts);
+            }
+        } else {
+            for (int code = 0; code < counts.length; code++) {
+                counts[code] = ImmutableRoaringBitmap.andCardinality(column.docs(code), docs);
+            }
+        }
+        return counts;
+    }
+}
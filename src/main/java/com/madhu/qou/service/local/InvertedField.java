@@ -0,0 +1,160 @@
+package com.madhu.qou.service.local;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index of one text field, scored with BM25 exactly as Lucene's {@code BM25Similarity}
+ * does (k1 = 1.2, b = 0.75, field lengths quantized to one byte per document).
+ * <p>
+ * Postings live off-heap in one direct buffer: per term, (doc delta, term frequency) pairs as
+ * variable-length ints. Only the term dictionary (term → offset, document frequency) is on-heap.
+ */
+final class InvertedField {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private record TermInfo(int offset, int docFreq) {}
+
+    private final Map<String, TermInfo> terms;
+    private final ByteBuffer postings;
+    private final ByteBuffer norms;
+    // Documents with at least one term in this field, as Lucene's per-field docCount
+    private final int docCount;
+    private final float[] normInverse = new float[256];
+
+    private InvertedField(Map<String, TermInfo> terms, ByteBuffer postings, ByteBuffer norms, int docCount, long sumTotalTermFreq) {
+        this.terms = terms;
+        this.postings = postings;
+        this.norms = norms;
+        this.docCount = docCount;
+        float avgFieldLength = docCount == 0 ? 1f : (float) (sumTotalTermFreq / (double) docCount);
+        for (int norm = 0; norm < normInverse.length; norm++) {
+            normInverse[norm] = 1f / (K1 * ((1 - B) + B * byte4ToInt((byte) norm) / avgFieldLength));
+        }
+    }
+
+    /** Builds the field from each document's analyzed tokens, documents numbered 0..n-1. */
+    static InvertedField build(List<List<String>> tokensPerDoc) {
+        Map<String, ByteArrayOutputStream> postingsByTerm = new LinkedHashMap<>();
+        Map<String, int[]> lastDocAndFreq = new HashMap<>();
+        ByteBuffer norms = ByteBuffer.allocateDirect(Math.max(1, tokensPerDoc.size()));
+        int docCount = 0;
+        long sumTotalTermFreq = 0;
+        for (int doc = 0; doc < tokensPerDoc.size(); doc++) {
+            List<String> tokens = tokensPerDoc.get(doc);
+            norms.put(doc, intToByte4(tokens.size()));
+            if (tokens.isEmpty()) {
+                continue;
+            }
+            docCount++;
+            sumTotalTermFreq += tokens.size();
+            Map<String, Integer> frequencies = new LinkedHashMap<>();
+            for (String token : tokens) {
+                frequencies.merge(token, 1, Integer::sum);
+            }
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                int[] last = lastDocAndFreq.computeIfAbsent(entry.getKey(), k -> new int[]{-1, 0});
+                ByteArrayOutputStream out = postingsByTerm.computeIfAbsent(entry.getKey(), k -> new ByteArrayOutputStream(8));
+                writeVInt(out, doc - last[0]);
+                writeVInt(out, entry.getValue());
+                last[0] = doc;
+                last[1]++;
+            }
+        }
+
+        int totalBytes = postingsByTerm.values().stream().mapToInt(ByteArrayOutputStream::size).sum();
+        ByteBuffer postings = ByteBuffer.allocateDirect(Math.max(1, totalBytes));
+        Map<String, TermInfo> terms = new HashMap<>(postingsByTerm.size() * 2);
+        for (Map.Entry<String, ByteArrayOutputStream> entry : postingsByTerm.entrySet()) {
+            terms.put(entry.getKey(), new TermInfo(postings.position(), lastDocAndFreq.get(entry.getKey())[1]));
+            postings.put(entry.getValue().toByteArray());
+        }
+        return new InvertedField(terms, postings, norms, docCount, sumTotalTermFreq);
+    }
+
+    /**
+     * Documents containing the term, each scored {@code boost * idf * tf-norm} and rounded to
+     * float like a Lucene {@code TermQuery}.
+     */
+    ScoredDocs score(String term, float boost) {
+        TermInfo info = terms.get(term);
+        if (info == null) {
+            return ScoredDocs.EMPTY;
+        }
+        float idf = (float) Math.log(1 + (docCount - info.docFreq() + 0.5D) / (info.docFreq() + 0.5D));
+        float weight = boost * idf;
+        int[] docs = new int[info.docFreq()];
+        double[] scores = new double[info.docFreq()];
+        int position = info.offset();
+        int doc = -1;
+        for (int i = 0; i < info.docFreq(); i++) {
+            int delta = 0, shift = 0, b;
+            do {
+                b = postings.get(position++);
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            int freq = 0;
+            shift = 0;
+            do {
+                b = postings.get(position++);
+                freq |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            doc += delta;
+            docs[i] = doc;
+            scores[i] = weight - weight / (1f + freq * normInverse[norms.get(doc) & 0xFF]);
+        }
+        return new ScoredDocs(docs, scores, docs.length);
+    }
+
+    int termCount() {
+        return terms.size();
+    }
+
+    int postingsBytes() {
+        return postings.capacity();
+    }
+
+    private static void writeVInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    // Lucene's SmallFloat.intToByte4/byte4ToInt: lengths up to 23 are exact, longer ones keep 4 significant bits
+    private static final int MAX_INT4 = longToInt4(Integer.MAX_VALUE);
+    private static final int NUM_FREE_VALUES = 255 - MAX_INT4;
+
+    static byte intToByte4(int i) {
+        return (byte) (i < NUM_FREE_VALUES ? i : NUM_FREE_VALUES + longToInt4(i - NUM_FREE_VALUES));
+    }
+
+    static int byte4ToInt(byte b) {
+        int i = Byte.toUnsignedInt(b);
+        return i < NUM_FREE_VALUES ? i : (int) (NUM_FREE_VALUES + int4ToLong(i - NUM_FREE_VALUES));
+    }
+
+    private static int longToInt4(long i) {
+        int numBits = 64 - Long.numberOfLeadingZeros(i);
+        if (numBits < 4) {
+            return (int) i;
+        }
+        int shift = numBits - 4;
+        return ((int) (i >>> shift) & 0x07) | (shift + 1) << 3;
+    }
+
+    private static long int4ToLong(int i) {
+        long bits = i & 0x07;
+        int shift = (i >>> 3) - 1;
+        return shift == -1 ? bits : (bits | 0x08) << shift;
+    }
+}
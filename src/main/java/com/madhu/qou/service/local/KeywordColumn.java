@@ -0,0 +1,123 @@
+package com.madhu.qou.service.local;
+
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.*;
+
+/**
+ * A multi-valued keyword field, dictionary-encoded and stored off-heap both ways round: each
+ * distinct value gets an int code (codes follow the values' sort order), per document the column
+ * holds an offset into a flat array of codes, and per code a Roaring bitmap holds the documents
+ * with that value. Term filters are unions of value bitmaps; terms aggregations count either way
+ * (see {@link FacetCounter}).
+ */
+final class KeywordColumn {
+
+    private final String[] dictionary;
+    private final Map<String, Integer> codes;
+    private final Map<String, int[]> caseInsensitiveCodes;
+    // Document d's codes are values[offsets[d] .. offsets[d + 1])
+    private final IntBuffer offsets;
+    private final IntBuffer values;
+    private final ImmutableRoaringBitmap[] postings;
+
+    private KeywordColumn(String[] dictionary, Map<String, Integer> codes, IntBuffer offsets, IntBuffer values,
+                          ImmutableRoaringBitmap[] postings) {
+        this.dictionary = dictionary;
+        this.codes = codes;
+        this.offsets = offsets;
+        this.values = values;
+        this.postings = postings;
+        Map<String, List<Integer>> byLowerCase = new HashMap<>();
+        for (int code = 0; code < dictionary.length; code++) {
+            byLowerCase.computeIfAbsent(dictionary[code].toLowerCase(Locale.ROOT), k -> new ArrayList<>(1)).add(code);
+        }
+        this.caseInsensitiveCodes = new HashMap<>(byLowerCase.size() * 2);
+        byLowerCase.forEach((value, list) -> caseInsensitiveCodes.put(value, list.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    static KeywordColumn build(List<List<String>> valuesPerDoc) {
+        String[] dictionary = valuesPerDoc.stream()
+                .flatMap(List::stream)
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted()
+                .toArray(String[]::new);
+        Map<String, Integer> codes = new HashMap<>(dictionary.length * 2);
+        for (int code = 0; code < dictionary.length; code++) {
+            codes.put(dictionary[code], code);
+        }
+        int total = valuesPerDoc.stream().mapToInt(List::size).sum();
+        IntBuffer offsets = ByteBuffer.allocateDirect((valuesPerDoc.size() + 1) * Integer.BYTES).asIntBuffer();
+        IntBuffer values = ByteBuffer.allocateDirect(Math.max(1, total) * Integer.BYTES).asIntBuffer();
+        List<MutableRoaringBitmap> postings = new ArrayList<>(dictionary.length);
+        for (int code = 0; code < dictionary.length; code++) {
+            postings.add(new MutableRoaringBitmap());
+        }
+        int position = 0;
+        for (int doc = 0; doc < valuesPerDoc.size(); doc++) {
+            offsets.put(doc, position);
+            // Keyword doc values are a sorted set: each distinct value once per document
+            int[] docCodes = valuesPerDoc.get(doc).stream().filter(Objects::nonNull).mapToInt(codes::get).distinct().sorted().toArray();
+            for (int code : docCodes) {
+                values.put(position++, code);
+                postings.get(code).add(doc);
+            }
+        }
+        offsets.put(valuesPerDoc.size(), position);
+        return new KeywordColumn(dictionary, codes, offsets, values, OffHeapBitmaps.store(postings));
+    }
+
+    /** Codes whose value equals {@code value}, optionally ignoring case (a {@code term} query). */
+    int[] codesFor(String value, boolean caseInsensitive) {
+        if (caseInsensitive) {
+            return caseInsensitiveCodes.getOrDefault(value.toLowerCase(Locale.ROOT), new int[0]);
+        }
+        Integer code = codes.get(value);
+        return code == null ? new int[0] : new int[]{code};
+    }
+
+    /** The documents having any of the values. */
+    ImmutableRoaringBitmap docs(int[] codes) {
+        return switch (codes.length) {
+            case 0 -> new MutableRoaringBitmap();
+            case 1 -> postings[codes[0]];
+            default -> ImmutableRoaringBitmap.or(Arrays.stream(codes).mapToObj(code -> postings[code]).iterator());
+        };
+    }
+
+    ImmutableRoaringBitmap docs(int code) {
+        return postings[code];
+    }
+
+    /** Adds one per distinct value of the document to {@code counts}, indexed by code. */
+    void count(int doc, long[] counts) {
+        for (int i = offsets.get(doc), end = offsets.get(doc + 1); i < end; i++) {
+            counts[values.get(i)]++;
+        }
+    }
+
+    /** Value codes per document, on average; what scanning a hit costs relative to a bitmap. */
+    double valuesPerDoc() {
+        return offsets.capacity() <= 1 ? 0 : offsets.get(offsets.capacity() - 1) / (double) (offsets.capacity() - 1);
+    }
+
+    long offHeapBytes() {
+        long bytes = (long) (offsets.capacity() + values.capacity()) * Integer.BYTES;
+        for (ImmutableRoaringBitmap bitmap : postings) {
+            bytes += bitmap.serializedSizeInBytes();
+        }
+        return bytes;
+    }
+
+    int cardinality() {
+        return dictionary.length;
+    }
+
+    String value(int code) {
+        return dictionary[code];
+    }
+}
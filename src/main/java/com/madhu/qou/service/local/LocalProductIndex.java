@@ -0,0 +1,115 @@
+package com.madhu.qou.service.local;
+
+import com.madhu.qou.dto.domain.Product;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable in-process copy of {@code products_index}: the text fields Elasticsearch maps
+ * dynamically ({@code name}, {@code description}, {@code search_aid}) as BM25 inverted indices,
+ * the keyword fields ({@code brand}, {@code categories}) as dictionary-encoded columns with
+ * per-value bitmaps and {@code grocery_attributes.is_organic} as a bitmap, all off-heap. The product records are kept
+ * on-heap as the {@code _source} of hits.
+ */
+final class LocalProductIndex {
+
+    private final Product[] products;
+    private final Map<String, Integer> docsByProductId;
+    private final Map<String, InvertedField> textFields;
+    private final Map<String, KeywordColumn> keywordColumns;
+    private final ImmutableRoaringBitmap organic;
+    private final ImmutableRoaringBitmap all;
+
+    private LocalProductIndex(Product[] products, Map<String, InvertedField> textFields,
+                              Map<String, KeywordColumn> keywordColumns, ImmutableRoaringBitmap organic) {
+        this.products = products;
+        this.docsByProductId = new HashMap<>(products.length * 2);
+        for (int doc = 0; doc < products.length; doc++) {
+            docsByProductId.putIfAbsent(products[doc].productId(), doc);
+        }
+        this.textFields = textFields;
+        this.keywordColumns = keywordColumns;
+        this.organic = organic;
+        this.all = MutableRoaringBitmap.bitmapOfRange(0, products.length);
+    }
+
+    static LocalProductIndex build(List<Product> products) {
+        List<List<String>> names = new ArrayList<>(products.size());
+        List<List<String>> descriptions = new ArrayList<>(products.size());
+        List<List<String>> searchAids = new ArrayList<>(products.size());
+        List<List<String>> brands = new ArrayList<>(products.size());
+        List<List<String>> categories = new ArrayList<>(products.size());
+        MutableRoaringBitmap organic = new MutableRoaringBitmap();
+        for (int doc = 0; doc < products.size(); doc++) {
+            Product product = products.get(doc);
+            names.add(TextAnalyzer.analyze(product.name()));
+            descriptions.add(TextAnalyzer.analyze(product.description()));
+            searchAids.add(TextAnalyzer.analyze(product.searchAid()));
+            brands.add(product.brand() == null ? List.of() : List.of(product.brand()));
+            categories.add(product.categories() == null ? List.of() : product.categories());
+            if (product.groceryAttributes() != null && product.groceryAttributes().isOrganic()) {
+                organic.add(doc);
+            }
+        }
+        return new LocalProductIndex(
+                products.toArray(Product[]::new),
+                Map.of("name", InvertedField.build(names),
+                        "description", InvertedField.build(descriptions),
+                        "search_aid", InvertedField.build(searchAids)),
+                Map.of("brand", KeywordColumn.build(brands),
+                        "categories", KeywordColumn.build(categories)),
+                OffHeapBitmaps.store(organic));
+    }
+
+    int size() {
+        return products.length;
+    }
+
+    Product product(int doc) {
+        return products[doc];
+    }
+
+    /** The doc of the product with this {@code product_id} (the document id), or -1. */
+    int doc(String productId) {
+        Integer doc = docsByProductId.get(productId);
+        return doc == null ? -1 : doc;
+    }
+
+    /** The text field, or null when the index has no such text field (it then matches nothing). */
+    InvertedField textField(String name) {
+        return textFields.get(name);
+    }
+
+    /** The keyword column, or null when the field is not a keyword field of the index. */
+    KeywordColumn keywordColumn(String name) {
+        return keywordColumns.get(name);
+    }
+
+    ImmutableRoaringBitmap organic() {
+        return organic;
+    }
+
+    ImmutableRoaringBitmap all() {
+        return all;
+    }
+
+    int termCount() {
+        return textFields.values().stream().mapToInt(InvertedField::termCount).sum();
+    }
+
+    long offHeapBytes() {
+        long bytes = organic.serializedSizeInBytes();
+        for (InvertedField field : textFields.values()) {
+            bytes += field.postingsBytes() + products.length;
+        }
+        for (KeywordColumn column : keywordColumns.values()) {
+            bytes += column.offHeapBytes();
+        }
+        return bytes;
+    }
+}
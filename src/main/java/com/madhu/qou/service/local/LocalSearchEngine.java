@@ -0,0 +1,453 @@
+package com.madhu.qou.service.local;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch._types.aggregations.TermsAggregation;
+import co.elastic.clients.elasticsearch._types.query_dsl.*;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.SourceConfig;
+import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
+import co.elastic.clients.elasticsearch.core.search.TrackHits;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.madhu.qou.dto.domain.Product;
+import com.madhu.qou.service.DataSeeder;
+import com.madhu.qou.service.SearchEngine;
+import com.opencsv.exceptions.CsvValidationException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Executes the search requests {@link com.madhu.qou.service.rewriting.QueryRewriteService}
+ * builds against a {@link LocalProductIndex} instead of Elasticsearch, answering with the same
+ * {@link SearchResponse} the client would have parsed, so the rest of the pipeline is unchanged.
+ * <p>
+ * Supported: {@code bool} (must, filter, and should as a disjunction without must),
+ * {@code match} and {@code multi_match} (best_fields or most_fields, field boosts) scored with
+ * Lucene's BM25, {@code term} and {@code terms} filters on the keyword fields and
+ * {@code grocery_attributes.is_organic}, {@code ids}, {@code match_all},
+ * {@code post_filter}, terms aggregations on keyword fields (optionally inside a {@code filter}
+ * aggregation), {@code track_total_hits}, from/size, {@code search_after} on (score, product_id)
+ * and {@code _source} filtering. Anything else is rejected with an {@link IllegalArgumentException}
+ * rather than answered differently from Elasticsearch. Suggesters are ignored.
+ * <p>
+ * Filters are evaluated to bitmaps and cached. Facet counts come from {@link FacetCounter}; for
+ * requests with filters only (no scoring clause) they depend on nothing but the filters and are
+ * cached as well.
+ * <p>
+ * Selected with {@code search.engine=local}; the index is then built from the same documents
+ * {@link DataSeeder} writes, before the application starts serving.
+ */
+@Component
+@Slf4j
+public class LocalSearchEngine {
+
+    private static final String INDEX_NAME = "products_index";
+    private static final String ORGANIC_FIELD = "grocery_attributes.is_organic";
+    private static final int DEFAULT_SIZE = 10;
+    private static final int DEFAULT_TRACK_TOTAL_HITS = 10_000;
+    private static final int DEFAULT_TERMS_SIZE = 10;
+    private static final int CACHE_SIZE = 1024;
+
+    // The index and what is cached against it, replaced together on a rebuild
+    private record Searcher(LocalProductIndex index, Cache<String, ImmutableRoaringBitmap> filters, Cache<String, long[]> filterOnlyCounts) {
+        Searcher(LocalProductIndex index) {
+            this(index, Caffeine.newBuilder().maximumSize(CACHE_SIZE).build(), Caffeine.newBuilder().maximumSize(CACHE_SIZE).build());
+        }
+    }
+
+    private final DataSeeder dataSeeder;
+    private final SearchEngine searchEngine;
+    private volatile Searcher searcher;
+
+    @Autowired
+    public LocalSearchEngine(DataSeeder dataSeeder, @Value("${search.engine:elasticsearch}") SearchEngine searchEngine) {
+        this.dataSeeder = dataSeeder;
+        this.searchEngine = searchEngine;
+    }
+
+    // Over a fixed product list, for tests and the parity check
+    LocalSearchEngine(List<Product> products) {
+        this(null, SearchEngine.LOCAL);
+        this.searcher = new Searcher(LocalProductIndex.build(products));
+    }
+
+    @PostConstruct
+    void buildIfSelected() throws IOException, CsvValidationException {
+        if (searchEngine == SearchEngine.LOCAL) {
+            build();
+        }
+    }
+
+    /**
+     * (Re)builds the index from products.csv and swaps it in.
+     */
+    public synchronized void build() throws IOException, CsvValidationException {
+        long start = System.nanoTime();
+        LocalProductIndex built = LocalProductIndex.build(dataSeeder.readProducts());
+        searcher = new Searcher(built);
+        log.info("Built local product index: {} documents, {} terms, {} KB off-heap in {} ms.",
+                built.size(), built.termCount(), built.offHeapBytes() / 1024, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public SearchResponse<Product> search(SearchRequest request) {
+        long start = System.nanoTime();
+        Searcher current = searcher;
+        if (current == null) {
+            throw new IllegalStateException("The local product index has not been built");
+        }
+        Query query = request.query();
+        ScoredDocs matches = query == null ? ScoredDocs.all(current.index().size(), 1f) : evaluate(query, current);
+
+        // Aggregations see every match; post_filter only narrows the hits
+        Map<String, Aggregate> aggregations = new LinkedHashMap<>();
+        if (!request.aggregations().isEmpty()) {
+            String filterOnlyKey = filterOnlyKey(query);
+            ImmutableRoaringBitmap matched = filterOnlyKey != null ? filterOnlyDocs(query, current) : matches.toBitmap();
+            request.aggregations().forEach((name, aggregation) ->
+                    aggregations.put(name, aggregate(name, aggregation, matched, filterOnlyKey, current)));
+        }
+        ScoredDocs hitDocs = request.postFilter() == null ? matches : matches.retain(filter(request.postFilter(), current));
+
+        int size = request.size() != null ? request.size() : DEFAULT_SIZE;
+        int from = request.from() != null ? request.from() : 0;
+        List<Hit<Product>> hits = topHits(hitDocs, from, size, request.searchAfter(), sourceFilter(request.source()), current.index());
+
+        long tookMillis = (System.nanoTime() - start) / 1_000_000;
+        TrackHits trackHits = request.trackTotalHits();
+        return SearchResponse.of(r -> {
+            r.took(tookMillis)
+                    .timedOut(false)
+                    .shards(s -> s.total(1).successful(1).failed(0))
+                    .hits(h -> {
+                        h.hits(hits);
+                        if (trackHits == null || !trackHits.isEnabled() || trackHits.enabled()) {
+                            int limit = trackHits == null ? DEFAULT_TRACK_TOTAL_HITS
+                                    : trackHits.isCount() ? trackHits.count() : Integer.MAX_VALUE;
+                            h.total(t -> t.value(Math.min(hitDocs.size, limit))
+                                    .relation(hitDocs.size > limit ? TotalHitsRelation.Gte : TotalHitsRelation.Eq));
+                        }
+                        return h;
+                    });
+            if (!aggregations.isEmpty()) {
+                r.aggregations(aggregations);
+            }
+            return r;
+        });
+    }
+
+    private ScoredDocs evaluate(Query query, Searcher searcher) {
+        LocalProductIndex index = searcher.index();
+        return switch (query._kind()) {
+            case Bool -> bool(query.bool(), searcher);
+            case Match -> match(query.match(), index);
+            case MultiMatch -> multiMatch(query.multiMatch(), index);
+            case MatchAll -> ScoredDocs.all(index.size(), boost(query.matchAll().boost()));
+            case Ids -> ids(query.ids(), index);
+            default -> throw unsupported("query " + query._kind().jsonValue());
+        };
+    }
+
+    private ScoredDocs bool(BoolQuery bool, Searcher searcher) {
+        if (!bool.mustNot().isEmpty()) {
+            throw unsupported("bool must_not clauses");
+        }
+        if (!bool.should().isEmpty() && !(bool.must().isEmpty() && "1".equals(bool.minimumShouldMatch()))) {
+            throw unsupported("bool should clauses other than a disjunction (no must, minimum_should_match 1)");
+        }
+        // Like Lucene's conjunction and disjunction: clause scores (floats) summed, then rounded once more
+        ScoredDocs result = null;
+        for (Query must : bool.must()) {
+            ScoredDocs clause = evaluate(must, searcher);
+            result = result == null ? clause : ScoredDocs.intersect(result, clause);
+        }
+        for (Query should : bool.should()) {
+            ScoredDocs clause = evaluate(should, searcher);
+            result = result == null ? clause : ScoredDocs.sum(result, clause);
+        }
+        ImmutableRoaringBitmap filtered = bool.filter().isEmpty() ? null : filters(bool.filter(), searcher);
+        if (result == null) {
+            return ScoredDocs.of(filtered == null ? searcher.index().all() : filtered, 0f);
+        }
+        result = result.toFloatScores();
+        return filtered == null ? result : result.retain(filtered);
+    }
+
+    private static ScoredDocs ids(IdsQuery ids, LocalProductIndex index) {
+        MutableRoaringBitmap docs = new MutableRoaringBitmap();
+        for (String id : ids.values()) {
+            int doc = index.doc(id);
+            if (doc >= 0) {
+                docs.add(doc);
+            }
+        }
+        return ScoredDocs.of(docs, boost(ids.boost()));
+    }
+
+    private ScoredDocs match(MatchQuery match, LocalProductIndex index) {
+        FieldValue query = match.query();
+        return fieldMatch(match.field(), query.isString() ? query.stringValue() : query._toJsonString(),
+                boost(match.boost()), match.operator() == Operator.And, index);
+    }
+
+    private ScoredDocs multiMatch(MultiMatchQuery multiMatch, LocalProductIndex index) {
+        TextQueryType type = multiMatch.type() == null ? TextQueryType.BestFields : multiMatch.type();
+        if (type != TextQueryType.BestFields && type != TextQueryType.MostFields) {
+            throw unsupported("multi_match type " + type.jsonValue());
+        }
+        if (multiMatch.tieBreaker() != null && multiMatch.tieBreaker() != 0) {
+            throw unsupported("multi_match tie_breaker");
+        }
+        boolean and = multiMatch.operator() == Operator.And;
+        ScoredDocs result = ScoredDocs.EMPTY;
+        for (String field : multiMatch.fields()) {
+            int caret = field.indexOf('^');
+            String name = caret < 0 ? field : field.substring(0, caret);
+            float fieldBoost = boost(multiMatch.boost()) * (caret < 0 ? 1f : Float.parseFloat(field.substring(caret + 1)));
+            ScoredDocs fieldScores = fieldMatch(name, multiMatch.query(), fieldBoost, and, index);
+            result = type == TextQueryType.BestFields ? ScoredDocs.max(result, fieldScores) : ScoredDocs.sum(result, fieldScores);
+        }
+        return type == TextQueryType.BestFields ? result : result.toFloatScores();
+    }
+
+    // The field's query terms as a bool of term queries (should, or must for operator AND)
+    private ScoredDocs fieldMatch(String field, String text, float boost, boolean and, LocalProductIndex index) {
+        InvertedField inverted = index.textField(field);
+        List<String> terms = TextAnalyzer.analyze(text);
+        if (inverted == null || terms.isEmpty()) {
+            return ScoredDocs.EMPTY;
+        }
+        ScoredDocs result = null;
+        for (String term : terms) {
+            ScoredDocs termScores = inverted.score(term, boost);
+            result = result == null ? termScores : and ? ScoredDocs.intersect(result, termScores) : ScoredDocs.sum(result, termScores);
+        }
+        return result.toFloatScores();
+    }
+
+    // Requests that only filter match a function of their filters; null when something is scored
+    private static String filterOnlyKey(Query query) {
+        if (query == null || query.isMatchAll()) {
+            return "match_all";
+        }
+        if (query.isBool() && query.bool().must().isEmpty() && query.bool().should().isEmpty() && query.bool().mustNot().isEmpty()) {
+            return query.bool().filter().toString();
+        }
+        return null;
+    }
+
+    private static ImmutableRoaringBitmap filterOnlyDocs(Query query, Searcher searcher) {
+        return query == null || query.isMatchAll() || query.bool().filter().isEmpty()
+                ? searcher.index().all()
+                : filters(query.bool().filter(), searcher);
+    }
+
+    // Filter clauses are ANDed, like the filter section of a bool query
+    private static ImmutableRoaringBitmap filters(List<Query> filters, Searcher searcher) {
+        if (filters.size() == 1) {
+            return filter(filters.get(0), searcher);
+        }
+        return cached(filters.toString(), searcher, () -> {
+            ImmutableRoaringBitmap result = searcher.index().all();
+            for (Query filter : filters) {
+                result = ImmutableRoaringBitmap.and(result, filter(filter, searcher));
+            }
+            return result;
+        });
+    }
+
+    private static ImmutableRoaringBitmap filter(Query filter, Searcher searcher) {
+        return cached(filter.toString(), searcher, () -> evaluateFilter(filter, searcher));
+    }
+
+    // Not computeIfAbsent: evaluating a bool filter caches its clauses, a recursive update
+    private static ImmutableRoaringBitmap cached(String key, Searcher searcher, Supplier<ImmutableRoaringBitmap> evaluate) {
+        ImmutableRoaringBitmap docs = searcher.filters().getIfPresent(key);
+        if (docs == null) {
+            docs = evaluate.get();
+            searcher.filters().put(key, docs);
+        }
+        return docs;
+    }
+
+    private static ImmutableRoaringBitmap evaluateFilter(Query filter, Searcher searcher) {
+        LocalProductIndex index = searcher.index();
+        if (filter.isMatchAll()) {
+            return index.all();
+        }
+        if (filter.isBool() && filter.bool().must().isEmpty() && filter.bool().should().isEmpty() && filter.bool().mustNot().isEmpty()) {
+            return filters(filter.bool().filter(), searcher);
+        }
+        if (filter.isTerm()) {
+            TermQuery term = filter.term();
+            FieldValue value = term.value();
+            if (ORGANIC_FIELD.equals(term.field())) {
+                boolean organic = value.isBoolean() ? value.booleanValue() : Boolean.parseBoolean(value._toJsonString());
+                return organic ? index.organic() : ImmutableRoaringBitmap.andNot(index.all(), index.organic());
+            }
+            KeywordColumn column = keywordColumn(index, term.field(), "term filter");
+            return column.docs(column.codesFor(text(value), Boolean.TRUE.equals(term.caseInsensitive())));
+        }
+        if (filter.isTerms() && filter.terms().terms().isValue()) {
+            KeywordColumn column = keywordColumn(index, filter.terms().field(), "terms filter");
+            int[] codes = filter.terms().terms().value().stream()
+                    .flatMapToInt(value -> Arrays.stream(column.codesFor(text(value), false)))
+                    .distinct()
+                    .toArray();
+            return column.docs(codes);
+        }
+        throw unsupported("filter " + filter._kind().jsonValue());
+    }
+
+    private static KeywordColumn keywordColumn(LocalProductIndex index, String field, String use) {
+        KeywordColumn column = index.keywordColumn(field);
+        if (column == null) {
+            throw unsupported(use + " on " + field);
+        }
+        return column;
+    }
+
+    private static String text(FieldValue value) {
+        return value.isString() ? value.stringValue() : value._toJsonString();
+    }
+
+    private Aggregate aggregate(String name, Aggregation aggregation, ImmutableRoaringBitmap docs, String filterOnlyKey, Searcher searcher) {
+        if (aggregation.isFilter()) {
+            // A bucket of the matches that also pass the filter, e.g. one facet of a disjunctive facet set
+            MutableRoaringBitmap filtered = ImmutableRoaringBitmap.and(docs, filter(aggregation.filter(), searcher));
+            String filteredKey = filterOnlyKey == null ? null : filterOnlyKey + " & " + aggregation.filter();
+            Map<String, Aggregate> subAggregations = new LinkedHashMap<>();
+            aggregation.aggregations().forEach((subName, sub) ->
+                    subAggregations.put(subName, aggregate(subName, sub, filtered, filteredKey, searcher)));
+            long docCount = filtered.getCardinality();
+            return Aggregate.of(a -> a.filter(f -> f.docCount(docCount).aggregations(subAggregations)));
+        }
+        if (!aggregation.isTerms() || !aggregation.aggregations().isEmpty()) {
+            throw unsupported("aggregation " + name + " of type " + aggregation._kind().jsonValue());
+        }
+        TermsAggregation terms = aggregation.terms();
+        KeywordColumn column = keywordColumn(searcher.index(), terms.field(), "terms aggregation");
+        long[] counts = filterOnlyKey == null
+                ? FacetCounter.counts(column, docs)
+                : searcher.filterOnlyCounts().get(filterOnlyKey + " | " + terms.field(), key -> FacetCounter.counts(column, docs));
+        return termsAggregate(column, counts, terms.size() != null ? terms.size() : DEFAULT_TERMS_SIZE);
+    }
+
+    // Terms aggregation as Elasticsearch orders it: doc count descending, then key ascending
+    private static Aggregate termsAggregate(KeywordColumn column, long[] counts, int size) {
+        Integer[] codes = new Integer[counts.length];
+        int nonZero = 0;
+        long total = 0;
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                codes[nonZero++] = code;
+                total += counts[code];
+            }
+        }
+        // Codes follow value order, so a stable sort by count keeps keys ascending within a count
+        Arrays.sort(codes, 0, nonZero, Comparator.comparingLong((Integer code) -> counts[code]).reversed());
+        List<StringTermsBucket> buckets = new ArrayList<>(Math.min(size, nonZero));
+        long inBuckets = 0;
+        for (int i = 0; i < Math.min(size, nonZero); i++) {
+            int code = codes[i];
+            buckets.add(StringTermsBucket.of(b -> b.key(FieldValue.of(column.value(code))).docCount(counts[code])));
+            inBuckets += counts[code];
+        }
+        long otherDocs = total - inBuckets;
+        return Aggregate.of(a -> a.sterms(st -> st.buckets(b -> b.array(buckets)).sumOtherDocCount(otherDocs).docCountErrorUpperBound(0L)));
+    }
+
+    // Sorted by _score descending, then product_id ascending, as QueryRewriteService requests
+    private List<Hit<Product>> topHits(ScoredDocs matches, int from, int size, List<FieldValue> searchAfter,
+                                       UnaryOperator<Product> sourceFilter, LocalProductIndex index) {
+        Comparator<Integer> order = Comparator.<Integer>comparingDouble(i -> -matches.scores[i])
+                .thenComparing(i -> index.product(matches.docs[i]).productId());
+        int wanted = from + size;
+        PriorityQueue<Integer> worstFirst = new PriorityQueue<>(Math.max(1, wanted), order.reversed());
+        float afterScore = searchAfter.isEmpty() ? Float.NaN : (float) searchAfter.get(0).doubleValue();
+        String afterId = searchAfter.size() < 2 ? null : searchAfter.get(1).stringValue();
+        for (int i = 0; i < matches.size && wanted > 0; i++) {
+            if (afterId != null) {
+                float score = (float) matches.scores[i];
+                if (score > afterScore || (score == afterScore && index.product(matches.docs[i]).productId().compareTo(afterId) <= 0)) {
+                    continue;
+                }
+            }
+            worstFirst.add(i);
+            if (worstFirst.size() > wanted) {
+                worstFirst.poll();
+            }
+        }
+        List<Integer> page = new ArrayList<>(worstFirst);
+        page.sort(order);
+        List<Hit<Product>> hits = new ArrayList<>(Math.max(0, page.size() - from));
+        for (int rank = from; rank < page.size(); rank++) {
+            int i = page.get(rank);
+            Product product = index.product(matches.docs[i]);
+            double score = matches.scores[i];
+            hits.add(Hit.of(h -> h
+                    .index(INDEX_NAME)
+                    .id(product.productId())
+                    .score(score)
+                    .source(sourceFilter.apply(product))
+                    .sort(FieldValue.of(score), FieldValue.of(product.productId()))));
+        }
+        return hits;
+    }
+
+    private static UnaryOperator<Product> sourceFilter(SourceConfig source) {
+        if (source == null) {
+            return UnaryOperator.identity();
+        }
+        if (source.isFetch()) {
+            return source.fetch() ? UnaryOperator.identity() : product -> null;
+        }
+        List<String> includes = source.filter().includes();
+        List<String> excludes = source.filter().excludes();
+        Set<String> kept = new HashSet<>();
+        for (String field : List.of("product_id", "name", "description", "brand", "categories", "attributes", "grocery_attributes", "search_aid")) {
+            boolean included = includes.isEmpty() || includes.stream().anyMatch(pattern -> includes(pattern, field));
+            if (included && !excludes.contains(field)) {
+                kept.add(field);
+            }
+        }
+        return product -> new Product(
+                kept.contains("product_id") ? product.productId() : null,
+                kept.contains("name") ? product.name() : null,
+                kept.contains("description") ? product.description() : null,
+                kept.contains("brand") ? product.brand() : null,
+                kept.contains("categories") ? product.categories() : null,
+                kept.contains("attributes") ? product.attributes() : null,
+                kept.contains("grocery_attributes") ? product.groceryAttributes() : null,
+                kept.contains("search_aid") ? product.searchAid() : null);
+    }
+
+    // Exact field, a path inside it (the whole object is returned), or a trailing wildcard
+    private static boolean includes(String pattern, String field) {
+        return pattern.equals(field)
+                || pattern.startsWith(field + ".")
+                || (pattern.endsWith("*") && field.startsWith(pattern.substring(0, pattern.length() - 1)));
+    }
+
+    private static float boost(Float boost) {
+        return boost == null ? 1f : boost;
+    }
+
+    private static IllegalArgumentException unsupported(String what) {
+        return new IllegalArgumentException("The local search engine does not support " + what);
+    }
+}
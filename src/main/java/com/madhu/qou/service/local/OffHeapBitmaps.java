@@ -0,0 +1,42 @@
+package com.madhu.qou.service.local;
+
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * Moves Roaring bitmaps off-heap: they are run-optimized, serialized back to back into one direct
+ * buffer and read in place as {@link ImmutableRoaringBitmap}s, which support the same set
+ * operations without deserializing.
+ */
+final class OffHeapBitmaps {
+
+    private OffHeapBitmaps() {
+    }
+
+    static ImmutableRoaringBitmap[] store(List<MutableRoaringBitmap> bitmaps) {
+        int total = 0;
+        for (MutableRoaringBitmap bitmap : bitmaps) {
+            bitmap.runOptimize();
+            total += bitmap.serializedSizeInBytes();
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(1, total)).order(ByteOrder.LITTLE_ENDIAN);
+        ImmutableRoaringBitmap[] stored = new ImmutableRoaringBitmap[bitmaps.size()];
+        int position = 0;
+        for (int i = 0; i < stored.length; i++) {
+            int size = bitmaps.get(i).serializedSizeInBytes();
+            ByteBuffer slice = buffer.slice(position, size).order(ByteOrder.LITTLE_ENDIAN);
+            bitmaps.get(i).serialize(slice.duplicate().order(ByteOrder.LITTLE_ENDIAN));
+            stored[i] = new ImmutableRoaringBitmap(slice);
+            position += size;
+        }
+        return stored;
+    }
+
+    static ImmutableRoaringBitmap store(MutableRoaringBitmap bitmap) {
+        return store(List.of(bitmap))[0];
+    }
+}
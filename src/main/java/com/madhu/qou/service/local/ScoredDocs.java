@@ -0,0 +1,136 @@
+package com.madhu.qou.service.local;
+
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+import java.util.Arrays;
+
+/**
+ * Matching documents of one query clause, in ascending doc order, with their scores. Scores add
+ * up in double and are rounded to float at clause boundaries, as Lucene's scorers do, so scores
+ * and therefore tie-breaks match Elasticsearch's.
+ */
+final class ScoredDocs {
+
+    static final ScoredDocs EMPTY = new ScoredDocs(new int[0], new double[0], 0);
+
+    final int[] docs;
+    final double[] scores;
+    final int size;
+
+    ScoredDocs(int[] docs, double[] scores, int size) {
+        this.docs = docs;
+        this.scores = scores;
+        this.size = size;
+    }
+
+    /** Every document, with a constant score, like {@code match_all}. */
+    static ScoredDocs all(int docCount, float score) {
+        int[] docs = new int[docCount];
+        double[] scores = new double[docCount];
+        for (int doc = 0; doc < docCount; doc++) {
+            docs[doc] = doc;
+            scores[doc] = score;
+        }
+        return new ScoredDocs(docs, scores, docCount);
+    }
+
+    /** The documents of a bitmap, with a constant score, like a {@code bool} with only filters. */
+    static ScoredDocs of(ImmutableRoaringBitmap bitmap, float score) {
+        int[] docs = new int[bitmap.getCardinality()];
+        double[] scores = new double[docs.length];
+        PeekableIntIterator iterator = bitmap.getIntIterator();
+        for (int i = 0; i < docs.length; i++) {
+            docs[i] = iterator.next();
+            scores[i] = score;
+        }
+        return new ScoredDocs(docs, scores, docs.length);
+    }
+
+    /** Documents matching either side; a document on both sides gets the sum (bool should). */
+    static ScoredDocs sum(ScoredDocs a, ScoredDocs b) {
+        return union(a, b, false);
+    }
+
+    /** Documents matching either side; a document on both sides gets the larger score (dis_max). */
+    static ScoredDocs max(ScoredDocs a, ScoredDocs b) {
+        return union(a, b, true);
+    }
+
+    /** Documents matching both sides, with the sum of their scores (bool must). */
+    static ScoredDocs intersect(ScoredDocs a, ScoredDocs b) {
+        int capacity = Math.min(a.size, b.size);
+        int[] docs = new int[capacity];
+        double[] scores = new double[capacity];
+        int i = 0, j = 0, n = 0;
+        while (i < a.size && j < b.size) {
+            int docA = a.docs[i], docB = b.docs[j];
+            if (docA < docB) {
+                i++;
+            } else if (docB < docA) {
+                j++;
+            } else {
+                docs[n] = docA;
+                scores[n++] = a.scores[i++] + b.scores[j++];
+            }
+        }
+        return new ScoredDocs(docs, scores, n);
+    }
+
+    private static ScoredDocs union(ScoredDocs a, ScoredDocs b, boolean max) {
+        if (a.size == 0) {
+            return b;
+        }
+        if (b.size == 0) {
+            return a;
+        }
+        int[] docs = new int[a.size + b.size];
+        double[] scores = new double[a.size + b.size];
+        int i = 0, j = 0, n = 0;
+        while (i < a.size || j < b.size) {
+            int docA = i < a.size ? a.docs[i] : Integer.MAX_VALUE;
+            int docB = j < b.size ? b.docs[j] : Integer.MAX_VALUE;
+            if (docA < docB) {
+                docs[n] = docA;
+                scores[n++] = a.scores[i++];
+            } else if (docB < docA) {
+                docs[n] = docB;
+                scores[n++] = b.scores[j++];
+            } else {
+                docs[n] = docA;
+                scores[n++] = max ? Math.max(a.scores[i++], b.scores[j++]) : a.scores[i++] + b.scores[j++];
+            }
+        }
+        return new ScoredDocs(docs, scores, n);
+    }
+
+    /** The documents that are also in {@code filter}, with their scores. */
+    ScoredDocs retain(ImmutableRoaringBitmap filter) {
+        int[] kept = new int[size];
+        double[] keptScores = new double[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (filter.contains(docs[i])) {
+                kept[n] = docs[i];
+                keptScores[n++] = scores[i];
+            }
+        }
+        return new ScoredDocs(kept, keptScores, n);
+    }
+
+    MutableRoaringBitmap toBitmap() {
+        MutableRoaringBitmap bitmap = new MutableRoaringBitmap();
+        bitmap.addN(docs, 0, size);
+        return bitmap;
+    }
+
+    /** The same documents with every score rounded to float, where a Lucene scorer returns. */
+    ScoredDocs toFloatScores() {
+        double[] rounded = Arrays.copyOf(scores, size);
+        for (int i = 0; i < size; i++) {
+            rounded[i] = (float) rounded[i];
+        }
+        return new ScoredDocs(docs, rounded, size);
+    }
+}
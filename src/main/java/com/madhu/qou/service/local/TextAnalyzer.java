@@ -0,0 +1,53 @@
+package com.madhu.qou.service.local;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Close approximation of Elasticsearch's {@code standard} analyzer (UAX#29 word boundaries plus
+ * lowercasing, no stop words) for the text in products.csv: letters, digits and underscores form
+ * words; an apostrophe or period between two letters, and a period or comma between two digits,
+ * stay inside a word ("annie's", "e.g", "1.5"); everything else separates words.
+ */
+final class TextAnalyzer {
+
+    private TextAnalyzer() {
+    }
+
+    static List<String> analyze(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isWordChar(c)) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0 && !(i + 1 < text.length() && joins(text.charAt(i - 1), c, text.charAt(i + 1)))) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            tokens.add(text.substring(start).toLowerCase(Locale.ROOT));
+        }
+        return tokens;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static boolean joins(char before, char c, char after) {
+        return switch (c) {
+            case '\'', '’' -> Character.isLetter(before) && Character.isLetter(after);
+            case '.' -> (Character.isLetter(before) && Character.isLetter(after)) || (Character.isDigit(before) && Character.isDigit(after));
+            case ',' -> Character.isDigit(before) && Character.isDigit(after);
+            default -> false;
+        };
+    }
+}
@@ -1,53 +1,118 @@
 package com.madhu.qou.service.rewriting;
 
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.SortOrder;
 import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.mapping.FieldType;
 import co.elastic.clients.elasticsearch._types.query_dsl.*;
 import co.elastic.clients.elasticsearch.core.SearchRequest;
-import co.elastic.clients.elasticsearch.core.search.Suggester;
+import co.elastic.clients.elasticsearch.core.search.TrackHits;
+import co.elastic.clients.elasticsearch.core.search.FieldSuggester;
+import co.elastic.clients.elasticsearch.core.search.SourceConfig;
 import com.madhu.qou.dto.Entity;
+import com.madhu.qou.dto.FacetSelection;
+import com.madhu.qou.dto.SearchCursor;
+import com.madhu.qou.dto.SearchOptions;
 import com.madhu.qou.dto.UnderstoodQuery;
+import com.madhu.qou.service.catalog.CatalogDictionary;
+import com.madhu.qou.service.ingestion.QueryNormalizer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @Slf4j
 public class QueryRewriteService {
 
-    private final String indexName = "products_index";
-    private static final Set<String> STOP_WORDS = Set.of(
+    private static final String INDEX_NAME = "products_index";
+    /** Query words that carry no product meaning; dropped from the residual text, never spell-corrected. */
+    public static final Set<String> STOP_WORDS = Set.of(
             "a", "an", "and", "the", "in", "on", "for", "from",
             "i", "me", "show", "find", "get", "some",
             "items", "products", "aisle"
     );
 
+    // Query-independent parts of every request, built once. The client's builders keep a
+    // reference to a list or map passed in whole, so these are shared rather than copied.
+    private static final List<String> FULL_TEXT_FIELDS = List.of("name", "description");
+    private static final List<String> RESIDUAL_FIELDS = List.of("name", "description", "search_aid^0.5");
+    private static final Query ORGANIC_FILTER = TermQuery.of(t -> t.field("grocery_attributes.is_organic").value(true))._toQuery();
+    private static final Map<String, FieldSuggester> SPELL_CHECK =
+            Map.of("spell-check", FieldSuggester.of(fs -> fs.term(t -> t.field("name"))));
+    // Matches are counted up to here only; the pipeline just needs to tell zero hits from some
+    private static final int TRACK_TOTAL_HITS_UP_TO = 1000;
+    private static final TrackHits TRACK_TOTAL_HITS = TrackHits.of(t -> t.count(TRACK_TOTAL_HITS_UP_TO));
+    // Never returned to clients: the catch-all search field and the seeder's change hash
+    private static final List<String> SOURCE_EXCLUDES = List.of("search_aid", "content_hash");
+    private static final SourceConfig DEFAULT_SOURCE = SourceConfig.of(s -> s.filter(f -> f.excludes(SOURCE_EXCLUDES)));
+    // Relevance with a unique tiebreaker, so a page's last sort values are a stable search_after cursor
+    private static final List<SortOptions> RELEVANCE_ORDER = List.of(
+            SortOptions.of(so -> so.score(sc -> sc.order(SortOrder.Desc))),
+            SortOptions.of(so -> so.field(f -> f.field("product_id.keyword").order(SortOrder.Asc).unmappedType(FieldType.Keyword))));
+    // by_category/by_brand per facet size; at most MAX_FACET_SIZE entries
+    private static final Map<Integer, Map<String, Aggregation>> FACET_AGGREGATIONS = new ConcurrentHashMap<>();
+    /** The terms sub-aggregation of a facet that is narrowed by the other facets' selections. */
+    public static final String FACET_VALUES = "values";
+
+    private final CatalogDictionary catalogDictionary;
+    // Exact term filter per known brand id: the indexed spelling is known, so no case folding is needed
+    private final Query[] brandFilters;
+
+    public QueryRewriteService(CatalogDictionary catalogDictionary) {
+        this.catalogDictionary = catalogDictionary;
+        List<String> brands = catalogDictionary.knownBrands();
+        this.brandFilters = new Query[brands.size() + 1];
+        for (int id = 1; id < brandFilters.length; id++) {
+            String brand = catalogDictionary.brand(id);
+            brandFilters[id] = TermQuery.of(t -> t.field("brand").value(brand))._toQuery();
+        }
+    }
+
     public SearchRequest buildEsQuery(UnderstoodQuery understoodQuery) {
-        final String originalQuery = understoodQuery.preprocessedQuery().normalizedQuery();
-        final List<Entity> entities = understoodQuery.entities();
+        return buildEsQuery(understoodQuery, SearchOptions.DEFAULT);
+    }
+
+    /**
+     * The search request for the query: entity filters and matches, facet aggregations unless
+     * the client opted out, a bounded hit count, the requested page (from/size or search_after)
+     * and a filtered {@code _source}. The did-you-mean suggester is not part of it; it only
+     * matters on zero hits, see {@link #buildSpellCheckRequest(UnderstoodQuery)}.
+     */
+    public SearchRequest buildEsQuery(UnderstoodQuery understoodQuery, SearchOptions options) {
+        return buildSearchRequest(understoodQuery, options, List.of(), 0);
+    }
 
-        List<Query> filterClauses = new ArrayList<>();
-        List<Query> mustClauses = new ArrayList<>();
+    /**
+     * Hybrid retrieval: as {@link #buildEsQuery(UnderstoodQuery, SearchOptions)}, except that the
+     * products in {@code semanticIds} (nearest by embedding) match as well, with score 0, if they
+     * pass the entity filters. Asks for the first {@code lexicalWindow} lexical hits plus room for
+     * every semantic one and ignores the page, which is cut after the two rankings are fused.
+     */
+    public SearchRequest buildHybridQuery(UnderstoodQuery understoodQuery, SearchOptions options,
+                                          List<String> semanticIds, int lexicalWindow) {
+        return buildSearchRequest(understoodQuery, options, semanticIds, lexicalWindow);
+    }
 
-        // --- NEW: Entity-First Logic ---
-        Set<String> entityTexts = new HashSet<>();
+    private SearchRequest buildSearchRequest(UnderstoodQuery understoodQuery, SearchOptions options,
+                                             List<String> semanticIds, int lexicalWindow) {
+        final List<String> tokens = understoodQuery.preprocessedQuery().tokens();
+        // Tokens re-joined with single spaces: analyzers ignore extra whitespace, and a canonical
+        // text lets equivalent queries produce byte-identical requests (see SearchResponseCache)
+        final String originalQuery = String.join(" ", tokens);
+        final List<Entity> entities = understoodQuery.entities();
 
-        // 1. Create high-priority filters from specific entities
+        // 1. High-priority filters and product-type matches from the entities
+        List<Query> filterClauses = new ArrayList<>(entities.size());
+        List<Query> mustClauses = new ArrayList<>(entities.size() + 1);
         for (var entity : entities) {
-            entityTexts.add(entity.value());
             switch (entity.type()) {
-                case "BRAND" ->
-                    filterClauses.add(
-                        TermQuery.of(t -> t
-                            .field("brand")
-                            .value(entity.value())
-                            .caseInsensitive(true)
-                        )._toQuery()
-                    );
+                case "BRAND" -> filterClauses.add(brandFilter(entity.value()));
                 case "DIETARY_ATTRIBUTE", "GROCERY_ATTRIBUTE" -> {
                     if ("organic".equalsIgnoreCase(entity.value())) {
-                        filterClauses.add(TermQuery.of(t -> t.field("grocery_attributes.is_organic").value(true))._toQuery());
+                        filterClauses.add(ORGANIC_FILTER);
                     }
                 }
                 case "AISLE" ->
@@ -57,44 +122,173 @@ public class QueryRewriteService {
             }
         }
 
-        // 2. Determine the residual query text after removing entities and stop words
-        String residualQuery = Arrays.stream(originalQuery.split("\\s+"))
-                .filter(word -> !entityTexts.contains(word) && !STOP_WORDS.contains(word))
-                .collect(Collectors.joining(" "));
-
-        // 3. Add the cleaned residual text as a general search clause, if it's not empty
-        if (!mustClauses.isEmpty() && !residualQuery.isBlank()) {
-            mustClauses.add(MultiMatchQuery.of(m -> m
-                    .query(residualQuery)
-                    .fields("name", "description", "search_aid^0.5")
-                    .type(TextQueryType.BestFields)
-            )._toQuery());
+        if (!mustClauses.isEmpty()) {
+            // 2. The residual text after removing entities and stop words, as a general search clause
+            String residualQuery = residualText(understoodQuery.preprocessedQuery().normalizedQuery(), entities);
+            if (!residualQuery.isEmpty()) {
+                mustClauses.add(MultiMatchQuery.of(m -> m
+                        .query(residualQuery)
+                        .fields(RESIDUAL_FIELDS)
+                        .type(TextQueryType.BestFields)
+                )._toQuery());
+            }
+        } else {
+            // No specific must clauses: the original query is the fallback
+            mustClauses.add(MultiMatchQuery.of(m -> m.query(originalQuery).fields(FULL_TEXT_FIELDS))._toQuery());
         }
 
-        // If there are no specific must clauses, use the original query as a fallback
-        if (mustClauses.isEmpty()) {
-            mustClauses.add(MultiMatchQuery.of(m -> m.query(originalQuery).fields("name", "description"))._toQuery());
-        }
-        // --- End of New Logic ---
+        boolean hybrid = !semanticIds.isEmpty();
+        BoolQuery boolQuery = hybrid
+                // 3. Hybrid: lexical matches or semantic neighbours, both under the filters
+                ? BoolQuery.of(b -> b
+                        .should(BoolQuery.of(lexical -> lexical.must(mustClauses))._toQuery(),
+                                IdsQuery.of(i -> i.values(semanticIds).boost(0f))._toQuery())
+                        .minimumShouldMatch("1")
+                        .filter(filterClauses))
+                : BoolQuery.of(b -> b
+                        .must(mustClauses)
+                        .filter(filterClauses)
+                );
 
+        return SearchRequest.of(s -> {
+            s.index(INDEX_NAME)
+                    .query(q -> q.bool(boolQuery))
+                    .trackTotalHits(TRACK_TOTAL_HITS)
+                    .source(sourceConfig(options.fields()))
+                    .sort(RELEVANCE_ORDER)
+                    .size(hybrid ? lexicalWindow + semanticIds.size() : options.size());
+            // A hybrid page is cut after fusion
+            SearchCursor searchAfter = hybrid ? null : options.searchAfter();
+            if (searchAfter != null) {
+                s.searchAfter(FieldValue.of(searchAfter.score()), FieldValue.of(searchAfter.productId()));
+            } else if (!hybrid && options.from() > 0) {
+                s.from(options.from());
+            }
+            FacetSelection selection = options.selection();
+            if (!selection.isEmpty()) {
+                s.postFilter(selectionFilter(selection.categories(), selection.brands()));
+            }
+            if (options.facets()) {
+                s.aggregations(selection.isEmpty()
+                        ? facetAggregations(options.facetSize())
+                        : disjunctiveFacetAggregations(options.facetSize(), selection));
+            }
+            return s;
+        });
+    }
 
-        BoolQuery boolQuery = BoolQuery.of(b -> b
-                .must(mustClauses)
-                .filter(filterClauses)
+    /**
+     * Suggest-only follow-up for a query that found nothing: no hits, no counting, just the
+     * {@code spell-check} term suggester over the query text.
+     */
+    public SearchRequest buildSpellCheckRequest(UnderstoodQuery understoodQuery) {
+        final String originalQuery = String.join(" ", understoodQuery.preprocessedQuery().tokens());
+        return SearchRequest.of(s -> s
+                .index(INDEX_NAME)
+                .size(0)
+                .trackTotalHits(t -> t.enabled(false))
+                .suggest(sug -> sug.text(originalQuery).suggesters(SPELL_CHECK))
         );
+    }
 
-        log.info("Constructed ES Query DSL: {}", boolQuery.toString());
+    private static SourceConfig sourceConfig(List<String> fields) {
+        if (fields.isEmpty()) {
+            return DEFAULT_SOURCE;
+        }
+        return SourceConfig.of(s -> s.filter(f -> f.includes(fields).excludes(SOURCE_EXCLUDES)));
+    }
 
-        Aggregation categoryAgg = Aggregation.of(a -> a.terms(t -> t.field("categories").size(10)));
-        Aggregation brandAgg = Aggregation.of(a -> a.terms(t -> t.field("brand").size(10)));
-        Suggester didYouMeanSuggester = Suggester.of(sug -> sug.text(originalQuery).suggesters("spell-check", fs -> fs.term(t -> t.field("name"))));
+    private static Map<String, Aggregation> facetAggregations(int size) {
+        return FACET_AGGREGATIONS.computeIfAbsent(size, facetSize -> {
+            Map<String, Aggregation> aggregations = new LinkedHashMap<>();
+            aggregations.put("by_category", Aggregation.of(a -> a.terms(t -> t.field("categories").size(facetSize))));
+            aggregations.put("by_brand", Aggregation.of(a -> a.terms(t -> t.field("brand").size(facetSize))));
+            return Collections.unmodifiableMap(aggregations);
+        });
+    }
 
-        return SearchRequest.of(s -> s
-                .index(indexName)
-                .query(q -> q.bool(boolQuery))
-                .aggregations("by_category", categoryAgg)
-                .aggregations("by_brand", brandAgg)
-                .suggest(didYouMeanSuggester)
-        );
+    /**
+     * Multi-select facets in one request: the selections go into {@code post_filter}, so they narrow
+     * the hits but not the aggregations, and each facet is counted over the matches narrowed by the
+     * other facets' selections only.
+     */
+    private static Map<String, Aggregation> disjunctiveFacetAggregations(int size, FacetSelection selection) {
+        Map<String, Aggregation> aggregations = new LinkedHashMap<>();
+        aggregations.put("by_category", facet("categories", size, selectionFilter(List.of(), selection.brands())));
+        aggregations.put("by_brand", facet("brand", size, selectionFilter(selection.categories(), List.of())));
+        return aggregations;
+    }
+
+    private static Aggregation facet(String field, int size, Query otherSelections) {
+        Aggregation terms = Aggregation.of(a -> a.terms(t -> t.field(field).size(size)));
+        if (otherSelections == null) {
+            return terms;
+        }
+        return Aggregation.of(a -> a.filter(otherSelections).aggregations(FACET_VALUES, terms));
+    }
+
+    // Brands outside the dictionary (e.g. an organisation from the remote NER) are matched case-insensitively
+    private Query brandFilter(String value) {
+        int brandId = catalogDictionary.brandId(value);
+        if (brandId > CatalogDictionary.PRIVATE_LABEL) {
+            return brandFilters[brandId];
+        }
+        return TermQuery.of(t -> t.field("brand").value(value).caseInsensitive(true))._toQuery();
+    }
+
+    // One terms clause per facet with a selection (any of its values); null when nothing is selected
+    private static Query selectionFilter(List<String> categories, List<String> brands) {
+        List<Query> clauses = new ArrayList<>(2);
+        if (!categories.isEmpty()) {
+            clauses.add(termsQuery("categories", categories));
+        }
+        if (!brands.isEmpty()) {
+            clauses.add(termsQuery("brand", brands));
+        }
+        return switch (clauses.size()) {
+            case 0 -> null;
+            case 1 -> clauses.get(0);
+            default -> BoolQuery.of(b -> b.filter(clauses))._toQuery();
+        };
+    }
+
+    private static Query termsQuery(String field, List<String> values) {
+        List<FieldValue> terms = values.stream().map(FieldValue::of).toList();
+        return TermsQuery.of(t -> t.field(field).terms(v -> v.value(terms)))._toQuery();
+    }
+
+    // The query's tokens outside every entity span, without stop words. Spans rather than values:
+    // an entity's value is its canonical spelling ("annie's", "newman's own"), not the query's tokens.
+    private static String residualText(String normalizedQuery, List<Entity> entities) {
+        StringBuilder residual = new StringBuilder();
+        int tokenStart = -1;
+        for (int i = 0; i <= normalizedQuery.length(); i++) {
+            boolean boundary = i == normalizedQuery.length() || Character.isWhitespace(normalizedQuery.charAt(i));
+            if (!boundary && tokenStart < 0) {
+                tokenStart = i;
+            } else if (boundary && tokenStart >= 0) {
+                String token = normalizedQuery.substring(tokenStart, i);
+                if (!STOP_WORDS.contains(token) && !isEntityToken(token, tokenStart, i, entities)) {
+                    if (!residual.isEmpty()) {
+                        residual.append(' ');
+                    }
+                    residual.append(token);
+                }
+                tokenStart = -1;
+            }
+        }
+        return residual.toString();
+    }
+
+    // Queries carry a handful of entities, so a scan beats building a set per request. Entities
+    // without offsets (remote NER text not found in the query) match by normalized word.
+    private static boolean isEntityToken(String token, int start, int end, List<Entity> entities) {
+        for (Entity entity : entities) {
+            if (entity.startPosition() >= 0 ? entity.startPosition() < end && start < entity.endPosition()
+                    : QueryNormalizer.tokenize(QueryNormalizer.normalize(entity.value())).contains(token)) {
+                return true;
+            }
+        }
+        return false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,188 @@
+package com.madhu.qou.service.spell;
+
+import com.madhu.qou.dto.Entity;
+import com.madhu.qou.dto.PreprocessedQuery;
+import com.madhu.qou.dto.UnderstoodQuery;
+import com.madhu.qou.dto.domain.Product;
+import com.madhu.qou.service.DataSeeder;
+import com.madhu.qou.service.catalog.CatalogDictionary;
+import com.madhu.qou.service.ingestion.QueryNormalizer;
+import com.madhu.qou.service.rewriting.QueryRewriteService;
+import com.opencsv.exceptions.CsvValidationException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * In-process spelling correction over the catalog vocabulary, in place of the Elasticsearch
+ * term suggester when {@code spell.mode} is {@code local} or {@code correct-first}.
+ * <p>
+ * The vocabulary is every token of the indexed product names and aisles plus the catalog's
+ * brands and departments, weighted by how often it occurs, in a {@link SymSpellIndex}. A query
+ * token is left alone when it is in the vocabulary, a stop word, shorter than three characters,
+ * contains a digit or lies inside an entity span; any other token becomes its best candidate
+ * within one edit (up to four characters) or two.
+ */
+@Component
+@Slf4j
+public class SpellCorrector {
+
+    private static final int MAX_EDIT_DISTANCE = 2;
+    private static final int PREFIX_LENGTH = 7;
+    private static final int MIN_TOKEN_LENGTH = 3;
+    // Tokens up to this long get at most one edit, longer ones two
+    private static final int SHORT_TOKEN_LENGTH = 4;
+
+    private record Replacement(int start, int end, String text) {}
+
+    private final DataSeeder dataSeeder;
+    private final CatalogDictionary catalogDictionary;
+    private final SpellMode spellMode;
+    private volatile SymSpellIndex index;
+
+    @Autowired
+    public SpellCorrector(DataSeeder dataSeeder, CatalogDictionary catalogDictionary,
+                          @Value("${spell.mode:elasticsearch}") SpellMode spellMode) {
+        this.dataSeeder = dataSeeder;
+        this.catalogDictionary = catalogDictionary;
+        this.spellMode = spellMode;
+    }
+
+    // Over a fixed product list, for tests
+    SpellCorrector(List<Product> products, CatalogDictionary catalogDictionary) {
+        this(null, catalogDictionary, SpellMode.LOCAL);
+        this.index = buildIndex(products);
+    }
+
+    @PostConstruct
+    void buildIfSelected() throws IOException, CsvValidationException {
+        if (spellMode != SpellMode.ELASTICSEARCH) {
+            build();
+        }
+    }
+
+    /**
+     * (Re)builds the vocabulary from products.csv and swaps it in.
+     */
+    public synchronized void build() throws IOException, CsvValidationException {
+        long start = System.nanoTime();
+        SymSpellIndex built = buildIndex(dataSeeder.readProducts());
+        index = built;
+        log.info("Built spelling index: {} words, {} deletes in {} ms.",
+                built.size(), built.deleteCount(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private SymSpellIndex buildIndex(List<Product> products) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Product product : products) {
+            addTokens(counts, product.name());
+            product.categories().forEach(category -> addTokens(counts, category));
+        }
+        catalogDictionary.knownBrands().forEach(brand -> addTokens(counts, brand));
+        catalogDictionary.departmentNames().forEach(department -> addTokens(counts, department));
+        return SymSpellIndex.build(counts, MAX_EDIT_DISTANCE, PREFIX_LENGTH);
+    }
+
+    private static void addTokens(Map<String, Long> counts, String text) {
+        for (String token : QueryNormalizer.tokenize(QueryNormalizer.normalize(text))) {
+            counts.merge(token, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * The query with its misspelled tokens corrected and the entity offsets moved to match, or
+     * empty if nothing needed correcting or the vocabulary has not been built.
+     */
+    public Optional<UnderstoodQuery> correct(UnderstoodQuery understoodQuery) {
+        SymSpellIndex current = index;
+        if (current == null) {
+            return Optional.empty();
+        }
+        PreprocessedQuery preprocessedQuery = understoodQuery.preprocessedQuery();
+        String query = preprocessedQuery.normalizedQuery();
+        List<Entity> entities = understoodQuery.entities();
+
+        // Same whitespace split as QueryNormalizer.tokenize, keeping each token's offsets
+        List<Replacement> replacements = new ArrayList<>();
+        int tokenStart = -1;
+        for (int i = 0; i <= query.length(); i++) {
+            boolean boundary = i == query.length() || Character.isWhitespace(query.charAt(i));
+            if (!boundary && tokenStart < 0) {
+                tokenStart = i;
+            } else if (boundary && tokenStart >= 0) {
+                String replacement = correctToken(current, query.substring(tokenStart, i), tokenStart, i, entities);
+                if (replacement != null) {
+                    replacements.add(new Replacement(tokenStart, i, replacement));
+                }
+                tokenStart = -1;
+            }
+        }
+        if (replacements.isEmpty()) {
+            return Optional.empty();
+        }
+
+        StringBuilder corrected = new StringBuilder(query.length() + 8);
+        int copiedUpTo = 0;
+        for (Replacement replacement : replacements) {
+            corrected.append(query, copiedUpTo, replacement.start()).append(replacement.text());
+            copiedUpTo = replacement.end();
+        }
+        corrected.append(query, copiedUpTo, query.length());
+
+        List<Entity> shifted = new ArrayList<>(entities.size());
+        for (Entity entity : entities) {
+            int shift = 0;
+            for (Replacement replacement : replacements) {
+                if (entity.startPosition() >= 0 && replacement.end() <= entity.startPosition()) {
+                    shift += replacement.text().length() - (replacement.end() - replacement.start());
+                }
+            }
+            shifted.add(shift == 0 ? entity : new Entity(entity.value(), entity.type(), entity.startPosition() + shift, entity.endPosition() + shift));
+        }
+        return Optional.of(new UnderstoodQuery(
+                new PreprocessedQuery(preprocessedQuery.originalQuery(), corrected.toString(), preprocessedQuery.userContext()),
+                understoodQuery.intent(), shifted));
+    }
+
+    /**
+     * The corrected query text as a did-you-mean suggestion, or empty if there is nothing to suggest.
+     */
+    public Optional<String> didYouMean(UnderstoodQuery understoodQuery) {
+        return correct(understoodQuery).map(corrected -> String.join(" ", corrected.preprocessedQuery().tokens()));
+    }
+
+    // The token's correction, or null to keep it
+    private static String correctToken(SymSpellIndex index, String token, int start, int end, List<Entity> entities) {
+        if (token.length() < MIN_TOKEN_LENGTH || QueryRewriteService.STOP_WORDS.contains(token)
+                || hasDigit(token) || index.contains(token) || isEntityToken(token, start, end, entities)) {
+            return null;
+        }
+        String correction = index.correct(token, token.length() <= SHORT_TOKEN_LENGTH ? 1 : MAX_EDIT_DISTANCE);
+        return correction == null || correction.equals(token) ? null : correction;
+    }
+
+    // Inside an entity span; entities without offsets (remote NER text not found in the query) match by word
+    private static boolean isEntityToken(String token, int start, int end, List<Entity> entities) {
+        for (Entity entity : entities) {
+            if (entity.startPosition() >= 0 ? entity.startPosition() < end && start < entity.endPosition()
+                    : Arrays.asList(entity.value().toLowerCase(Locale.ROOT).split("\\s+")).contains(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasDigit(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (Character.isDigit(token.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
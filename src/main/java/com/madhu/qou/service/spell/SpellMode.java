@@ -0,0 +1,13 @@
+package com.madhu.qou.service.spell;
+
+/**
+ * Where the did-you-mean suggestion comes from (property {@code spell.mode}).
+ */
+public enum SpellMode {
+    // Elasticsearch term suggester, as a follow-up request after a zero-hit search (the original behaviour)
+    ELASTICSEARCH,
+    // In-process SpellCorrector after a zero-hit search; no follow-up request
+    LOCAL,
+    // In-process SpellCorrector before searching; a misspelled query is searched as corrected
+    CORRECT_FIRST
+}
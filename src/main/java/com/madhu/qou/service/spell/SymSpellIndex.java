@@ -0,0 +1,181 @@
+package com.madhu.qou.service.spell;
+
+import java.util.*;
+
+/**
+ * Immutable symmetric-delete (SymSpell) index over a weighted vocabulary.
+ * <p>
+ * Every word's prefix is expanded once, at build time, into all strings reachable by up to
+ * {@code maxEditDistance} deletions. A lookup expands the misspelled word the same way and only
+ * verifies the words that share a delete with it, so finding candidates costs a few dozen binary
+ * searches instead of an edit distance against every word. Deletes are not kept as strings: each
+ * is packed with its word id as {@code (hash << 32) | id} into one sorted {@code long[]}; a hash
+ * collision only adds a candidate that then fails verification.
+ */
+public final class SymSpellIndex {
+
+    private final String[] words;
+    private final long[] counts;
+    private final long[] deletes;
+    private final int maxEditDistance;
+    private final int prefixLength;
+
+    private SymSpellIndex(String[] words, long[] counts, long[] deletes, int maxEditDistance, int prefixLength) {
+        this.words = words;
+        this.counts = counts;
+        this.deletes = deletes;
+        this.maxEditDistance = maxEditDistance;
+        this.prefixLength = prefixLength;
+    }
+
+    /**
+     * Indexes every word with its occurrence count. Only the first {@code prefixLength}
+     * characters of a word are expanded, which bounds the index size for long words.
+     */
+    public static SymSpellIndex build(Map<String, Long> wordCounts, int maxEditDistance, int prefixLength) {
+        String[] words = wordCounts.keySet().toArray(String[]::new);
+        Arrays.sort(words);
+        long[] counts = new long[words.length];
+        long[] deletes = new long[words.length * 8];
+        int size = 0;
+        Set<String> wordDeletes = new HashSet<>();
+        for (int id = 0; id < words.length; id++) {
+            counts[id] = wordCounts.get(words[id]);
+            wordDeletes.clear();
+            collectDeletes(prefix(words[id], prefixLength), maxEditDistance, wordDeletes);
+            if (size + wordDeletes.size() > deletes.length) {
+                deletes = Arrays.copyOf(deletes, Math.max(deletes.length * 2, size + wordDeletes.size()));
+            }
+            for (String delete : wordDeletes) {
+                deletes[size++] = ((long) delete.hashCode() << 32) | id;
+            }
+        }
+        deletes = Arrays.copyOf(deletes, size);
+        Arrays.sort(deletes);
+        return new SymSpellIndex(words, counts, deletes, maxEditDistance, prefixLength);
+    }
+
+    public int size() {
+        return words.length;
+    }
+
+    public int deleteCount() {
+        return deletes.length;
+    }
+
+    public boolean contains(String word) {
+        return Arrays.binarySearch(words, word) >= 0;
+    }
+
+    /**
+     * The most likely word within {@code maxDistance} edits (optimal string alignment, so a
+     * transposition is one edit) of {@code word}: fewest edits, then most frequent, then
+     * alphabetical. A vocabulary word is its own correction; {@code null} if nothing is close enough.
+     */
+    public String correct(String word, int maxDistance) {
+        if (contains(word)) {
+            return word;
+        }
+        int limit = Math.min(maxDistance, maxEditDistance);
+        Set<String> wordDeletes = new HashSet<>();
+        collectDeletes(prefix(word, prefixLength), limit, wordDeletes);
+
+        String best = null;
+        int bestDistance = limit + 1;
+        long bestCount = -1;
+        for (String delete : wordDeletes) {
+            int hash = delete.hashCode();
+            for (int i = lowerBound((long) hash << 32); i < deletes.length && (int) (deletes[i] >> 32) == hash; i++) {
+                int id = (int) deletes[i];
+                String candidate = words[id];
+                int cutoff = Math.min(bestDistance, limit);
+                if (Math.abs(candidate.length() - word.length()) > cutoff) {
+                    continue;
+                }
+                int distance = distance(word, candidate, cutoff + 1);
+                if (distance > cutoff) {
+                    continue;
+                }
+                if (distance < bestDistance
+                        || distance == bestDistance && (counts[id] > bestCount || counts[id] == bestCount && candidate.compareTo(best) < 0)) {
+                    best = candidate;
+                    bestDistance = distance;
+                    bestCount = counts[id];
+                }
+            }
+        }
+        return best;
+    }
+
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = deletes.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (deletes[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String prefix(String word, int prefixLength) {
+        return word.length() > prefixLength ? word.substring(0, prefixLength) : word;
+    }
+
+    // The word and everything reachable from it by up to maxDeletes single-character deletions
+    private static void collectDeletes(String word, int maxDeletes, Set<String> into) {
+        into.add(word);
+        List<String> frontier = List.of(word);
+        for (int edit = 0; edit < maxDeletes && !frontier.isEmpty(); edit++) {
+            List<String> next = new ArrayList<>();
+            for (String current : frontier) {
+                if (current.length() <= 1) {
+                    continue;
+                }
+                for (int i = 0; i < current.length(); i++) {
+                    String delete = current.substring(0, i) + current.substring(i + 1);
+                    if (into.add(delete)) {
+                        next.add(delete);
+                    }
+                }
+            }
+            frontier = next;
+        }
+    }
+
+    /**
+     * Optimal string alignment distance, or {@code limit} as soon as it is certain to reach it.
+     */
+    static int distance(String a, String b, int limit) {
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin >= limit) {
+                return limit;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], limit);
+    }
+}
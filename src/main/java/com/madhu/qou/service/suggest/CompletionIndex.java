@@ -0,0 +1,287 @@
+package com.madhu.qou.service.suggest;
+
+import com.madhu.qou.service.ingestion.QueryNormalizer;
+
+import java.util.*;
+
+/**
+ * Immutable, packed radix trie over normalized suggestion keys with the top-k suggestions of
+ * every node precomputed, so a lookup is a walk down at most {@code prefix.length()} characters
+ * followed by a copy of an already-ranked list.
+ * <p>
+ * Everything lives in a handful of flat arrays: edge labels in one {@code char[]}, node fields in
+ * parallel {@code int[]}s (children of a node are contiguous and sorted by first label char), and
+ * the per-node top-k lists in one {@code int[]} of suggestion ranks. Suggestions are numbered in
+ * rank order (weight descending, then shorter text, then text), so "best k" is simply "k smallest".
+ */
+public final class CompletionIndex {
+
+    /**
+     * One suggestable text and its popularity weight.
+     */
+    public record Entry(String text, long weight) {}
+
+    private static final Comparator<Entry> RANK_ORDER = Comparator
+            .comparingLong(Entry::weight).reversed()
+            .thenComparingInt(entry -> entry.text().length())
+            .thenComparing(Entry::text);
+
+    private final String[] texts;
+    private final char[] labels;
+    private final int[] labelStart;
+    private final int[] labelLength;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final int[] topStart;
+    private final int[] topLength;
+    private final int[] top;
+    private final int k;
+
+    private CompletionIndex(String[] texts, char[] labels, int[] labelStart, int[] labelLength, int[] firstChild,
+                            int[] childCount, int[] topStart, int[] topLength, int[] top, int k) {
+        this.texts = texts;
+        this.labels = labels;
+        this.labelStart = labelStart;
+        this.labelLength = labelLength;
+        this.firstChild = firstChild;
+        this.childCount = childCount;
+        this.topStart = topStart;
+        this.topLength = topLength;
+        this.top = top;
+        this.k = k;
+    }
+
+    /**
+     * Keys are the entry texts normalized like queries, with whitespace runs collapsed. Entries
+     * with the same text are merged, keeping the highest weight.
+     *
+     * @param k how many suggestions to precompute per node; lookups can return at most this many
+     */
+    public static CompletionIndex build(Collection<Entry> entries, int k) {
+        Map<String, Entry> byText = new HashMap<>();
+        for (Entry entry : entries) {
+            byText.merge(entry.text(), entry, (a, b) -> a.weight() >= b.weight() ? a : b);
+        }
+        List<Entry> ranked = new ArrayList<>(byText.values());
+        ranked.sort(RANK_ORDER);
+
+        TreeMap<String, List<Integer>> byKey = new TreeMap<>();
+        for (int rank = 0; rank < ranked.size(); rank++) {
+            String key = key(ranked.get(rank).text(), false);
+            if (!key.isEmpty()) {
+                byKey.computeIfAbsent(key, ignored -> new ArrayList<>()).add(rank);
+            }
+        }
+        String[] texts = ranked.stream().map(Entry::text).toArray(String[]::new);
+        return new Builder(byKey, k).build(texts);
+    }
+
+    /**
+     * Up to {@code size} suggestions whose key starts with the normalized prefix, best first.
+     * A trailing space in the prefix is kept, so "organic " does not match "organics".
+     */
+    public List<String> suggest(String prefix, int size) {
+        String key = key(prefix, true);
+        if (key.isEmpty() || labelStart.length == 0) {
+            return List.of();
+        }
+        int node = 0;
+        int pos = 0;
+        while (true) {
+            int start = labelStart[node];
+            for (int i = 0; i < labelLength[node]; i++, pos++) {
+                if (pos == key.length()) {
+                    return collect(node, size);
+                }
+                if (labels[start + i] != key.charAt(pos)) {
+                    return List.of();
+                }
+            }
+            if (pos == key.length()) {
+                return collect(node, size);
+            }
+            node = child(node, key.charAt(pos));
+            if (node < 0) {
+                return List.of();
+            }
+        }
+    }
+
+    public int size() {
+        return texts.length;
+    }
+
+    public int nodeCount() {
+        return labelStart.length;
+    }
+
+    private List<String> collect(int node, int size) {
+        int n = Math.min(Math.min(size, k), topLength[node]);
+        List<String> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            result.add(texts[top[topStart[node] + i]]);
+        }
+        return result;
+    }
+
+    // Binary search over the contiguous, first-char-sorted children
+    private int child(int node, char c) {
+        int lo = firstChild[node];
+        int hi = lo + childCount[node] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char first = labels[labelStart[mid]];
+            if (first < c) {
+                lo = mid + 1;
+            } else if (first > c) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    static String key(String text, boolean keepTrailingSpace) {
+        String normalized = QueryNormalizer.normalize(text);
+        StringBuilder key = new StringBuilder(normalized.length() + 1);
+        boolean pendingSpace = false;
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = key.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    key.append(' ');
+                    pendingSpace = false;
+                }
+                key.append(c);
+            }
+        }
+        if (keepTrailingSpace && key.length() > 0 && !text.isEmpty() && Character.isWhitespace(text.charAt(text.length() - 1))) {
+            key.append(' ');
+        }
+        return key.toString();
+    }
+
+    // Lays out the trie from the sorted keys; children of a node are reserved as one block before recursing
+    private static final class Builder {
+
+        private final String[] keys;
+        private final int[][] ranksByKey;
+        private final int k;
+        private final StringBuilder labels = new StringBuilder();
+        private int[] labelStart, labelLength, firstChild, childCount, topStart, topLength;
+        private int[] top = new int[1024];
+        private int topSize;
+        private int nodeCount;
+
+        Builder(SortedMap<String, List<Integer>> byKey, int k) {
+            this.keys = byKey.keySet().toArray(String[]::new);
+            this.ranksByKey = byKey.values().stream()
+                    .map(ranks -> ranks.stream().mapToInt(Integer::intValue).toArray())
+                    .toArray(int[][]::new);
+            this.k = k;
+            int capacity = Math.max(16, keys.length * 2);
+            labelStart = new int[capacity];
+            labelLength = new int[capacity];
+            firstChild = new int[capacity];
+            childCount = new int[capacity];
+            topStart = new int[capacity];
+            topLength = new int[capacity];
+        }
+
+        CompletionIndex build(String[] texts) {
+            if (keys.length > 0) {
+                allocate(1);
+                fill(0, 0, keys.length, 0);
+            }
+            return new CompletionIndex(texts, labels.toString().toCharArray(),
+                    Arrays.copyOf(labelStart, nodeCount), Arrays.copyOf(labelLength, nodeCount),
+                    Arrays.copyOf(firstChild, nodeCount), Arrays.copyOf(childCount, nodeCount),
+                    Arrays.copyOf(topStart, nodeCount), Arrays.copyOf(topLength, nodeCount),
+                    Arrays.copyOf(top, topSize), k);
+        }
+
+        // Node covers keys[lo, hi), all of which share their first `depth` chars
+        private int[] fill(int node, int lo, int hi, int depth) {
+            // Keys are sorted, so the common prefix of the first and last is common to all
+            String first = keys[lo];
+            String last = keys[hi - 1];
+            int end = depth;
+            while (end < first.length() && end < last.length() && first.charAt(end) == last.charAt(end)) {
+                end++;
+            }
+            labelStart[node] = labels.length();
+            labelLength[node] = end - depth;
+            labels.append(first, depth, end);
+
+            int[] best = new int[0];
+            int next = lo;
+            if (first.length() == end) {
+                best = smallest(ranksByKey[lo], best);
+                next++;
+            }
+
+            int groups = 0;
+            for (int i = next; i < hi; ) {
+                char c = keys[i].charAt(end);
+                while (i < hi && keys[i].charAt(end) == c) {
+                    i++;
+                }
+                groups++;
+            }
+            int base = allocate(groups);
+            firstChild[node] = base;
+            childCount[node] = groups;
+
+            int child = base;
+            for (int i = next; i < hi; child++) {
+                int groupStart = i;
+                char c = keys[i].charAt(end);
+                while (i < hi && keys[i].charAt(end) == c) {
+                    i++;
+                }
+                best = smallest(best, fill(child, groupStart, i, end));
+            }
+
+            topStart[node] = topSize;
+            topLength[node] = best.length;
+            ensureTopCapacity(best.length);
+            System.arraycopy(best, 0, top, topSize, best.length);
+            topSize += best.length;
+            return best;
+        }
+
+        // The k smallest ranks of two sorted arrays
+        private int[] smallest(int[] a, int[] b) {
+            int[] merged = new int[Math.min(k, a.length + b.length)];
+            int i = 0, j = 0;
+            for (int n = 0; n < merged.length; n++) {
+                merged[n] = j == b.length || (i < a.length && a[i] < b[j]) ? a[i++] : b[j++];
+            }
+            return merged;
+        }
+
+        private int allocate(int count) {
+            int base = nodeCount;
+            nodeCount += count;
+            if (nodeCount > labelStart.length) {
+                int capacity = Math.max(nodeCount, labelStart.length * 2);
+                labelStart = Arrays.copyOf(labelStart, capacity);
+                labelLength = Arrays.copyOf(labelLength, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                childCount = Arrays.copyOf(childCount, capacity);
+                topStart = Arrays.copyOf(topStart, capacity);
+                topLength = Arrays.copyOf(topLength, capacity);
+            }
+            return base;
+        }
+
+        private void ensureTopCapacity(int extra) {
+            if (topSize + extra > top.length) {
+                top = Arrays.copyOf(top, Math.max(topSize + extra, top.length * 2));
+            }
+        }
+    }
+}
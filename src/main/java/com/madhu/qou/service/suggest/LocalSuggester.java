@@ -0,0 +1,123 @@
+package com.madhu.qou.service.suggest;
+
+import com.madhu.qou.service.CatalogIndexUpdatedEvent;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.RFC4180ParserBuilder;
+import com.opencsv.exceptions.CsvValidationException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.*;
+
+/**
+ * Serves type-ahead from an in-memory {@link CompletionIndex} built from products.csv.
+ * <p>
+ * The index is built off the startup path and rebuilt whenever the seeder reports that
+ * {@code suggestions_index} changed; the new index replaces the old one with a single volatile
+ * write, so readers never see a half-built structure. Until the first build completes (or if it
+ * fails, or {@code suggest.local.enabled=false}) {@link #suggest} answers empty and callers fall
+ * back to the Elasticsearch completion suggester.
+ */
+@Component
+@Slf4j
+public class LocalSuggester {
+
+    static final String SUGGESTIONS_ALIAS = "suggestions_index";
+
+    private final boolean enabled;
+    private final String popularityLocation;
+    private final int topK;
+    private volatile CompletionIndex index;
+
+    public LocalSuggester(@Value("${suggest.local.enabled:true}") boolean enabled,
+                          @Value("${suggest.local.popularity:}") String popularityLocation,
+                          @Value("${suggest.local.top-k:10}") int topK) {
+        this.enabled = enabled;
+        this.popularityLocation = popularityLocation;
+        this.topK = topK;
+    }
+
+    @PostConstruct
+    void buildInBackground() {
+        if (enabled) {
+            Thread.ofVirtual().name("local-suggester-build").start(this::rebuild);
+        }
+    }
+
+    @EventListener
+    public void onCatalogUpdated(CatalogIndexUpdatedEvent event) {
+        if (enabled && SUGGESTIONS_ALIAS.equals(event.alias())) {
+            Thread.ofVirtual().name("local-suggester-rebuild").start(this::rebuild);
+        }
+    }
+
+    /**
+     * The top {@code suggest.local.top-k} local suggestions for the prefix, or empty when there is
+     * no local index to answer from.
+     */
+    public Optional<List<String>> suggest(String prefix) {
+        CompletionIndex current = index;
+        return current == null ? Optional.empty() : Optional.of(current.suggest(prefix, topK));
+    }
+
+    /** Suggestions per prefix; the Elasticsearch fallback asks for as many. */
+    public int topK() {
+        return topK;
+    }
+
+    /**
+     * Builds a new index from products.csv and swaps it in. A failed build keeps the current one.
+     */
+    public synchronized void rebuild() {
+        long startNanos = System.nanoTime();
+        try {
+            Map<String, Long> popularity = loadPopularity();
+            List<CompletionIndex.Entry> entries = new ArrayList<>();
+            try (CSVReader reader = openCsv(new ClassPathResource("data/products.csv"))) {
+                reader.readNext(); // Skip header
+                String[] line;
+                while ((line = reader.readNext()) != null) {
+                    entries.add(new CompletionIndex.Entry(line[1], popularity.getOrDefault(line[0], 1L)));
+                }
+            }
+            CompletionIndex built = CompletionIndex.build(entries, topK);
+            index = built;
+            log.info("Built local completion index: {} suggestions, {} nodes in {} ms.",
+                    built.size(), built.nodeCount(), (System.nanoTime() - startNanos) / 1_000_000);
+        } catch (IOException | CsvValidationException | RuntimeException e) {
+            log.error("Could not build local completion index; /suggest keeps using {}.",
+                    index == null ? "Elasticsearch" : "the previous index", e);
+        }
+    }
+
+    // Optional product_id,weight CSV (e.g. order counts); products not listed weigh 1
+    private Map<String, Long> loadPopularity() throws IOException, CsvValidationException {
+        if (popularityLocation.isBlank()) {
+            return Map.of();
+        }
+        Map<String, Long> popularity = new HashMap<>();
+        try (CSVReader reader = openCsv(new DefaultResourceLoader().getResource(popularityLocation))) {
+            reader.readNext(); // Skip header
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                popularity.put(line[0], Long.parseLong(line[1].trim()));
+            }
+        }
+        return popularity;
+    }
+
+    private static CSVReader openCsv(Resource resource) throws IOException {
+        return new CSVReaderBuilder(new InputStreamReader(resource.getInputStream()))
+                .withCSVParser(new RFC4180ParserBuilder().build())
+                .build();
+    }
+}
@@ -0,0 +1,386 @@
+package com.madhu.qou.service.vector;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+/**
+ * Immutable HNSW graph (Malkov and Yashunin, 2016) over unit-length vectors quantized to int8,
+ * for approximate maximum inner product (= cosine) search.
+ * <p>
+ * Each vector is stored as bytes with its own scale ({@link WordVectors#quantize}), a quarter of
+ * the memory of floats; similarities are integer dot products times the two scales, and queries
+ * are quantized the same way. Every node is linked to up to {@code m} neighbours per upper layer
+ * and {@code 2m} on the bottom one, chosen with the paper's diversity heuristic. Node ids are the
+ * positions of the vectors given to {@link #build}.
+ */
+public final class HnswIndex {
+
+    private final int dimensions;
+    private final byte[] vectors;
+    private final float[] scales;
+    // links[node][layer]: neighbour count in slot 0, then the neighbours
+    private final int[][][] links;
+    private final int entryPoint;
+    private final int maxLayer;
+
+    private HnswIndex(int dimensions, byte[] vectors, float[] scales, int[][][] links, int entryPoint, int maxLayer) {
+        this.dimensions = dimensions;
+        this.vectors = vectors;
+        this.scales = scales;
+        this.links = links;
+        this.entryPoint = entryPoint;
+        this.maxLayer = maxLayer;
+    }
+
+    /**
+     * Builds the graph by inserting the vectors in order. {@code efConstruction} is the candidate
+     * list size of each insertion: larger builds slower and finds better neighbours.
+     */
+    public static HnswIndex build(float[][] vectors, int m, int efConstruction, long seed) {
+        return new Builder(vectors, m, efConstruction, seed).build();
+    }
+
+    public int size() {
+        return scales.length;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /** Heap bytes of the vectors and the graph. */
+    public long bytes() {
+        long bytes = vectors.length + 4L * scales.length;
+        for (int[][] layers : links) {
+            for (int[] layer : layers) {
+                bytes += 4L * layer.length;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * The (approximately) {@code k} nearest nodes to the query, best first. {@code ef} is the
+     * candidate list size on the bottom layer, at least {@code k}: larger is slower and recalls more.
+     */
+    public int[] search(float[] query, int k, int ef) {
+        if (size() == 0 || k <= 0) {
+            return new int[0];
+        }
+        Query q = query(query);
+        int entry = entryPoint;
+        float entrySimilarity = similarity(q, entry);
+        for (int layer = maxLayer; layer > 0; layer--) {
+            entry = greedy(q, entry, entrySimilarity, layer);
+            entrySimilarity = similarity(q, entry);
+        }
+        NodeHeap nearest = searchLayer(q, entry, entrySimilarity, Math.max(ef, k), 0);
+        return nearest.bestFirst(k);
+    }
+
+    /** The exact {@code k} nearest nodes by the same quantized similarity, best first; for measuring recall. */
+    public int[] exactSearch(float[] query, int k) {
+        Query q = query(query);
+        NodeHeap nearest = new NodeHeap(k + 1);
+        for (int node = 0; node < size(); node++) {
+            nearest.push(node, similarity(q, node));
+            if (nearest.size() > k) {
+                nearest.pop();
+            }
+        }
+        return nearest.bestFirst(k);
+    }
+
+    private record Query(byte[] vector, float scale) {}
+
+    private Query query(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Query has " + vector.length + " dimensions, the index " + dimensions);
+        }
+        byte[] bytes = new byte[dimensions];
+        return new Query(bytes, WordVectors.quantize(vector, bytes, 0));
+    }
+
+    private float similarity(Query query, int node) {
+        return dot(query.vector(), 0, vectors, node * dimensions, dimensions) * query.scale() * scales[node];
+    }
+
+    static int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    // Hill-climbs an upper layer to the node most similar to the query
+    private int greedy(Query query, int entry, float entrySimilarity, int layer) {
+        return greedy(links, entry, entrySimilarity, layer, node -> similarity(query, node));
+    }
+
+    private NodeHeap searchLayer(Query query, int entry, float entrySimilarity, int ef, int layer) {
+        return searchLayer(links, size(), entry, entrySimilarity, ef, layer, node -> similarity(query, node));
+    }
+
+    @FunctionalInterface
+    private interface Similarity {
+        float to(int node);
+    }
+
+    private static int greedy(int[][][] links, int entry, float entrySimilarity, int layer, Similarity similarity) {
+        int current = entry;
+        float best = entrySimilarity;
+        boolean moved = true;
+        while (moved) {
+            moved = false;
+            int[] neighbours = links[current][layer];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                float candidate = similarity.to(neighbours[i]);
+                if (candidate > best) {
+                    best = candidate;
+                    current = neighbours[i];
+                    moved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Best-first search of one layer; returns the ef most similar nodes found (a min-heap)
+    private static NodeHeap searchLayer(int[][][] links, int nodeCount, int entry, float entrySimilarity,
+                                        int ef, int layer, Similarity similarity) {
+        BitSet visited = new BitSet(nodeCount);
+        visited.set(entry);
+        NodeHeap candidates = new NodeHeap(ef * 2);  // max-heap through negated similarities
+        NodeHeap nearest = new NodeHeap(ef + 1);
+        candidates.push(entry, -entrySimilarity);
+        nearest.push(entry, entrySimilarity);
+        while (candidates.size() > 0) {
+            float candidateSimilarity = -candidates.topScore();
+            if (nearest.size() >= ef && candidateSimilarity < nearest.topScore()) {
+                break;
+            }
+            int candidate = candidates.pop();
+            int[] neighbours = links[candidate][layer];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float neighbourSimilarity = similarity.to(neighbour);
+                if (nearest.size() < ef || neighbourSimilarity > nearest.topScore()) {
+                    candidates.push(neighbour, -neighbourSimilarity);
+                    nearest.push(neighbour, neighbourSimilarity);
+                    if (nearest.size() > ef) {
+                        nearest.pop();
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    private static final class Builder {
+
+        private final int dimensions;
+        private final int m;
+        private final int efConstruction;
+        private final byte[] vectors;
+        private final float[] scales;
+        private final int[][][] links;
+        private final SplittableRandom random;
+        private final double levelFactor;
+        private int entryPoint = -1;
+        private int maxLayer = -1;
+
+        Builder(float[][] vectors, int m, int efConstruction, long seed) {
+            if (m < 2) {
+                throw new IllegalArgumentException("m must be at least 2");
+            }
+            this.dimensions = vectors.length == 0 ? 0 : vectors[0].length;
+            this.m = m;
+            this.efConstruction = Math.max(efConstruction, m);
+            this.vectors = new byte[vectors.length * dimensions];
+            this.scales = new float[vectors.length];
+            this.links = new int[vectors.length][][];
+            this.random = new SplittableRandom(seed);
+            this.levelFactor = 1 / Math.log(m);
+            for (int node = 0; node < vectors.length; node++) {
+                if (vectors[node].length != dimensions) {
+                    throw new IllegalArgumentException("Vector " + node + " has " + vectors[node].length
+                            + " dimensions, expected " + dimensions);
+                }
+                scales[node] = WordVectors.quantize(vectors[node], this.vectors, node * dimensions);
+            }
+        }
+
+        HnswIndex build() {
+            for (int node = 0; node < links.length; node++) {
+                insert(node);
+            }
+            return new HnswIndex(dimensions, vectors, scales, links, Math.max(entryPoint, 0), Math.max(maxLayer, 0));
+        }
+
+        private float similarity(int a, int b) {
+            return dot(vectors, a * dimensions, vectors, b * dimensions, dimensions) * scales[a] * scales[b];
+        }
+
+        private int capacity(int layer) {
+            return layer == 0 ? 2 * m : m;
+        }
+
+        private void insert(int node) {
+            int level = (int) (-Math.log(1 - random.nextDouble()) * levelFactor);
+            links[node] = new int[level + 1][];
+            for (int layer = 0; layer <= level; layer++) {
+                links[node][layer] = new int[capacity(layer) + 1];
+            }
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLayer = level;
+                return;
+            }
+            Similarity toNode = other -> similarity(node, other);
+            int entry = entryPoint;
+            float entrySimilarity = toNode.to(entry);
+            for (int layer = maxLayer; layer > level; layer--) {
+                entry = greedy(links, entry, entrySimilarity, layer, toNode);
+                entrySimilarity = toNode.to(entry);
+            }
+            for (int layer = Math.min(level, maxLayer); layer >= 0; layer--) {
+                NodeHeap found = searchLayer(links, links.length, entry, entrySimilarity, efConstruction, layer, toNode);
+                int[] candidates = found.bestFirst(found.size());
+                for (int neighbour : selectNeighbours(node, candidates, capacity(layer))) {
+                    append(node, neighbour, layer);
+                    connectBack(neighbour, node, layer);
+                }
+                entry = candidates[0];
+                entrySimilarity = toNode.to(entry);
+            }
+            if (level > maxLayer) {
+                entryPoint = node;
+                maxLayer = level;
+            }
+        }
+
+        // The paper's heuristic: take candidates best first, skipping any that is more similar
+        // to an already selected neighbour than to the base node, so links spread out
+        private int[] selectNeighbours(int base, int[] candidates, int max) {
+            NodeHeap bySimilarity = new NodeHeap(candidates.length);
+            for (int candidate : candidates) {
+                bySimilarity.push(candidate, similarity(base, candidate));
+            }
+            int[] selected = new int[max];
+            int count = 0;
+            for (int candidate : bySimilarity.bestFirst(candidates.length)) {
+                if (count == max) {
+                    break;
+                }
+                float toBase = similarity(base, candidate);
+                boolean diverse = true;
+                for (int i = 0; i < count && diverse; i++) {
+                    diverse = similarity(candidate, selected[i]) <= toBase;
+                }
+                if (diverse) {
+                    selected[count++] = candidate;
+                }
+            }
+            return Arrays.copyOf(selected, count);
+        }
+
+        private void append(int node, int neighbour, int layer) {
+            int[] list = links[node][layer];
+            list[++list[0]] = neighbour;
+        }
+
+        // Links the neighbour back to the new node, re-selecting its neighbours when it is full
+        private void connectBack(int neighbour, int node, int layer) {
+            int[] list = links[neighbour][layer];
+            if (list[0] < list.length - 1) {
+                list[++list[0]] = node;
+                return;
+            }
+            int[] candidates = Arrays.copyOfRange(list, 1, list.length + 1);
+            candidates[candidates.length - 1] = node;
+            int[] kept = selectNeighbours(neighbour, candidates, list.length - 1);
+            list[0] = kept.length;
+            System.arraycopy(kept, 0, list, 1, kept.length);
+        }
+    }
+
+    // Min-heap of nodes by score; push negated scores for a max-heap
+    private static final class NodeHeap {
+
+        private int[] nodes;
+        private float[] scores;
+        private int size;
+
+        NodeHeap(int capacity) {
+            nodes = new int[Math.max(capacity, 1)];
+            scores = new float[nodes.length];
+        }
+
+        int size() {
+            return size;
+        }
+
+        float topScore() {
+            return scores[0];
+        }
+
+        void push(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] <= score) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            scores[i] = score;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            float lastScore = scores[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && scores[child + 1] < scores[child]) {
+                    child++;
+                }
+                if (scores[child] >= lastScore) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            nodes[i] = lastNode;
+            scores[i] = lastScore;
+            return top;
+        }
+
+        // Empties the heap; the k highest-scoring nodes, highest first
+        int[] bestFirst(int k) {
+            int[] all = new int[size];
+            for (int i = all.length - 1; i >= 0; i--) {
+                all[i] = pop();
+            }
+            return k < all.length ? Arrays.copyOf(all, k) : all;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.madhu.qou.service.vector;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+
+import java.util.*;
+
+/**
+ * Reciprocal rank fusion (Cormack, Clarke and Büttcher, 2009) of the lexical ranking of a hybrid
+ * search response with the kNN ranking it was given: a hit scores {@code 1 / (K + rank)} in each
+ * ranking it appears in, summed. Ranks only, so BM25 scores and cosine similarities never need to
+ * be made comparable.
+ */
+public final class ReciprocalRankFusion {
+
+    /** The rank constant of the paper; damps the weight of the very top ranks. */
+    public static final int K = 60;
+
+    private ReciprocalRankFusion() {
+    }
+
+    /**
+     * The {@code from}/{@code size} page of the hits reordered by fused score. The hits are a
+     * hybrid response in relevance order, in which documents that only the kNN lookup retrieved
+     * score 0: those have no lexical rank. Ties keep the response order.
+     */
+    public static <T> List<Hit<T>> fuse(List<Hit<T>> hits, List<String> semanticIds, int from, int size) {
+        Map<String, Integer> semanticRanks = new HashMap<>(semanticIds.size() * 2);
+        for (int rank = 0; rank < semanticIds.size(); rank++) {
+            semanticRanks.putIfAbsent(semanticIds.get(rank), rank + 1);
+        }
+        double[] scores = new double[hits.size()];
+        Integer[] order = new Integer[hits.size()];
+        int lexicalRank = 0;
+        for (int i = 0; i < hits.size(); i++) {
+            Hit<T> hit = hits.get(i);
+            Integer semanticRank = semanticRanks.get(hit.id());
+            if (semanticRank == null || score(hit) > 0) {
+                scores[i] += 1.0 / (K + ++lexicalRank);
+            }
+            if (semanticRank != null) {
+                scores[i] += 1.0 / (K + semanticRank);
+            }
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> -scores[i]));
+
+        List<Hit<T>> page = new ArrayList<>(Math.max(0, Math.min(size, hits.size() - from)));
+        for (int i = from; i < Math.min(from + size, order.length); i++) {
+            page.add(hits.get(order[i]));
+        }
+        return page;
+    }
+
+    // The relevance sort returns the score as the first sort value
+    private static double score(Hit<?> hit) {
+        if (hit.score() != null) {
+            return hit.score();
+        }
+        List<FieldValue> sort = hit.sort();
+        return !sort.isEmpty() && sort.get(0).isDouble() ? sort.get(0).doubleValue() : 0;
+    }
+}
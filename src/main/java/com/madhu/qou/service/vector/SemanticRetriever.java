@@ -0,0 +1,200 @@
+package com.madhu.qou.service.vector;
+
+import com.madhu.qou.dto.domain.Product;
+import com.madhu.qou.service.CatalogIndexUpdatedEvent;
+import com.madhu.qou.service.DataSeeder;
+import com.madhu.qou.service.ingestion.QueryNormalizer;
+import com.madhu.qou.service.rewriting.QueryRewriteService;
+import com.opencsv.exceptions.CsvValidationException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Dense retrieval for hybrid search: the products nearest to a query by embedding, from an
+ * in-process {@link HnswIndex}.
+ * <p>
+ * A product is embedded from its name and aisle, a query from its normalized text, both as the
+ * SIF-weighted mean of their words' {@link WordVectors} (Arora et al., 2017: a word weighs
+ * {@code a / (a + p(word))} with {@code p} its frequency in the catalog, so "organic" or "whole"
+ * barely move a product's vector while "crackers" does), without stop words, normalized to unit
+ * length. No model runs per query: embedding a query is a few table lookups.
+ * <p>
+ * Built in the background from the same rows {@link DataSeeder} indexes, and rebuilt when it
+ * reports that {@code products_index} changed; until the first build completes (or if it fails,
+ * or {@code search.semantic.enabled=false}) {@link #isReady()} is false and search stays lexical.
+ */
+@Component
+@Slf4j
+public class SemanticRetriever {
+
+    static final String PRODUCTS_ALIAS = "products_index";
+    private static final int M = 16;
+    private static final int EF_CONSTRUCTION = 64;
+    private static final long SEED = 42;
+    private static final double SIF_A = 1e-3;
+
+    // Everything a lookup needs, replaced together on a rebuild
+    private record Index(WordVectors words, Map<String, Integer> tokenCounts, long totalTokens,
+                         HnswIndex graph, String[] productIds) {
+
+        // Null when none of the words has a vector
+        float[] embed(List<String> tokens) {
+            float[] sum = new float[words.dimensions()];
+            boolean any = false;
+            for (String token : tokens) {
+                if (QueryRewriteService.STOP_WORDS.contains(token)) {
+                    continue;
+                }
+                double frequency = (double) tokenCounts.getOrDefault(token, 0) / totalTokens;
+                any |= words.accumulate(token, (float) (SIF_A / (SIF_A + frequency)), sum);
+            }
+            return any && WordVectors.normalize(sum) ? sum : null;
+        }
+    }
+
+    private final DataSeeder dataSeeder;
+    private final boolean enabled;
+    private final String vectorsLocation;
+    private final int efSearch;
+    private volatile WordVectors wordVectors;
+    private volatile Index index;
+
+    @Autowired
+    public SemanticRetriever(DataSeeder dataSeeder,
+                             @Value("${search.semantic.enabled:false}") boolean enabled,
+                             @Value("${search.semantic.vectors:}") String vectorsLocation,
+                             @Value("${search.semantic.ef-search:100}") int efSearch) {
+        this.dataSeeder = dataSeeder;
+        this.enabled = enabled;
+        this.vectorsLocation = vectorsLocation;
+        this.efSearch = efSearch;
+    }
+
+    // Over fixed word vectors and products, for tests and benchmarks
+    SemanticRetriever(WordVectors wordVectors, List<Product> products, int efSearch) {
+        this(null, true, "", efSearch);
+        this.wordVectors = wordVectors;
+        this.index = buildIndex(wordVectors, products);
+    }
+
+    @PostConstruct
+    void buildInBackground() {
+        if (!enabled) {
+            return;
+        }
+        if (vectorsLocation.isBlank()) {
+            log.warn("search.semantic.enabled is set but search.semantic.vectors is not; search stays lexical.");
+            return;
+        }
+        Thread.ofVirtual().name("semantic-index-build").start(this::rebuild);
+    }
+
+    @EventListener
+    public void onCatalogUpdated(CatalogIndexUpdatedEvent event) {
+        if (enabled && !vectorsLocation.isBlank() && PRODUCTS_ALIAS.equals(event.alias())) {
+            Thread.ofVirtual().name("semantic-index-rebuild").start(this::rebuild);
+        }
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * Re-embeds the products and swaps a new graph in. The word vectors are read once. A failed
+     * build keeps the current index.
+     */
+    public synchronized void rebuild() {
+        long startNanos = System.nanoTime();
+        try {
+            if (wordVectors == null) {
+                wordVectors = WordVectors.load(new DefaultResourceLoader().getResource(vectorsLocation));
+                log.info("Loaded {} word vectors of {} dimensions from {}.",
+                        wordVectors.size(), wordVectors.dimensions(), vectorsLocation);
+            }
+            List<Product> products = dataSeeder.readProducts();
+            Index built = buildIndex(wordVectors, products);
+            index = built;
+            log.info("Built semantic index: {} of {} products embedded, {} KB in {} ms.",
+                    built.graph().size(), products.size(), built.graph().bytes() / 1024,
+                    (System.nanoTime() - startNanos) / 1_000_000);
+        } catch (IOException | CsvValidationException | RuntimeException e) {
+            log.error("Could not build semantic index; search {}.",
+                    index == null ? "stays lexical" : "keeps the previous index", e);
+        }
+    }
+
+    private static Index buildIndex(WordVectors words, List<Product> products) {
+        List<List<String>> texts = new ArrayList<>(products.size());
+        Map<String, Integer> tokenCounts = new HashMap<>();
+        long totalTokens = 0;
+        for (Product product : products) {
+            List<String> tokens = new ArrayList<>(QueryNormalizer.tokenize(QueryNormalizer.normalize(product.name())));
+            if (product.categories() != null) {
+                product.categories().forEach(category ->
+                        tokens.addAll(QueryNormalizer.tokenize(QueryNormalizer.normalize(category))));
+            }
+            for (String token : tokens) {
+                tokenCounts.merge(token, 1, Integer::sum);
+            }
+            totalTokens += tokens.size();
+            texts.add(tokens);
+        }
+
+        Index unbuilt = new Index(words, tokenCounts, Math.max(totalTokens, 1), null, null);
+        List<float[]> vectors = new ArrayList<>(products.size());
+        List<String> productIds = new ArrayList<>(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            float[] vector = unbuilt.embed(texts.get(i));
+            if (vector != null) {
+                vectors.add(vector);
+                productIds.add(products.get(i).productId());
+            }
+        }
+        HnswIndex graph = HnswIndex.build(vectors.toArray(float[][]::new), M, EF_CONSTRUCTION, SEED);
+        return new Index(words, tokenCounts, unbuilt.totalTokens(), graph, productIds.toArray(String[]::new));
+    }
+
+    /**
+     * Product ids of the (approximately) {@code k} products nearest to the normalized query, best
+     * first; empty if the index is not built or none of the query's words has a vector.
+     */
+    public List<String> nearest(String normalizedQuery, int k) {
+        Index current = index;
+        if (current == null) {
+            return List.of();
+        }
+        float[] query = current.embed(QueryNormalizer.tokenize(normalizedQuery));
+        if (query == null) {
+            return List.of();
+        }
+        int[] nodes = current.graph().search(query, k, Math.max(efSearch, k));
+        List<String> productIds = new ArrayList<>(nodes.length);
+        for (int node : nodes) {
+            productIds.add(current.productIds()[node]);
+        }
+        return productIds;
+    }
+
+    /** The exact nearest products by the same quantized similarity, for measuring the graph's recall. */
+    public List<String> exactNearest(String normalizedQuery, int k) {
+        Index current = index;
+        float[] query = current == null ? null : current.embed(QueryNormalizer.tokenize(normalizedQuery));
+        if (query == null) {
+            return List.of();
+        }
+        List<String> productIds = new ArrayList<>(k);
+        for (int node : current.graph().exactSearch(query, k)) {
+            productIds.add(current.productIds()[node]);
+        }
+        return productIds;
+    }
+}
@@ -0,0 +1,158 @@
+package com.madhu.qou.service.vector;
+
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Static word embeddings, one unit-length vector per word, kept as int8 with a scale per word.
+ * <p>
+ * Loaded from the text format GloVe and fastText publish ({@code word v1 ... vN} per line; a
+ * fastText {@code count dimensions} header line is skipped; gzipped if the name ends in
+ * {@code .gz}), which is also what build_vectors.py exports from the spaCy model the NER service
+ * runs. Words are looked up exactly, so the file should hold the lower-cased forms queries
+ * normalize to.
+ */
+public final class WordVectors {
+
+    private final Map<String, Integer> rows;
+    private final byte[] values;
+    private final float[] scales;
+    private final int dimensions;
+
+    private WordVectors(Map<String, Integer> rows, byte[] values, float[] scales, int dimensions) {
+        this.rows = rows;
+        this.values = values;
+        this.scales = scales;
+        this.dimensions = dimensions;
+    }
+
+    public static WordVectors load(Resource resource) throws IOException {
+        InputStream in = resource.getInputStream();
+        String name = resource.getFilename();
+        if (name != null && name.endsWith(".gz")) {
+            in = new GZIPInputStream(in, 1 << 16);
+        }
+        Map<String, float[]> vectors = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16)) {
+            String line;
+            int dimensions = -1;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.trim().split(" ");
+                if (fields.length <= 2) {
+                    continue; // fastText header or blank line
+                }
+                if (dimensions < 0) {
+                    dimensions = fields.length - 1;
+                } else if (fields.length - 1 != dimensions) {
+                    throw new IOException("Vector of '" + fields[0] + "' has " + (fields.length - 1)
+                            + " dimensions, expected " + dimensions);
+                }
+                float[] vector = new float[dimensions];
+                for (int i = 0; i < dimensions; i++) {
+                    vector[i] = Float.parseFloat(fields[i + 1]);
+                }
+                vectors.putIfAbsent(fields[0], vector);
+            }
+        }
+        if (vectors.isEmpty()) {
+            throw new IOException("No word vectors in " + resource.getDescription());
+        }
+        return of(vectors);
+    }
+
+    /** Over the given vectors, which must all have the same length; they are normalized here. */
+    public static WordVectors of(Map<String, float[]> vectors) {
+        int dimensions = vectors.values().iterator().next().length;
+        Map<String, Integer> rows = new HashMap<>(vectors.size() * 2);
+        byte[] values = new byte[vectors.size() * dimensions];
+        float[] scales = new float[vectors.size()];
+        float[] unit = new float[dimensions];
+        for (Map.Entry<String, float[]> entry : vectors.entrySet()) {
+            float[] vector = entry.getValue();
+            if (vector.length != dimensions) {
+                throw new IllegalArgumentException("Vector of '" + entry.getKey() + "' has " + vector.length
+                        + " dimensions, expected " + dimensions);
+            }
+            System.arraycopy(vector, 0, unit, 0, dimensions);
+            if (!normalize(unit)) {
+                continue;
+            }
+            int row = rows.size();
+            scales[row] = quantize(unit, values, row * dimensions);
+            rows.put(entry.getKey(), row);
+        }
+        return new WordVectors(rows, values, scales, dimensions);
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    public boolean contains(String word) {
+        return rows.containsKey(word);
+    }
+
+    /**
+     * Adds {@code weight} times the word's unit vector to {@code sum}; false, leaving it
+     * unchanged, if the word has no vector.
+     */
+    public boolean accumulate(String word, float weight, float[] sum) {
+        Integer row = rows.get(word);
+        if (row == null) {
+            return false;
+        }
+        float factor = weight * scales[row];
+        int offset = row * dimensions;
+        for (int i = 0; i < dimensions; i++) {
+            sum[i] += factor * values[offset + i];
+        }
+        return true;
+    }
+
+    /** Scales the vector to unit length in place; false if it is all zeros. */
+    static boolean normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            return false;
+        }
+        float inverse = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= inverse;
+        }
+        return true;
+    }
+
+    /**
+     * Writes the vector as int8 into {@code into} at {@code offset}, scaled so its largest
+     * component is ±127, and returns the scale that turns the bytes back into floats.
+     */
+    static float quantize(float[] vector, byte[] into, int offset) {
+        float max = 0;
+        for (float value : vector) {
+            max = Math.max(max, Math.abs(value));
+        }
+        if (max == 0) {
+            return 0;
+        }
+        float toBytes = 127 / max;
+        for (int i = 0; i < vector.length; i++) {
+            into[offset + i] = (byte) Math.round(vector[i] * toBytes);
+        }
+        return max / 127;
+    }
+}
@@ -0,0 +1,158 @@
+package com.madhu.qou.client;
+
+import com.madhu.qou.dto.ner.NerEntity;
+import com.madhu.qou.dto.ner.NerResponse;
+import com.madhu.qou.service.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NerApiClientTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile long serviceTimeMillis;
+    private volatile boolean failing;
+
+    // Stands in for the NER service: answers "fage" as ORG after serviceTimeMillis, or fails
+    private final RestTemplate restTemplate = new RestTemplate() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T postForObject(String url, Object request, Class<T> responseType, Object... uriVariables) {
+            calls.incrementAndGet();
+            if (failing) {
+                throw new ResourceAccessException("connection refused");
+            }
+            try {
+                Thread.sleep(serviceTimeMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return (T) new NerResponse(List.of(new NerEntity("fage", "ORG")), "v1");
+        }
+    };
+
+    private final NerCircuitBreaker circuitBreaker = new NerCircuitBreaker(true, 10, 4, 0.5, Duration.ofMillis(200), meterRegistry);
+    private final NerApiClient client = new NerApiClient(restTemplate,
+            new NerResultCache(100, Duration.ofMinutes(1), meterRegistry),
+            new NerBatcher(false, 8, Duration.ofMillis(5), 1, "http://unused", restTemplate, meterRegistry),
+            new PipelineMetrics(meterRegistry),
+            circuitBreaker);
+
+    {
+        ReflectionTestUtils.setField(client, "nerApiUrl", "http://ner/ent");
+        ReflectionTestUtils.setField(client, "deadline", Duration.ofMillis(50));
+    }
+
+    // Other tests' clients leave idle call threads behind, hence the before/after difference
+    private static Set<Thread> callThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("ner-call-"))
+                .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    private double fallbacks(String reason) {
+        return meterRegistry.get("qou.ner.fallback").tag("reason", reason).counter().count();
+    }
+
+    @Test
+    void whenNerIsSlowerThanTheDeadline_thenCallerGetsNoEntitiesWithinTheBudget() {
+        serviceTimeMillis = 500;
+
+        long start = System.nanoTime();
+        NerResponse response = client.extractEntities("fage yogurt");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(response.entities()).isEmpty();
+        assertThat(elapsedMillis).isLessThan(300);
+        assertThat(fallbacks("deadline")).isEqualTo(1.0);
+    }
+
+    @Test
+    void whenNerStallsUnderLoad_thenCallThreadsStayBoundedAndTheRestFallBack() throws InterruptedException {
+        serviceTimeMillis = 2_000;
+        client.setMaxConcurrentCalls(8);
+        Set<Thread> before = callThreads();
+
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 200; i++) {
+                String query = "query " + i;
+                callers.submit(() -> client.extractEntities(query));
+            }
+        }
+
+        Set<Thread> started = callThreads();
+        started.removeAll(before);
+        assertThat(started).hasSizeLessThanOrEqualTo(8);
+        assertThat(calls.get()).isLessThanOrEqualTo(8);
+        assertThat(fallbacks("saturated") + fallbacks("deadline")).isEqualTo(200.0);
+        assertThat(fallbacks("saturated")).isGreaterThanOrEqualTo(192.0);
+    }
+
+    @Test
+    void whenNerKeepsFailing_thenBreakerOpensAndStopsCallingIt() throws InterruptedException {
+        failing = true;
+        // Generous budget so every failure is recorded before extractEntities returns
+        ReflectionTestUtils.setField(client, "deadline", Duration.ofSeconds(2));
+        for (int i = 0; i < 4; i++) {
+            client.extractEntities("query " + i);
+        }
+        assertThat(circuitBreaker.state()).isEqualTo(NerCircuitBreaker.State.OPEN);
+
+        int callsWhenOpened = calls.get();
+        client.extractEntities("another query");
+        assertThat(calls).hasValue(callsWhenOpened);
+        assertThat(fallbacks("circuit_open")).isEqualTo(1.0);
+
+        // After the cool-down one probe goes through and closes the breaker again
+        failing = false;
+        Thread.sleep(250);
+        assertThat(client.extractEntities("fage yogurt").entities()).hasSize(1);
+        assertThat(circuitBreaker.state()).isEqualTo(NerCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void whenHedgingIsEnabledAndPrimaryIsSlow_thenHedgeAnswers() {
+        ReflectionTestUtils.setField(client, "hedgingEnabled", true);
+        ReflectionTestUtils.setField(client, "hedgeUrl", "http://ner-replica/ent");
+        ReflectionTestUtils.setField(client, "deadline", Duration.ofSeconds(2));
+        // Only the first call (the primary) is slow
+        RestTemplate slowFirst = new RestTemplate() {
+            private final AtomicInteger n = new AtomicInteger();
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T postForObject(String url, Object request, Class<T> responseType, Object... uriVariables) {
+                if (n.getAndIncrement() == 0) {
+                    try {
+                        Thread.sleep(1_000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return (T) new NerResponse(List.of(new NerEntity(url, "ORG")), "v1");
+            }
+        };
+        ReflectionTestUtils.setField(client, "restTemplate", slowFirst);
+
+        long start = System.nanoTime();
+        NerResponse response = client.extractEntities("fage yogurt");
+
+        assertThat(response.entities().get(0).text()).isEqualTo("http://ner-replica/ent");
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(500);
+        assertThat(meterRegistry.get("qou.ner.hedge.won").counter().count()).isEqualTo(1.0);
+    }
+}
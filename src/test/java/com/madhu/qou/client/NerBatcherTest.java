@@ -0,0 +1,53 @@
+package com.madhu.qou.client;
+
+import com.madhu.qou.dto.ner.NerBatchResponse;
+import com.madhu.qou.dto.ner.NerEntity;
+import com.madhu.qou.dto.ner.NerResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NerBatcherTest {
+
+    private final List<List<String>> sentBatches = new CopyOnWriteArrayList<>();
+
+    // Echoes every text back as a single PRODUCT entity so results can be matched to callers
+    private final NerBatcher batcher = new NerBatcher(true, 8, Duration.ofMillis(50), 1,
+            "http://unused", null, new SimpleMeterRegistry()) {
+        @Override
+        NerBatchResponse sendBatch(List<String> texts) {
+            sentBatches.add(texts);
+            List<NerResponse> results = texts.stream()
+                    .map(text -> new NerResponse(List.of(new NerEntity(text, "PRODUCT"))))
+                    .toList();
+            return new NerBatchResponse(results, "v1");
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        batcher.shutdown();
+    }
+
+    @Test
+    void whenConcurrentRequestsArrive_thenTheyAreCoalescedAndDeduplicated() {
+        CompletableFuture<NerResponse> milk = batcher.submit("milk");
+        CompletableFuture<NerResponse> eggs = batcher.submit("eggs");
+        CompletableFuture<NerResponse> milkAgain = batcher.submit("milk");
+
+        assertThat(milk.join().entities().get(0).text()).isEqualTo("milk");
+        assertThat(eggs.join().entities().get(0).text()).isEqualTo("eggs");
+        assertThat(milkAgain.join().entities().get(0).text()).isEqualTo("milk");
+        assertThat(milk.join().modelVersion()).isEqualTo("v1");
+
+        assertThat(sentBatches).hasSize(1);
+        assertThat(sentBatches.get(0)).containsExactly("milk", "eggs");
+    }
+}
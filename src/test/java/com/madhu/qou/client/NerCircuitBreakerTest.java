@@ -0,0 +1,42 @@
+package com.madhu.qou.client;
+
+import com.madhu.qou.client.NerCircuitBreaker.State;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NerCircuitBreakerTest {
+
+    private final NerCircuitBreaker breaker = new NerCircuitBreaker(true, 10, 4, 0.5, Duration.ofMillis(50), new SimpleMeterRegistry());
+
+    @Test
+    void whenAStragglerFinishesWhileHalfOpen_thenOnlyTheProbeDecides() throws InterruptedException {
+        long straggler = breaker.tryAcquirePermission();
+        for (int i = 0; i < 4; i++) {
+            breaker.recordFailure(breaker.tryAcquirePermission());
+        }
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isEqualTo(NerCircuitBreaker.NO_PERMIT);
+
+        Thread.sleep(60);
+        long probe = breaker.tryAcquirePermission();
+        assertThat(probe).isNotEqualTo(NerCircuitBreaker.NO_PERMIT);
+        assertThat(breaker.tryAcquirePermission()).isEqualTo(NerCircuitBreaker.NO_PERMIT);
+
+        breaker.recordSuccess(straggler);
+        assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+        breaker.recordFailure(straggler);
+        assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+
+        breaker.recordSuccess(probe);
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+        // Nor does the probe's permit count again once the breaker has closed
+        for (int i = 0; i < 4; i++) {
+            breaker.recordFailure(probe);
+        }
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+    }
+}
@@ -0,0 +1,72 @@
+package com.madhu.qou.client;
+
+import com.madhu.qou.dto.ner.NerEntity;
+import com.madhu.qou.dto.ner.NerResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NerResultCacheTest {
+
+    private final NerResultCache cache = new NerResultCache(100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+    @Test
+    void whenSameQueryIsRequestedTwice_thenLoaderIsCalledOnce() {
+        AtomicInteger calls = new AtomicInteger();
+        NerResponse response = new NerResponse(List.of(new NerEntity("fage", "BRAND")), "v1");
+
+        cache.get("fage yogurt", q -> { calls.incrementAndGet(); return response; });
+        NerResponse cached = cache.get("fage yogurt", q -> { calls.incrementAndGet(); return response; });
+
+        assertThat(calls).hasValue(1);
+        assertThat(cached).isEqualTo(response);
+    }
+
+    @Test
+    void whenLoaderFails_thenNothingIsCached() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThatThrownBy(() -> cache.get("milk", q -> { calls.incrementAndGet(); throw new IllegalStateException("down"); }))
+                .isInstanceOf(IllegalStateException.class);
+        cache.get("milk", q -> { calls.incrementAndGet(); return new NerResponse(List.of(), "v1"); });
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void whenModelVersionChanges_thenCacheIsInvalidated() {
+        AtomicInteger calls = new AtomicInteger();
+        cache.get("milk", q -> { calls.incrementAndGet(); return new NerResponse(List.of(), "v1"); });
+        cache.get("eggs", q -> new NerResponse(List.of(), "v2"));
+
+        cache.get("milk", q -> { calls.incrementAndGet(); return new NerResponse(List.of(), "v2"); });
+
+        assertThat(calls).hasValue(2);
+        assertThat(cache.modelVersion()).isEqualTo("v2");
+    }
+
+    @Test
+    void whenRestartedWithAStore_thenPersistedResultsAreServedWithoutTheLoader(@TempDir Path dir) {
+        Path file = dir.resolve("ner-results.log");
+        NerResultStore store = new NerResultStore(true, file, 100, 1_000);
+        NerResultCache before = new NerResultCache(100, Duration.ofMinutes(1), new SimpleMeterRegistry(), store);
+        before.restored().join();
+        before.get("fage yogurt", q -> new NerResponse(List.of(new NerEntity("fage", "ORG")), "v1"));
+        store.close();
+
+        NerResultCache after = new NerResultCache(100, Duration.ofMinutes(1), new SimpleMeterRegistry(),
+                new NerResultStore(true, file, 100, 1_000));
+
+        assertThat(after.restored().join()).isEqualTo(1);
+        assertThat(after.getIfPresent("fage yogurt").entities()).containsExactly(new NerEntity("fage", "ORG"));
+        assertThat(after.modelVersion()).isEqualTo("v1");
+    }
+}
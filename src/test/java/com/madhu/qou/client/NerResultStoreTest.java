@@ -0,0 +1,123 @@
+package com.madhu.qou.client;
+
+import com.madhu.qou.dto.ner.NerEntity;
+import com.madhu.qou.dto.ner.NerResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NerResultStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private NerResultStore open(int maxEntries) {
+        return new NerResultStore(true, dir.resolve("ner-results.log"), maxEntries, 1_000);
+    }
+
+    private static Map<String, NerResponse> restore(NerResultStore store) {
+        Map<String, NerResponse> restored = new LinkedHashMap<>();
+        store.restore(restored::put);
+        return restored;
+    }
+
+    @Test
+    void whenReopened_thenLatestResultPerQueryIsRestored() {
+        NerResultStore store = open(100);
+        restore(store);
+        store.append("fage yogurt", new NerResponse(List.of(new NerEntity("fage", "ORG")), "v1"));
+        store.append("milk", new NerResponse(List.of(), "v1"));
+        store.append("fage yogurt", new NerResponse(List.of(new NerEntity("fage", "ORG"), new NerEntity("yogurt", "PRODUCT")), "v1"));
+        store.close();
+
+        Map<String, NerResponse> restored = restore(open(100));
+
+        assertThat(restored).containsOnlyKeys("milk", "fage yogurt");
+        assertThat(restored.get("fage yogurt").entities()).hasSize(2);
+        assertThat(restored.get("milk").modelVersion()).isEqualTo("v1");
+    }
+
+    @Test
+    void whenAnAppendIsWrittenBeforeTheRestore_thenPersistedResultsAreStillRestored() throws Exception {
+        NerResultStore store = open(100);
+        restore(store);
+        store.append("milk", new NerResponse(List.of(), "v1"));
+        store.close();
+        Path file = dir.resolve("ner-results.log");
+        long persisted = Files.size(file);
+
+        // A NER miss right after startup: the writer opens the file before the restore thread runs
+        NerResultStore reopened = open(100);
+        reopened.append("eggs", new NerResponse(List.of(), "v1"));
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (Files.size(file) == persisted && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(Files.size(file)).isGreaterThan(persisted);
+
+        assertThat(restore(reopened)).containsOnlyKeys("milk");
+        reopened.close();
+    }
+
+    @Test
+    void whenModelVersionChangedOrTailIsTorn_thenOnlyValidCurrentResultsAreRestored() throws IOException {
+        NerResultStore store = open(100);
+        restore(store);
+        store.append("milk", new NerResponse(List.of(), "v1"));
+        store.append("eggs", new NerResponse(List.of(), "v2"));
+        store.close();
+        // A crash in the middle of the next record
+        Files.write(dir.resolve("ner-results.log"), new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        NerResultStore reopened = open(100);
+        assertThat(restore(reopened)).containsOnlyKeys("eggs");
+
+        // Appends after the torn tail are readable again
+        reopened.append("bread", new NerResponse(List.of(), "v2"));
+        reopened.close();
+        assertThat(restore(open(100))).containsOnlyKeys("eggs", "bread");
+    }
+
+    @Test
+    void whenPathHoldsSomeOtherFile_thenItIsLeftUntouchedAndNothingIsStored() throws IOException {
+        Path file = dir.resolve("ner-results.log");
+        byte[] contents = "not a NER result store\n".getBytes();
+        Files.write(file, contents);
+
+        NerResultStore store = open(100);
+        assertThat(restore(store)).isEmpty();
+        store.append("milk", new NerResponse(List.of(), "v1"));
+        store.close();
+
+        assertThat(Files.readAllBytes(file)).isEqualTo(contents);
+    }
+
+    @Test
+    void whenCompacted_thenFileKeepsOnlyLiveRecordsUpToMaxEntries() throws IOException {
+        NerResultStore store = open(2);
+        restore(store);
+        for (int i = 0; i < 50; i++) {
+            store.append("query " + (i % 3), new NerResponse(List.of(new NerEntity("q", "PRODUCT")), "v1"));
+        }
+        store.close();
+
+        NerResultStore reopened = open(2);
+        restore(reopened);
+        long before = Files.size(dir.resolve("ner-results.log"));
+        reopened.compact();
+        reopened.close();
+
+        assertThat(Files.size(dir.resolve("ner-results.log"))).isLessThan(before / 10);
+        // query 1 was written last, query 0 just before it
+        assertThat(restore(open(2))).containsOnlyKeys("query 0", "query 1");
+    }
+}
@@ -0,0 +1,60 @@
+package com.madhu.qou.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheWarmerTest {
+
+    private static CacheWarmer warmer(Duration timeBudget) {
+        return new CacheWarmer(null, true, "unused", 2, 4, timeBudget);
+    }
+
+    @Test
+    void whenReadingAQueryLog_thenMostFrequentQueriesComeFirstAndBadLinesAreSkipped() throws Exception {
+        String log = """
+                {"ts":"2025-01-01T00:00:00Z","reason":"sampled","query":"milk","hits":3}
+                {"query":"fage yogurt"}
+                not json
+                {"query":"fage yogurt"}
+                {"reason":"slow"}
+                {"rawQuery":"bread","userContext":{"userId":"u1","userSegment":"standard"}}
+                {"query":"fage yogurt"}
+                {"query":"bread"}
+                """;
+
+        List<String> top = warmer(Duration.ofSeconds(1)).topQueries(new BufferedReader(new StringReader(log)), 2);
+
+        assertThat(top).containsExactly("fage yogurt", "bread");
+    }
+
+    @Test
+    void whenTimeBudgetIsSpent_thenReplayReturnsWithoutWaitingForEveryQuery() {
+        Set<String> searched = ConcurrentHashMap.newKeySet();
+
+        CacheWarmer.Report report = warmer(Duration.ofMillis(200)).replay(List.of("a", "b", "c", "d", "e", "f", "g", "h", "i"), query -> {
+            if (query.equals("a")) {
+                throw new IllegalStateException("es down");
+            }
+            searched.add(query);
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertThat(report.queries()).isEqualTo(9);
+        assertThat(report.failed()).isEqualTo(1);
+        // Four slots: "a" fails at once, the next four are still running when the budget is spent,
+        // so the rest are never started
+        assertThat(searched).containsExactlyInAnyOrder("b", "c", "d", "e");
+    }
+}
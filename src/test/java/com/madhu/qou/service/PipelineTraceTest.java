@@ -0,0 +1,65 @@
+package com.madhu.qou.service;
+
+import com.madhu.qou.dto.StageTimings;
+import com.madhu.qou.service.PipelineMetrics.Stage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PipelineTraceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PipelineMetrics pipelineMetrics = new PipelineMetrics(meterRegistry);
+
+    @Test
+    void whenStagesAreRecorded_thenTheyReachBothTheTimersAndTheResponseTimings() {
+        PipelineTrace trace = pipelineMetrics.startTrace();
+        trace.record(Stage.NER, TimeUnit.MILLISECONDS.toNanos(12));
+        trace.record(Stage.ES_TOOK, TimeUnit.MILLISECONDS.toNanos(3));
+
+        StageTimings timings = trace.toTimings();
+
+        assertThat(timings.nerMs()).isEqualTo(12.0);
+        assertThat(timings.esTookMs()).isEqualTo(3.0);
+        assertThat(timings.rewriteMs()).isNull();
+        assertThat(timings.searchCacheHit()).isTrue();
+        assertThat(meterRegistry.get("qou.pipeline.stage").tag("stage", "ner").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("qou.pipeline.stage").tag("stage", "rewrite").timer().count()).isZero();
+    }
+
+    @Test
+    void whenTheUsedSearchWentToTheEngine_thenTimingsReportACacheMiss() {
+        PipelineTrace trace = pipelineMetrics.startTrace();
+        trace.searchServed(false);
+
+        assertThat(trace.toTimings().searchCacheHit()).isFalse();
+    }
+
+    @Test
+    void whenFallbacksHappen_thenTheyAreCountedByReason() {
+        pipelineMetrics.brandKeywordFallback();
+        pipelineMetrics.nerErrorFallback();
+        pipelineMetrics.nerErrorFallback();
+
+        assertThat(meterRegistry.get("qou.ner.fallback").tag("reason", "ner_error").counter().count()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("qou.ner.fallback").tag("reason", "brand_keyword").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void whenTraceIsUnrecorded_thenItKeepsTimingsButFeedsNoMeter() {
+        PipelineTrace trace = pipelineMetrics.startUnrecordedTrace();
+        trace.record(Stage.NER, TimeUnit.MILLISECONDS.toNanos(12));
+        pipelineMetrics.unrecorded(() -> {
+            pipelineMetrics.nerDeadlineFallback();
+            return null;
+        });
+
+        assertThat(trace.recorded()).isFalse();
+        assertThat(trace.toTimings().nerMs()).isEqualTo(12.0);
+        assertThat(meterRegistry.get("qou.pipeline.stage").tag("stage", "ner").timer().count()).isZero();
+        assertThat(meterRegistry.get("qou.ner.fallback").tag("reason", "deadline").counter().count()).isZero();
+    }
+}
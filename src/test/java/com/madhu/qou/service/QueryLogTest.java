@@ -0,0 +1,40 @@
+package com.madhu.qou.service;
+
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.madhu.qou.dto.*;
+import com.madhu.qou.service.PipelineMetrics.Stage;
+import com.madhu.qou.service.catalog.CatalogDictionary;
+import com.madhu.qou.service.rewriting.QueryRewriteService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryLogTest {
+
+    @Test
+    void whenEventIsRendered_thenItIsOneJsonObjectWithQueryEntitiesTimingsHitsAndDsl() throws Exception {
+        PreprocessedQuery preprocessed = new PreprocessedQuery("Fage Yogurt!", "fage yogurt", new UserContext("u", "standard"));
+        UnderstoodQuery understood = new UnderstoodQuery(preprocessed, new Intent("find_product"),
+                List.of(new Entity("fage", "BRAND", 0, 4)));
+        SearchRequest searchRequest = new QueryRewriteService(new CatalogDictionary()).buildEsQuery(understood);
+        PipelineTrace trace = new PipelineMetrics(new SimpleMeterRegistry()).startTrace();
+        trace.record(Stage.NER, 2_000_000);
+
+        String line = new QueryLog(true, 1, Duration.ofMillis(250)).render(understood, searchRequest, trace, 42, true);
+        JsonNode event = new ObjectMapper().readTree(line);
+
+        assertThat(line).doesNotContain("\n");
+        assertThat(event.get("reason").asText()).isEqualTo("slow");
+        assertThat(event.get("query").asText()).isEqualTo("Fage Yogurt!");
+        assertThat(event.get("entities").get(0).get("type").asText()).isEqualTo("BRAND");
+        assertThat(event.get("hits").asLong()).isEqualTo(42);
+        assertThat(event.get("timings").get("nerMs").asDouble()).isEqualTo(2.0);
+        assertThat(event.get("dsl").get("query").has("bool")).isTrue();
+    }
+}
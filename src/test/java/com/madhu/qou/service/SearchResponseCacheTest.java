@@ -0,0 +1,82 @@
+package com.madhu.qou.service;
+
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
+import com.madhu.qou.dto.*;
+import com.madhu.qou.dto.domain.Product;
+import com.madhu.qou.service.catalog.CatalogDictionary;
+import com.madhu.qou.service.ingestion.PreprocessingService;
+import com.madhu.qou.service.rewriting.QueryRewriteService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchResponseCacheTest {
+
+    private final SearchResponseCache cache = new SearchResponseCache(true, DataSize.ofMegabytes(1), Duration.ofMinutes(1), new SimpleMeterRegistry());
+    private final PreprocessingService preprocessingService = new PreprocessingService();
+    private final QueryRewriteService queryRewriteService = new QueryRewriteService(new CatalogDictionary());
+    private final SearchResponse<Product> response = SearchResponse.of(r -> r
+            .took(1).timedOut(false)
+            .shards(s -> s.total(1).successful(1).failed(0))
+            .hits(h -> h.total(t -> t.value(0).relation(TotalHitsRelation.Eq)).hits(List.of())));
+
+    private SearchRequest rewrite(String rawQuery) {
+        PreprocessedQuery preprocessed = preprocessingService.process(new CustomSearchRequest(rawQuery, new UserContext("u", "standard")));
+        return queryRewriteService.buildEsQuery(new UnderstoodQuery(preprocessed, new Intent("find_product"), List.of()));
+    }
+
+    @Test
+    void whenSurfaceFormsRewriteIdentically_thenTheyShareOneEntry() {
+        assertThat(cache.fingerprint(rewrite("Organic  Milk"))).isEqualTo(cache.fingerprint(rewrite("organic milk!")));
+        assertThat(cache.fingerprint(rewrite("organic milk"))).isNotEqualTo(cache.fingerprint(rewrite("oat milk")));
+    }
+
+    @Test
+    void whenConcurrentMissesOnSameKey_thenOneSearchIsIssued() {
+        AtomicInteger searches = new AtomicInteger();
+        CompletableFuture<SearchResponse<Product>> pending = new CompletableFuture<>();
+
+        CompletableFuture<SearchResponse<Product>> first = cache.get(rewrite("organic milk"), () -> { searches.incrementAndGet(); return pending; });
+        CompletableFuture<SearchResponse<Product>> second = cache.get(rewrite("Organic Milk"), () -> { searches.incrementAndGet(); return pending; });
+        // A caller giving up must not cancel the shared search
+        first.cancel(true);
+        pending.complete(response);
+
+        assertThat(searches).hasValue(1);
+        assertThat(second.join()).isSameAs(response);
+    }
+
+    @Test
+    void whenProductsIndexChanges_thenNextRequestSearchesAgain() {
+        AtomicInteger searches = new AtomicInteger();
+        cache.get(rewrite("organic milk"), () -> { searches.incrementAndGet(); return CompletableFuture.completedFuture(response); }).join();
+
+        cache.onCatalogUpdated(new CatalogIndexUpdatedEvent("suggestions_index", "suggestions_index_v2", true, 1));
+        cache.get(rewrite("organic milk"), () -> { searches.incrementAndGet(); return CompletableFuture.completedFuture(response); }).join();
+        assertThat(searches).hasValue(1);
+
+        cache.onCatalogUpdated(new CatalogIndexUpdatedEvent("products_index", "products_index_v2", true, 1));
+        cache.get(rewrite("organic milk"), () -> { searches.incrementAndGet(); return CompletableFuture.completedFuture(response); }).join();
+        assertThat(searches).hasValue(2);
+    }
+
+    @Test
+    void whenSearchFails_thenFailureIsNotCached() {
+        AtomicInteger searches = new AtomicInteger();
+        CompletableFuture<SearchResponse<Product>> failed = cache.get(rewrite("milk"),
+                () -> { searches.incrementAndGet(); return CompletableFuture.failedFuture(new IllegalStateException("down")); });
+        assertThat(failed).isCompletedExceptionally();
+
+        cache.get(rewrite("milk"), () -> { searches.incrementAndGet(); return CompletableFuture.completedFuture(response); }).join();
+        assertThat(searches).hasValue(2);
+    }
+}
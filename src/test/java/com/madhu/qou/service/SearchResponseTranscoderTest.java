@@ -0,0 +1,80 @@
+package com.madhu.qou.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.madhu.qou.dto.FacetValue;
+import com.madhu.qou.dto.SearchCursor;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchResponseTranscoderTest {
+
+    private static final String SEARCH_BODY = """
+            {"took":4,"timed_out":false,"_shards":{"total":1,"successful":1,"skipped":0,"failed":0},
+             "hits":{"total":{"value":1000,"relation":"gte"},"max_score":null,
+                     "hits":[{"_index":"products_index","_id":"instacart-1","_score":null,
+                              "_source":{"product_id":"instacart-1","name":"Fage Total 0% Greek Yogurt","categories":["yogurt"]},
+                              "sort":[2.5,"instacart-1"]},
+                             {"_index":"products_index","_id":"instacart-2","_score":null,
+                              "_source":{"product_id":"instacart-2","name":"Fage Total 2%","categories":["yogurt"]},
+                              "sort":[1.5,"instacart-2"]}]},
+             "aggregations":{"by_brand":{"doc_count_error_upper_bound":0,"sum_other_doc_count":0,
+                                         "buckets":[{"key":"Fage","doc_count":2}]},
+                             "by_category":{"doc_count_error_upper_bound":0,"sum_other_doc_count":0,"buckets":[]}}}
+            """;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Test
+    void whenTranscoding_thenSourcesAreCopiedVerbatimAndFacetsAndCursorAreKept() throws IOException {
+        StringWriter out = new StringWriter();
+        SearchResponseTranscoder.Result result;
+        try (JsonParser in = jsonFactory.createParser(SEARCH_BODY);
+             JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            generator.writeStartObject();
+            result = SearchResponseTranscoder.transcode(in, generator, 2);
+            QueryUnderstandingService.writeFacets(generator, result.buckets());
+            generator.writeEndObject();
+        }
+
+        assertThat(out.toString()).isEqualTo("{\"products\":["
+                + "{\"product_id\":\"instacart-1\",\"name\":\"Fage Total 0% Greek Yogurt\",\"categories\":[\"yogurt\"]},"
+                + "{\"product_id\":\"instacart-2\",\"name\":\"Fage Total 2%\",\"categories\":[\"yogurt\"]}],"
+                + "\"facets\":[{\"name\":\"Brand\",\"values\":[{\"value\":\"Fage\",\"count\":2}]}]}");
+        assertThat(result.tookMillis()).isEqualTo(4);
+        assertThat(result.totalHits()).isEqualTo(1000);
+        assertThat(result.buckets().get("by_brand")).containsExactly(new FacetValue("Fage", 2));
+        // The page was full, so the last hit's sort values point at the next one
+        assertThat(SearchCursor.decode(result.nextCursor())).isEqualTo(new SearchCursor(1.5, "instacart-2"));
+    }
+
+    @Test
+    void whenPageIsNotFull_thenThereIsNoNextCursor() throws IOException {
+        try (JsonParser in = jsonFactory.createParser(SEARCH_BODY);
+             JsonGenerator generator = jsonFactory.createGenerator(new StringWriter())) {
+            generator.writeStartObject();
+            assertThat(SearchResponseTranscoder.transcode(in, generator, 10).nextCursor()).isNull();
+        }
+    }
+
+    @Test
+    void whenFacetIsDisjunctive_thenBucketsAreReadFromInsideItsFilter() throws IOException {
+        String body = """
+                {"took":1,"hits":{"total":{"value":3,"relation":"eq"},"hits":[]},
+                 "aggregations":{"by_brand":{"doc_count":5,
+                                             "values":{"doc_count_error_upper_bound":0,"sum_other_doc_count":0,
+                                                       "buckets":[{"key":"Fage","doc_count":3},{"key":"Chobani","doc_count":2}]}}}}
+                """;
+        try (JsonParser in = jsonFactory.createParser(body);
+             JsonGenerator generator = jsonFactory.createGenerator(new StringWriter())) {
+            generator.writeStartObject();
+            assertThat(SearchResponseTranscoder.transcode(in, generator, 10).buckets().get("by_brand"))
+                    .containsExactly(new FacetValue("Fage", 3), new FacetValue("Chobani", 2));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.madhu.qou.service.catalog;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogDictionaryTest {
+
+    private final CatalogDictionary dictionary = new CatalogDictionary();
+
+    @Test
+    void whenProductNameContainsABrand_thenItsIdIsDetected() {
+        int brandId = dictionary.detectBrand("horizon organic whole milk");
+
+        assertThat(dictionary.brand(brandId)).isEqualTo("Horizon Organic");
+        assertThat(dictionary.brand(dictionary.detectBrand("annie's homegrown shells"))).isEqualTo("Annie's");
+        assertThat(dictionary.detectBrand("chocolate sandwich cookies")).isEqualTo(CatalogDictionary.PRIVATE_LABEL);
+        assertThat(dictionary.brand(CatalogDictionary.PRIVATE_LABEL)).isEqualTo("Private Label");
+    }
+
+    @Test
+    void whenLookingUpCatalogIds_thenCanonicalNamesAreShared() {
+        assertThat(dictionary.aisle("1")).isEqualTo("prepared soups salads");
+        assertThat(dictionary.aisle("1")).isSameAs(dictionary.aisleNames().get(0));
+        assertThat(dictionary.aisle("99999")).isEqualTo(CatalogDictionary.UNKNOWN_AISLE);
+        assertThat(dictionary.aisle("")).isEqualTo(CatalogDictionary.UNKNOWN_AISLE);
+        assertThat(dictionary.departmentNames()).contains("frozen");
+    }
+
+    @Test
+    void whenQueryMentionsABrand_thenWholeTokenMatchesAndAnySpellingResolve() {
+        assertThat(dictionary.findBrands("annies mac and cheese"))
+                .singleElement()
+                .satisfies(match -> {
+                    assertThat(dictionary.brand(match.payload())).isEqualTo("Annie's");
+                    assertThat(match.start()).isZero();
+                    assertThat(match.end()).isEqualTo(6);
+                });
+        assertThat(dictionary.findBrands("fageyogurt")).isEmpty();
+        assertThat(dictionary.brandId("FAGE")).isEqualTo(dictionary.brandId("fage")).isPositive();
+        assertThat(dictionary.brandId("annies")).isEqualTo(dictionary.brandId("Annie's"));
+        assertThat(dictionary.brandId("acme")).isEqualTo(-1);
+    }
+
+    @Test
+    void whenReadingTheCatalog_thenBrandsAndProductTypesComeFromTheData() {
+        assertThat(dictionary.knownBrands()).contains("Chobani", "Green & Black's", "Nike").doesNotHaveDuplicates();
+        // Head nouns and head bigrams of product names, not the flavours or attributes in front of them
+        assertThat(dictionary.productTypes()).contains("yogurt", "greek yogurt", "ice cream", "chips", "pasta sauce")
+                .doesNotContain("vanilla", "organic", "chocolate", "ct");
+        // Only reach the threshold over the whole file, so they catch a parser that merges rows
+        assertThat(dictionary.productTypes()).contains("toothbrush", "almond milk", "paper towels").hasSizeGreaterThan(250);
+    }
+}
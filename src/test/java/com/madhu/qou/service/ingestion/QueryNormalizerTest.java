@@ -0,0 +1,76 @@
+package com.madhu.qou.service.ingestion;
+
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.RFC4180ParserBuilder;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.InputStreamReader;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryNormalizerTest {
+
+    // The original PreprocessingService.normalizeQuery, kept verbatim as the reference implementation
+    private static String legacyNormalize(String query) {
+        if (query == null || query.isBlank()) {
+            return "";
+        }
+        String processedQuery = query.trim().toLowerCase();
+        processedQuery = Normalizer.normalize(processedQuery, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "");
+        processedQuery = processedQuery.replaceAll("[^a-z0-9\\s-]", "");
+        return processedQuery;
+    }
+
+    @Test
+    void whenNormalizingEveryProductName_thenOutputMatchesLegacyImplementation() throws Exception {
+        List<String> names = new ArrayList<>();
+        // RFC 4180 parsing: names contain doubled quotes such as 9\""x13\"" that the default parser mis-splits
+        try (CSVReader reader = new CSVReaderBuilder(new InputStreamReader(new ClassPathResource("data/products.csv").getInputStream()))
+                .withCSVParser(new RFC4180ParserBuilder().build())
+                .build()) {
+            reader.readNext(); // Skip header
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                names.add(line[1]);
+            }
+        }
+        assertThat(names).hasSizeGreaterThan(49_000);
+
+        for (String name : names) {
+            assertThat(QueryNormalizer.normalize(name)).as(name).isEqualTo(legacyNormalize(name));
+            assertThat(QueryNormalizer.normalize(name.toUpperCase())).as(name).isEqualTo(legacyNormalize(name.toUpperCase()));
+            assertThat(QueryNormalizer.normalize("  " + name + "!\t")).as(name).isEqualTo(legacyNormalize("  " + name + "!\t"));
+        }
+    }
+
+    @Test
+    void whenInputHasEdgeCases_thenOutputMatchesLegacyImplementation() {
+        List<String> inputs = new ArrayList<>(List.of(
+                "", "   ", " ", "Organic  Milk", "organic milk!", "! milk", "Crème Brûlée",
+                "JALAPEÑO\tchips", "İstanbul", "Ｆｕｌｌｗｉｄｔｈ", "emoji 🥑 avocado",
+                "gluten-free", "café", "line\nbreak\u000Bvertical\ftab\rend", "\u0001ctrl\u0001"
+        ));
+        inputs.add(null);
+        for (String input : inputs) {
+            assertThat(QueryNormalizer.normalize(input)).as(String.valueOf(input)).isEqualTo(legacyNormalize(input));
+        }
+    }
+
+    @Test
+    void whenQueryIsAlreadyNormalized_thenSameInstanceIsReturned() {
+        String query = "organic milk";
+        assertThat(QueryNormalizer.normalize(query)).isSameAs(query);
+    }
+
+    @Test
+    void whenTokenizing_thenEmptyTokensAreDropped() {
+        assertThat(QueryNormalizer.tokenize(" organic  milk\t2-pack ")).containsExactly("organic", "milk", "2-pack");
+        assertThat(QueryNormalizer.tokenize("")).isEmpty();
+    }
+}
@@ -0,0 +1,49 @@
+package com.madhu.qou.service.intent;
+
+import com.madhu.qou.dto.Entity;
+import com.madhu.qou.service.catalog.CatalogDictionary;
+import com.madhu.qou.service.ingestion.PreprocessingService;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogEntityRecognizerTest {
+
+    private final CatalogEntityRecognizer recognizer = new CatalogEntityRecognizer(new PreprocessingService(), new CatalogDictionary());
+
+    @Test
+    void whenQueryContainsBrandAndAisle_thenLongestMatchesWithOffsetsAreReturned() {
+        List<Entity> entities = recognizer.recognize("horizon organic milk");
+
+        // "horizon organic" wins over the shorter "organic" it contains
+        assertThat(entities).containsExactly(
+                new Entity("horizon organic", "BRAND", 0, 15),
+                new Entity("milk", "AISLE", 16, 20)
+        );
+    }
+
+    @Test
+    void whenBrandHasApostrophe_thenNormalizedQueryStillMatchesCanonicalBrand() {
+        assertThat(recognizer.recognize("annies mac and cheese"))
+                .contains(new Entity("annie's", "BRAND", 0, 6));
+    }
+
+    @Test
+    void whenQueryNamesAProductType_thenItIsTaggedUnlessItIsAnAisle() {
+        assertThat(recognizer.recognize("chobani greek yogurt")).containsExactly(
+                new Entity("chobani", "BRAND", 0, 7),
+                new Entity("greek yogurt", "PRODUCT_TYPE", 8, 20)
+        );
+        assertThat(recognizer.recognize("tortilla chips")).containsExactly(new Entity("tortilla chips", "PRODUCT_TYPE", 0, 14));
+        assertThat(recognizer.recognize("yogurt")).containsExactly(new Entity("yogurt", "AISLE", 0, 6));
+    }
+
+    @Test
+    void whenPatternIsOnlyPartOfAWord_thenItIsNotTagged() {
+        assertThat(recognizer.recognize("yogurts")).isEmpty();
+        assertThat(recognizer.recognize("show me items from the yogurt aisle"))
+                .containsExactly(new Entity("yogurt", "AISLE", 23, 29));
+    }
+}
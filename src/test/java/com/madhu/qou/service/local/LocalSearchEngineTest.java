@@ -0,0 +1,126 @@
+package com.madhu.qou.service.local;
+
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.madhu.qou.dto.*;
+import com.madhu.qou.dto.domain.Product;
+import com.madhu.qou.service.catalog.CatalogDictionary;
+import com.madhu.qou.service.rewriting.QueryRewriteService;
+import com.madhu.qou.service.vector.ReciprocalRankFusion;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class LocalSearchEngineTest {
+
+    private final QueryRewriteService queryRewriteService = new QueryRewriteService(new CatalogDictionary());
+    private final LocalSearchEngine engine = new LocalSearchEngine(List.of(
+            product(1, "Greek Yogurt", "Fage", "yogurt", false),
+            product(2, "Organic Greek Yogurt Plain", "Private Label", "yogurt", true),
+            product(3, "Organic Whole Milk", "Horizon Organic", "milk", true),
+            product(4, "Greek Olives", "Private Label", "canned jarred vegetables", false),
+            product(5, "Vanilla Yogurt Cup", "Private Label", "yogurt", false)));
+
+    @Test
+    void whenSearchingFullText_thenHitsAreRankedByBm25AndFacetsCountEveryMatch() {
+        SearchResponse<Product> response = engine.search(queryRewriteService.buildEsQuery(understood("greek yogurt")));
+
+        assertThat(response.hits().total().value()).isEqualTo(4);
+        // Both terms in the shortest name beat both terms in a longer one, which beat one term
+        assertThat(response.hits().hits()).extracting(Hit::id)
+                .containsExactly("instacart-1", "instacart-2", "instacart-4", "instacart-5");
+        assertThat(response.hits().hits().get(0).score()).isGreaterThan(response.hits().hits().get(1).score());
+        // search_aid is excluded from _source, as the rewrite asks
+        assertThat(response.hits().hits().get(0).source().searchAid()).isNull();
+        assertThat(response.hits().hits().get(0).source().name()).isEqualTo("Greek Yogurt");
+
+        List<StringTermsBucket> categories = response.aggregations().get("by_category").sterms().buckets().array();
+        assertThat(categories).extracting(b -> b.key().stringValue(), StringTermsBucket::docCount)
+                .containsExactly(tuple("yogurt", 3L), tuple("canned jarred vegetables", 1L));
+    }
+
+    @Test
+    void whenQueryHasBrandOrOrganicEntities_thenTheyFilterTheMatches() {
+        SearchResponse<Product> brand = engine.search(queryRewriteService.buildEsQuery(
+                understood("fage yogurt", new Entity("FAGE", "BRAND", 0, 4))));
+        SearchResponse<Product> organic = engine.search(queryRewriteService.buildEsQuery(
+                understood("organic", new Entity("organic", "GROCERY_ATTRIBUTE", 0, 7))));
+
+        // The brand term filter is case-insensitive
+        assertThat(brand.hits().hits()).extracting(Hit::id).containsExactly("instacart-1");
+        // Only organic products remain, the shorter name first
+        assertThat(organic.hits().hits()).extracting(Hit::id).containsExactly("instacart-3", "instacart-2");
+    }
+
+    @Test
+    void whenPagingWithTheCursor_thenPagesContinueWithoutOverlap() {
+        UnderstoodQuery query = understood("yogurt");
+        SearchResponse<Product> first = engine.search(queryRewriteService.buildEsQuery(query, new SearchOptions(true, 10, 0, 2, null, List.of())));
+        Hit<Product> last = first.hits().hits().get(1);
+        SearchCursor cursor = new SearchCursor(last.sort().get(0).doubleValue(), last.sort().get(1).stringValue());
+        SearchResponse<Product> second = engine.search(queryRewriteService.buildEsQuery(query, new SearchOptions(true, 10, 0, 2, cursor, List.of("name"))));
+
+        assertThat(first.hits().hits()).extracting(Hit::id).containsExactly("instacart-1", "instacart-5");
+        assertThat(second.hits().hits()).extracting(Hit::id).containsExactly("instacart-2");
+        assertThat(second.hits().hits().get(0).source().brand()).isNull();
+    }
+
+    @Test
+    void whenFacetValuesAreSelected_thenHitsAreNarrowedButEachFacetIgnoresItsOwnSelection() {
+        SearchResponse<Product> response = engine.search(queryRewriteService.buildEsQuery(understood("greek yogurt"),
+                new SearchOptions(true, 10, 0, 10, null, List.of(), new FacetSelection(List.of("yogurt"), List.of("Private Label")))));
+
+        assertThat(response.hits().total().value()).isEqualTo(2);
+        assertThat(response.hits().hits()).extracting(Hit::id).containsExactly("instacart-2", "instacart-5");
+        // Categories among the Private Label matches, brands among the yogurt matches
+        assertThat(response.aggregations().get("by_category").filter().aggregations().get("values").sterms().buckets().array())
+                .extracting(b -> b.key().stringValue(), StringTermsBucket::docCount)
+                .containsExactly(tuple("yogurt", 2L), tuple("canned jarred vegetables", 1L));
+        assertThat(response.aggregations().get("by_brand").filter().aggregations().get("values").sterms().buckets().array())
+                .extracting(b -> b.key().stringValue(), StringTermsBucket::docCount)
+                .containsExactly(tuple("Private Label", 2L), tuple("Fage", 1L));
+    }
+
+    @Test
+    void whenSearchIsHybrid_thenNeighboursMatchUnderTheFiltersAndPagesFuseBothRankings() {
+        List<String> neighbours = List.of("instacart-3", "instacart-2");
+        SearchResponse<Product> response = engine.search(queryRewriteService.buildHybridQuery(understood("greek yogurt"),
+                SearchOptions.DEFAULT, neighbours, 10));
+        SearchResponse<Product> filtered = engine.search(queryRewriteService.buildHybridQuery(
+                understood("fage yogurt", new Entity("fage", "BRAND", 0, 4)), SearchOptions.DEFAULT, neighbours, 10));
+
+        // Lexical hits by BM25, then the neighbour no lexical clause matched, with score 0
+        assertThat(response.hits().hits()).extracting(Hit::id)
+                .containsExactly("instacart-1", "instacart-2", "instacart-4", "instacart-5", "instacart-3");
+        assertThat(response.hits().hits().get(4).score()).isZero();
+        assertThat(filtered.hits().hits()).extracting(Hit::id).containsExactly("instacart-1");
+        // Second lexically and semantically beats first lexically; the semantic-only hit ties with it
+        assertThat(ReciprocalRankFusion.fuse(response.hits().hits(), neighbours, 0, 3)).extracting(Hit::id)
+                .containsExactly("instacart-2", "instacart-1", "instacart-3");
+        assertThat(ReciprocalRankFusion.fuse(response.hits().hits(), neighbours, 3, 3)).extracting(Hit::id)
+                .containsExactly("instacart-4", "instacart-5");
+    }
+
+    @Test
+    void whenRequestUsesAnUnsupportedQuery_thenItIsRejected() {
+        SearchRequest request = SearchRequest.of(s -> s.index("products_index")
+                .query(q -> q.bool(b -> b.should(sh -> sh.matchAll(m -> m)))));
+
+        assertThatThrownBy(() -> engine.search(request)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static UnderstoodQuery understood(String text, Entity... entities) {
+        return new UnderstoodQuery(new PreprocessedQuery(text, text, new UserContext("u", "s")), new Intent("find_product"), List.of(entities));
+    }
+
+    private static Product product(int id, String name, String brand, String category, boolean organic) {
+        return new Product("instacart-" + id, name, "", brand, List.of(category), List.of(),
+                new Product.GroceryAttributes(List.of(), organic, null), name.toLowerCase() + " " + category);
+    }
+}
@@ -1,8 +1,10 @@
 package com.madhu.qou.service.rewriting;
 
+import co.elastic.clients.elasticsearch._types.FieldValue;
 import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch.core.SearchRequest;
 import com.madhu.qou.dto.*;
+import com.madhu.qou.service.catalog.CatalogDictionary;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
@@ -11,7 +13,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 class QueryRewriteServiceTest {
 
-    private final QueryRewriteService queryRewriteService = new QueryRewriteService();
+    private final QueryRewriteService queryRewriteService = new QueryRewriteService(new CatalogDictionary());
 
     @Test
     void whenQueryContainsOrganic_thenQueryShouldContainFilterAndAggregations() {
@@ -51,4 +53,151 @@ class QueryRewriteServiceTest {
         assertThat(result.aggregations()).containsKey("by_category");
         assertThat(result.aggregations()).containsKey("by_brand");
     }
-}
\ No newline at end of file
+
+    @Test
+    void whenQueryHasBrandAndProductType_thenFiltersMatchesAndResidualAreBuilt() {
+        PreprocessedQuery preprocessedQuery = new PreprocessedQuery(
+                "show me fage greek yogurt",
+                "show me fage greek yogurt",
+                new UserContext("user-123", "vip")
+        );
+        UnderstoodQuery understoodQuery = new UnderstoodQuery(
+                preprocessedQuery,
+                new Intent("find_product"),
+                List.of(new Entity("fage", "BRAND", 8, 12), new Entity("yogurt", "PRODUCT_TYPE", 19, 25))
+        );
+
+        SearchRequest result = queryRewriteService.buildEsQuery(understoodQuery);
+
+        List<Query> filters = result.query().bool().filter();
+        assertThat(filters).singleElement().satisfies(f -> {
+            assertThat(f.term().field()).isEqualTo("brand");
+            // A known brand is filtered on its indexed spelling, without case folding
+            assertThat(f.term().value().stringValue()).isEqualTo("Fage");
+            assertThat(f.term().caseInsensitive()).isNull();
+        });
+        List<Query> must = result.query().bool().must();
+        assertThat(must).hasSize(2);
+        assertThat(must.get(0).match().query().stringValue()).isEqualTo("yogurt");
+        // Entities and stop words are removed from the residual text
+        assertThat(must.get(1).multiMatch().query()).isEqualTo("greek");
+        // The did-you-mean suggester is left to the zero-hit follow-up request
+        assertThat(result.suggest()).isNull();
+        assertThat(queryRewriteService.buildSpellCheckRequest(understoodQuery).suggest().text()).isEqualTo("show me fage greek yogurt");
+    }
+
+    @Test
+    void whenEntitiesAreSpelledDifferentlyFromTheQuery_thenTheirSpansAreLeftOutOfTheResidual() {
+        UnderstoodQuery understoodQuery = new UnderstoodQuery(
+                new PreprocessedQuery("Newman's Own chunky pasta sauce", "newmans own chunky pasta sauce", new UserContext("u", "s")),
+                new Intent("find_product"),
+                List.of(new Entity("newman's own", "BRAND", 0, 11), new Entity("pasta sauce", "PRODUCT_TYPE", 19, 30))
+        );
+
+        List<Query> must = queryRewriteService.buildEsQuery(understoodQuery).query().bool().must();
+
+        assertThat(must).hasSize(2);
+        assertThat(must.get(1).multiMatch().query()).isEqualTo("chunky");
+    }
+
+    @Test
+    void whenBuildingManyRequests_thenQueryIndependentPartsAreShared() {
+        UnderstoodQuery first = new UnderstoodQuery(
+                new PreprocessedQuery("milk", "milk", new UserContext("u", "s")), new Intent("find_product"), List.of());
+        UnderstoodQuery second = new UnderstoodQuery(
+                new PreprocessedQuery("bread", "bread", new UserContext("u", "s")), new Intent("find_product"), List.of());
+
+        SearchRequest a = queryRewriteService.buildEsQuery(first);
+        SearchRequest b = queryRewriteService.buildEsQuery(second);
+
+        assertThat(a.aggregations()).isSameAs(b.aggregations());
+        assertThat(a.trackTotalHits()).isSameAs(b.trackTotalHits());
+        assertThat(a.query().bool().filter()).isEmpty();
+    }
+
+    @Test
+    void whenSemanticNeighboursAreGiven_thenTheyMatchAlongsideTheLexicalClausesUnderTheFilters() {
+        UnderstoodQuery understoodQuery = new UnderstoodQuery(
+                new PreprocessedQuery("organic snacks", "organic snacks", new UserContext("u", "s")), new Intent("find_product"),
+                List.of(new Entity("organic", "GROCERY_ATTRIBUTE", 0, 7)));
+
+        SearchRequest result = queryRewriteService.buildHybridQuery(understoodQuery, new SearchOptions(true, 10, 10, 10, null, List.of()),
+                List.of("instacart-7", "instacart-9"), 50);
+
+        var bool = result.query().bool();
+        assertThat(bool.must()).isEmpty();
+        assertThat(bool.filter()).hasSize(1);
+        assertThat(bool.minimumShouldMatch()).isEqualTo("1");
+        assertThat(bool.should().get(0).bool().must()).hasSize(1);
+        assertThat(bool.should().get(1).ids().values()).containsExactly("instacart-7", "instacart-9");
+        assertThat(bool.should().get(1).ids().boost()).isZero();
+        // The window of lexical hits plus every neighbour, from the top: the page is cut after fusion
+        assertThat(result.size()).isEqualTo(52);
+        assertThat(result.from()).isNull();
+    }
+
+    @Test
+    void whenClientOptsOutOfFacetsOrResizesThem_thenAggregationsFollow() {
+        UnderstoodQuery understoodQuery = new UnderstoodQuery(
+                new PreprocessedQuery("milk", "milk", new UserContext("u", "s")), new Intent("find_product"), List.of());
+
+        SearchRequest withoutFacets = queryRewriteService.buildEsQuery(understoodQuery, new SearchOptions(false, 10));
+        SearchRequest wideFacets = queryRewriteService.buildEsQuery(understoodQuery, new SearchOptions(true, 25));
+
+        assertThat(withoutFacets.aggregations()).isEmpty();
+        assertThat(wideFacets.aggregations().get("by_brand").terms().size()).isEqualTo(25);
+        assertThat(wideFacets.trackTotalHits().count()).isEqualTo(1000);
+    }
+
+    @Test
+    void whenPagingWithCursorAndFields_thenRequestCarriesSearchAfterAndSourceFilter() {
+        UnderstoodQuery understoodQuery = new UnderstoodQuery(
+                new PreprocessedQuery("milk", "milk", new UserContext("u", "s")), new Intent("find_product"), List.of());
+
+        SearchRequest firstPage = queryRewriteService.buildEsQuery(understoodQuery, SearchOptions.DEFAULT);
+        SearchRequest nextPage = queryRewriteService.buildEsQuery(understoodQuery, new SearchOptions(true, 10, 40, 20,
+                new SearchCursor(3.5, "instacart-42"), List.of("name", "brand")));
+
+        // search_aid is never fetched; the default page is 10 hits sorted by score, then product_id
+        assertThat(firstPage.source().filter().excludes()).contains("search_aid");
+        assertThat(firstPage.size()).isEqualTo(10);
+        assertThat(firstPage.sort()).hasSize(2);
+        assertThat(firstPage.searchAfter()).isEmpty();
+
+        assertThat(nextPage.source().filter().includes()).containsExactly("name", "brand");
+        assertThat(nextPage.size()).isEqualTo(20);
+        // A cursor positions the page by itself
+        assertThat(nextPage.from()).isNull();
+        assertThat(nextPage.searchAfter()).extracting(FieldValue::_get).containsExactly(3.5, "instacart-42");
+    }
+
+    @Test
+    void whenFacetValuesAreSelected_thenTheyPostFilterHitsAndEachFacetIgnoresItsOwnSelection() {
+        UnderstoodQuery understoodQuery = new UnderstoodQuery(
+                new PreprocessedQuery("yogurt", "yogurt", new UserContext("u", "s")), new Intent("find_product"), List.of());
+
+        SearchRequest brandOnly = queryRewriteService.buildEsQuery(understoodQuery, new SearchOptions(true, 10, 0, 10, null, List.of(),
+                new FacetSelection(List.of(), List.of("Fage", "Chobani"))));
+        SearchRequest both = queryRewriteService.buildEsQuery(understoodQuery, new SearchOptions(true, 10, 0, 10, null, List.of(),
+                new FacetSelection(List.of("yogurt"), List.of("Fage"))));
+
+        // Selections narrow the hits only; the main query and its filters are unchanged
+        assertThat(brandOnly.query().bool().filter()).isEmpty();
+        assertThat(brandOnly.postFilter().terms().field()).isEqualTo("brand");
+        assertThat(brandOnly.postFilter().terms().terms().value()).extracting(FieldValue::stringValue).containsExactly("Fage", "Chobani");
+        // Categories are counted among the selected brands; brands over every match
+        assertThat(brandOnly.aggregations().get("by_category").filter().terms().field()).isEqualTo("brand");
+        assertThat(brandOnly.aggregations().get("by_category").aggregations().get(QueryRewriteService.FACET_VALUES).terms().field())
+                .isEqualTo("categories");
+        assertThat(brandOnly.aggregations().get("by_brand").isTerms()).isTrue();
+
+        assertThat(both.postFilter().bool().filter()).hasSize(2);
+        assertThat(both.aggregations().get("by_brand").filter().terms().field()).isEqualTo("categories");
+    }
+
+    @Test
+    void whenCursorIsEncoded_thenItDecodesToTheSamePosition() {
+        SearchCursor cursor = new SearchCursor(12.25, "instacart-7:b");
+        assertThat(SearchCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+}
@@ -0,0 +1,62 @@
+package com.madhu.qou.service.spell;
+
+import com.madhu.qou.dto.*;
+import com.madhu.qou.dto.domain.Product;
+import com.madhu.qou.service.catalog.CatalogDictionary;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpellCorrectorTest {
+
+    private final SpellCorrector corrector = new SpellCorrector(List.of(
+            product(1, "Organic Hass Avocado", "fresh fruits"),
+            product(2, "Organic Avocado Oil", "oils vinegars"),
+            product(3, "Greek Yogurt", "yogurt"),
+            product(4, "Orange Juice", "refrigerated")), new CatalogDictionary());
+
+    @Test
+    void whenQueryIsMisspelled_thenEachWordBecomesItsClosestMostFrequentCandidate() {
+        // A deletion, a transposition, and a word the catalog does not know at all
+        assertThat(corrector.didYouMean(understood("organc avocaod zzzzzz"))).contains("organic avocado zzzzzz");
+        assertThat(corrector.didYouMean(understood("greek yogurt"))).isEmpty();
+    }
+
+    @Test
+    void whenWordIsShortStopWordOrEntity_thenItIsLeftAlone() {
+        // "fgae" would become "fage", but it is a tagged brand; "ot" is too short to correct
+        UnderstoodQuery query = understood("show me fgae yoghurt ot", new Entity("fgae", "BRAND", 8, 12));
+
+        UnderstoodQuery corrected = corrector.correct(query).orElseThrow();
+
+        assertThat(corrected.preprocessedQuery().normalizedQuery()).isEqualTo("show me fgae yogurt ot");
+        assertThat(corrected.entities()).containsExactly(new Entity("fgae", "BRAND", 8, 12));
+    }
+
+    @Test
+    void whenWordBeforeAnEntityChangesLength_thenEntityOffsetsFollow() {
+        UnderstoodQuery corrected = corrector.correct(understood("avocdo fage", new Entity("fage", "BRAND", 7, 11))).orElseThrow();
+
+        assertThat(corrected.preprocessedQuery().tokens()).containsExactly("avocado", "fage");
+        assertThat(corrected.entities()).containsExactly(new Entity("fage", "BRAND", 8, 12));
+        assertThat(corrected.preprocessedQuery().originalQuery()).isEqualTo("avocdo fage");
+    }
+
+    @Test
+    void distanceCountsATranspositionAsOneEdit() {
+        assertThat(SymSpellIndex.distance("avocaod", "avocado", 3)).isEqualTo(1);
+        assertThat(SymSpellIndex.distance("kitten", "sitting", 3)).isEqualTo(3);
+        assertThat(SymSpellIndex.distance("kitten", "sitting", 2)).isEqualTo(2);
+    }
+
+    private static UnderstoodQuery understood(String text, Entity... entities) {
+        return new UnderstoodQuery(new PreprocessedQuery(text, text, new UserContext("u", "s")), new Intent("find_product"), List.of(entities));
+    }
+
+    private static Product product(int id, String name, String category) {
+        return new Product("instacart-" + id, name, "", "Private Label", List.of(category), List.of(),
+                new Product.GroceryAttributes(List.of(), name.contains("Organic"), null), name.toLowerCase() + " " + category);
+    }
+}
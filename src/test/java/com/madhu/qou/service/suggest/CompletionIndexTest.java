@@ -0,0 +1,72 @@
+package com.madhu.qou.service.suggest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompletionIndexTest {
+
+    private final CompletionIndex index = CompletionIndex.build(List.of(
+            new CompletionIndex.Entry("Organic Whole Milk", 50),
+            new CompletionIndex.Entry("Organic Milk", 10),
+            new CompletionIndex.Entry("Organics Granola", 80),
+            new CompletionIndex.Entry("Oat Milk", 30),
+            new CompletionIndex.Entry("Annie's Mac & Cheese", 5)
+    ), 10);
+
+    @Test
+    void whenPrefixMatches_thenSuggestionsAreRankedByWeight() {
+        assertThat(index.suggest("org", 10))
+                .containsExactly("Organics Granola", "Organic Whole Milk", "Organic Milk");
+        assertThat(index.suggest("org", 2)).containsExactly("Organics Granola", "Organic Whole Milk");
+    }
+
+    @Test
+    void whenPrefixIsNormalizedLikeQueries_thenCaseSpacingAndPunctuationDoNotMatter() {
+        assertThat(index.suggest("  ORGANIC   m", 10)).containsExactly("Organic Milk");
+        assertThat(index.suggest("annies mac", 10)).containsExactly("Annie's Mac & Cheese");
+    }
+
+    @Test
+    void whenPrefixEndsWithSpace_thenOnlyWholeWordContinuationsMatch() {
+        assertThat(index.suggest("organic ", 10)).containsExactly("Organic Whole Milk", "Organic Milk");
+    }
+
+    @Test
+    void whenNothingMatches_thenSuggestionsAreEmpty() {
+        assertThat(index.suggest("xyz", 10)).isEmpty();
+        assertThat(index.suggest("organic x", 10)).isEmpty();
+        assertThat(index.suggest("", 10)).isEmpty();
+    }
+
+    @Test
+    void whenManyEntries_thenTopKMatchesBruteForceRanking() {
+        Random random = new Random(7);
+        List<CompletionIndex.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int c = 0, n = 1 + random.nextInt(8); c < n; c++) {
+                text.append("abc ".charAt(random.nextInt(4)));
+            }
+            entries.add(new CompletionIndex.Entry(text.toString().trim() + i, random.nextInt(100)));
+        }
+        CompletionIndex large = CompletionIndex.build(entries, 5);
+
+        for (String prefix : List.of("a", "ab", "b c", "cc", "a1", "c9")) {
+            List<String> expected = entries.stream()
+                    .filter(e -> CompletionIndex.key(e.text(), false).startsWith(prefix))
+                    .sorted(Comparator.comparingLong(CompletionIndex.Entry::weight).reversed()
+                            .thenComparingInt(e -> e.text().length())
+                            .thenComparing(CompletionIndex.Entry::text))
+                    .limit(5)
+                    .map(CompletionIndex.Entry::text)
+                    .toList();
+            assertThat(large.suggest(prefix, 10)).as(prefix).isEqualTo(expected);
+        }
+    }
+}
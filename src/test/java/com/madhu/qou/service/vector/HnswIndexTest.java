@@ -0,0 +1,51 @@
+package com.madhu.qou.service.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswIndexTest {
+
+    @Test
+    void whenSearchingTheGraph_thenItFindsNearlyAllOfTheExactNeighbours() {
+        Random random = new Random(7);
+        float[][] vectors = new float[2000][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = gaussian(random, 32);
+        }
+        HnswIndex index = HnswIndex.build(vectors, 16, 64, 42);
+
+        int found = 0;
+        for (int q = 0; q < 50; q++) {
+            float[] query = gaussian(random, 32);
+            int[] exact = index.exactSearch(query, 10);
+            found += (int) Arrays.stream(index.search(query, 10, 50)).filter(node -> contains(exact, node)).count();
+        }
+        assertThat(found / 500.0).isGreaterThan(0.9);
+        // A stored vector is its own nearest neighbour
+        assertThat(index.search(vectors[123], 1, 50)).containsExactly(123);
+    }
+
+    @Test
+    void whenVectorsAreQuantized_thenTheyStillRankByCosine() {
+        HnswIndex index = HnswIndex.build(new float[][]{{1, 0, 0, 0}, {0, 1, 0, 0}, {0.6f, 0.8f, 0, 0}}, 4, 8, 42);
+
+        // Cosines 0.8, 0.6 and 0.96
+        assertThat(index.search(new float[]{0.8f, 0.6f, 0, 0}, 3, 8)).containsExactly(2, 0, 1);
+    }
+
+    private static float[] gaussian(Random random, int dimensions) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static boolean contains(int[] nodes, int node) {
+        return Arrays.stream(nodes).anyMatch(n -> n == node);
+    }
+}
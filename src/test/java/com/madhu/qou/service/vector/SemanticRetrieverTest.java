@@ -0,0 +1,52 @@
+package com.madhu.qou.service.vector;
+
+import com.madhu.qou.dto.domain.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SemanticRetrieverTest {
+
+    // Four made-up dimensions: snack, child, dairy, vegetable
+    private static final WordVectors WORDS = WordVectors.of(Map.ofEntries(
+            Map.entry("snacks", new float[]{1, 0, 0, 0}),
+            Map.entry("crackers", new float[]{0.9f, 0.1f, 0, 0}),
+            Map.entry("cookies", new float[]{0.9f, 0, 0.1f, 0}),
+            Map.entry("chocolate", new float[]{0.7f, 0.1f, 0.2f, 0}),
+            Map.entry("kids", new float[]{0, 1, 0, 0}),
+            Map.entry("toddler", new float[]{0.1f, 0.9f, 0, 0}),
+            Map.entry("cheddar", new float[]{0.2f, 0, 0.8f, 0}),
+            Map.entry("milk", new float[]{0, 0.1f, 1, 0}),
+            Map.entry("spinach", new float[]{0, 0, 0, 1}),
+            Map.entry("vegetables", new float[]{0, 0, 0.1f, 1})));
+
+    private final SemanticRetriever retriever = new SemanticRetriever(WORDS, List.of(
+            product(1, "Toddler Cheddar Crackers", "crackers"),
+            product(2, "Chocolate Chip Cookies", "cookies cakes"),
+            product(3, "Whole Milk", "milk"),
+            product(4, "Baby Spinach", "packaged vegetables fruits"),
+            product(5, "Unknown Thing", "missing")), 10);
+
+    @Test
+    void whenQueryWordsAreNotInProductNames_thenNearestProductsStillMatchByMeaning() {
+        // Neither "snacks" nor "kids" occurs in the catalog; "for" is a stop word
+        assertThat(retriever.nearest("snacks for kids", 2)).containsExactly("instacart-1", "instacart-2");
+        assertThat(retriever.nearest("vegetables", 1)).containsExactly("instacart-4");
+    }
+
+    @Test
+    void whenNoQueryWordHasAVector_thenNothingIsRetrieved() {
+        assertThat(retriever.isReady()).isTrue();
+        assertThat(retriever.nearest("zzz qqq", 5)).isEmpty();
+        // A product without any known word is not in the graph
+        assertThat(retriever.nearest("snacks", 10)).doesNotContain("instacart-5");
+    }
+
+    private static Product product(int id, String name, String category) {
+        return new Product("instacart-" + id, name, "", "Private Label", List.of(category), List.of(),
+                new Product.GroceryAttributes(List.of(), false, null), name.toLowerCase() + " " + category);
+    }
+}